@@ -0,0 +1,282 @@
+package org.databricks;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tunes the page size and the number of pages in flight of one crawl from what the API answers, and retries
+ * failed page requests.
+ * <p>
+ * Concurrency grows by one page after every round of fast pages and is halved on a 429 or 503 (additive increase,
+ * multiplicative decrease). The page size grows by a quarter while pages answer within half of
+ * api_target_latency_ms and is halved when they take longer than it. Throttled and transient failures are retried up
+ * to api_max_retries times, after the Retry-After delay when the server sent one and otherwise after an exponential
+ * backoff with full jitter. A Retry-After pauses every new request of the crawl, not only the throttled one.
+ * <p>
+ * Every decision is counted and kept for getMetrics, so the settings can be tuned per environment. With api_adaptive
+ * false the page size and concurrency stay at their configured values and only the retries apply.
+ */
+public class AdaptiveCrawlController {
+
+    /**
+     * Counts the records of a fetched page.
+     */
+    public interface RecordCounter<T> {
+        int count(T page);
+    }
+
+    private static final int MAX_DECISIONS_KEPT = 200;
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final boolean adaptive;
+    private final int minPageSize;
+    private final int maxPageSize;
+    private final int maxConcurrency;
+    private final long targetLatencyMillis;
+    private final int maxRetries;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+
+    private int pageSize;
+    private int concurrency;
+    private double smoothedLatencyMillis = -1;
+    private int successesSinceLastDecision;
+    private long pausedUntilMillis;
+
+    private long requests;
+    private long successes;
+    private long retries;
+    private long throttled;
+    private long failures;
+    private long recordsFetched;
+    private long totalLatencyMillis;
+    private long maxLatencyMillis;
+    private final ArrayDeque<Map<String, Object>> decisions = new ArrayDeque<>();
+    private volatile ValidationMetrics.TableMetrics metrics;
+
+    /**
+     * Reads the settings of the global properties: api_page_size (initial and largest page), api_min_page_size,
+     * api_fetch_threads (initial concurrency), api_max_pages_in_flight (largest concurrency), api_target_latency_ms,
+     * api_max_retries, api_backoff_base_ms, api_backoff_max_ms and api_adaptive.
+     *
+     * @param globalProp - Global properties
+     */
+    public AdaptiveCrawlController(Properties globalProp) {
+        int fetchThreads = ReusableCommonMethods.getIntProperty(globalProp, "api_fetch_threads", 4);
+        this.adaptive = Boolean.parseBoolean(globalProp.getProperty("api_adaptive", "true").trim());
+        this.maxPageSize = Math.max(1, ReusableCommonMethods.getIntProperty(globalProp, "api_page_size", 1000));
+        this.minPageSize = Math.max(1, Math.min(maxPageSize,
+                ReusableCommonMethods.getIntProperty(globalProp, "api_min_page_size", 100)));
+        this.maxConcurrency = Math.max(1, ReusableCommonMethods.getIntProperty(globalProp, "api_max_pages_in_flight",
+                fetchThreads * 2));
+        this.targetLatencyMillis = ReusableCommonMethods.getIntProperty(globalProp, "api_target_latency_ms", 3000);
+        this.maxRetries = ReusableCommonMethods.getIntProperty(globalProp, "api_max_retries", 5);
+        this.backoffBaseMillis = ReusableCommonMethods.getIntProperty(globalProp, "api_backoff_base_ms", 500);
+        this.backoffMaxMillis = ReusableCommonMethods.getIntProperty(globalProp, "api_backoff_max_ms", 30000);
+        this.pageSize = maxPageSize;
+        this.concurrency = adaptive ? Math.min(fetchThreads, maxConcurrency) : maxConcurrency;
+    }
+
+    /**
+     * This method will make the controller record the latency of every successful page as page_fetch.
+     *
+     * @param metrics - Metrics of the table, null for none
+     */
+    public void setMetrics(ValidationMetrics.TableMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return page size for the next page to be requested
+     */
+    public synchronized int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return number of pages that may be in flight at the moment
+     */
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * This method will run a page request, waiting out a Retry-After pause first and repeating the request while it
+     * fails with a retryable error and retries are left.
+     *
+     * @param request       - Page request
+     * @param recordCounter - Counts the records of the returned page
+     * @param description   - Request description for the log
+     * @return page returned by the request
+     */
+    public <T> T execute(Callable<T> request, RecordCounter<T> recordCounter, String description) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            awaitPause();
+            long start = System.nanoTime();
+            try {
+                synchronized (this) {
+                    requests++;
+                }
+                T page = request.call();
+                long latencyNanos = System.nanoTime() - start;
+                ValidationMetrics.TableMetrics tableMetrics = metrics;
+                if (tableMetrics != null) {
+                    tableMetrics.record(ValidationMetrics.PAGE_FETCH, latencyNanos);
+                }
+                onSuccess(latencyNanos / 1000000, recordCounter.count(page));
+                return page;
+            } catch (ApiResponseException e) {
+                if (!e.isRetryable() || attempt >= maxRetries) {
+                    onFailure();
+                    throw e;
+                }
+                long delay = onRetryableFailure(e.getStatusCode(), e.isThrottled(), e.getRetryAfterMillis(), attempt);
+                System.out.println("Request " + description + " answered " + e.getStatusCode() + ", retry "
+                        + (attempt + 1) + " of " + maxRetries + " in " + delay + " ms");
+                Thread.sleep(delay);
+            } catch (HttpTimeoutException e) {
+                if (attempt >= maxRetries) {
+                    onFailure();
+                    throw e;
+                }
+                //A timed out page is treated like a throttled one, the server is struggling
+                long delay = onRetryableFailure(-1, true, -1, attempt);
+                System.out.println("Request " + description + " timed out, retry " + (attempt + 1) + " of "
+                        + maxRetries + " in " + delay + " ms");
+                Thread.sleep(delay);
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    onFailure();
+                    throw e;
+                }
+                long delay = onRetryableFailure(-1, false, -1, attempt);
+                System.out.println("Request " + description + " failed with " + e + ", retry " + (attempt + 1)
+                        + " of " + maxRetries + " in " + delay + " ms");
+                Thread.sleep(delay);
+            }
+        }
+    }
+
+    /**
+     * This method will return the counters, the current settings and the latest decisions of the controller.
+     *
+     * @return ordered map, ready to be written as JSON
+     */
+    public synchronized Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("adaptive", adaptive);
+        metrics.put("pageSize", pageSize);
+        metrics.put("concurrency", concurrency);
+        metrics.put("requests", requests);
+        metrics.put("successes", successes);
+        metrics.put("retries", retries);
+        metrics.put("throttled", throttled);
+        metrics.put("failures", failures);
+        metrics.put("recordsFetched", recordsFetched);
+        metrics.put("averageLatencyMillis", successes == 0 ? 0 : totalLatencyMillis / successes);
+        metrics.put("smoothedLatencyMillis", Math.round(Math.max(0, smoothedLatencyMillis)));
+        metrics.put("maxLatencyMillis", maxLatencyMillis);
+        List<Map<String, Object>> decisionList = new ArrayList<>(decisions);
+        metrics.put("decisions", decisionList);
+        return metrics;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Crawl requests [" + requests + "], Retries [" + retries + "], Throttled [" + throttled + "], Failures ["
+                + failures + "], Page size [" + pageSize + "], Pages in flight [" + concurrency + "], Average latency ["
+                + (successes == 0 ? 0 : totalLatencyMillis / successes) + " ms]";
+    }
+
+    private void awaitPause() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            wait = pausedUntilMillis - System.currentTimeMillis();
+        }
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+    }
+
+    private synchronized void onSuccess(long latencyMillis, int records) {
+        successes++;
+        recordsFetched += records;
+        totalLatencyMillis += latencyMillis;
+        maxLatencyMillis = Math.max(maxLatencyMillis, latencyMillis);
+        smoothedLatencyMillis = smoothedLatencyMillis < 0 ? latencyMillis
+                : smoothedLatencyMillis + LATENCY_SMOOTHING * (latencyMillis - smoothedLatencyMillis);
+        if (!adaptive) {
+            return;
+        }
+        //Decide once per round, that is once as many pages finished as may be in flight
+        if (++successesSinceLastDecision < concurrency) {
+            return;
+        }
+        successesSinceLastDecision = 0;
+        if (smoothedLatencyMillis > targetLatencyMillis) {
+            if (pageSize > minPageSize) {
+                pageSize = Math.max(minPageSize, pageSize / 2);
+                recordDecision("latency " + Math.round(smoothedLatencyMillis) + " ms above target, page size halved");
+            }
+        } else {
+            boolean changed = false;
+            if (concurrency < maxConcurrency) {
+                concurrency++;
+                changed = true;
+            }
+            if (smoothedLatencyMillis < targetLatencyMillis / 2.0 && pageSize < maxPageSize) {
+                pageSize = Math.min(maxPageSize, pageSize + Math.max(1, pageSize / 4));
+                changed = true;
+            }
+            if (changed) {
+                recordDecision("latency " + Math.round(smoothedLatencyMillis) + " ms within target, increased");
+            }
+        }
+    }
+
+    private synchronized long onRetryableFailure(int statusCode, boolean throttledResponse, long retryAfterMillis,
+                                                 int attempt) {
+        retries++;
+        successesSinceLastDecision = 0;
+        if (throttledResponse) {
+            throttled++;
+            if (adaptive && concurrency > 1) {
+                concurrency = Math.max(1, concurrency / 2);
+                recordDecision((statusCode < 0 ? "timeout" : "status " + statusCode) + ", pages in flight halved");
+            }
+        }
+        //Full jitter keeps the retries of parallel pages from arriving together
+        long backoff = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(backoff + 1);
+        if (retryAfterMillis >= 0) {
+            delay = retryAfterMillis + ThreadLocalRandom.current().nextLong(backoffBaseMillis + 1);
+            pausedUntilMillis = Math.max(pausedUntilMillis, System.currentTimeMillis() + retryAfterMillis);
+            recordDecision("Retry-After " + retryAfterMillis + " ms, new requests paused");
+        }
+        return delay;
+    }
+
+    private synchronized void onFailure() {
+        failures++;
+    }
+
+    private void recordDecision(String reason) {
+        Map<String, Object> decision = new LinkedHashMap<>();
+        decision.put("timeMillis", System.currentTimeMillis());
+        decision.put("pageSize", pageSize);
+        decision.put("concurrency", concurrency);
+        decision.put("reason", reason);
+        if (decisions.size() == MAX_DECISIONS_KEPT) {
+            decisions.removeFirst();
+        }
+        decisions.addLast(decision);
+    }
+}
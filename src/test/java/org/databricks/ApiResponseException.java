@@ -0,0 +1,48 @@
+package org.databricks;
+
+import java.io.IOException;
+
+/**
+ * A page request answered with a status other than 200. Carries the status and the delay the server asked for in
+ * Retry-After, so that the crawl can decide whether and when to repeat the request.
+ */
+public class ApiResponseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final long retryAfterMillis;
+
+    /**
+     * @param statusCode       - HTTP status of the response
+     * @param retryAfterMillis - Delay asked for in Retry-After, -1 when the response has none
+     * @param message          - Description with the request and the start of the body
+     */
+    public ApiResponseException(int statusCode, long retryAfterMillis, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * @return true for 429 and 503, the answers of a server asking the client to slow down
+     */
+    public boolean isThrottled() {
+        return statusCode == 429 || statusCode == 503;
+    }
+
+    /**
+     * @return true when repeating the request may succeed, that is throttling and transient server errors
+     */
+    public boolean isRetryable() {
+        return isThrottled() || statusCode == 408 || statusCode == 500 || statusCode == 502 || statusCode == 504;
+    }
+}
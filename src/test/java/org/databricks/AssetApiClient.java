@@ -0,0 +1,212 @@
+package org.databricks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Lean client for the page requests of the validation hot path, built on one java.net.http.HttpClient shared by every
+ * page fetch thread. Connections are kept alive and reused, HTTP/2 is negotiated when the server offers it, gzip
+ * responses are requested and every body is decoded straight from the response stream. RestAssured stays in use for
+ * the token request and ad hoc checks.
+ */
+public class AssetApiClient {
+
+    //Port RestAssured uses when the proxy property only names a host
+    private static final int DEFAULT_PROXY_PORT = 8888;
+
+    private final HttpClient httpClient;
+    private final String baseUri;
+    private final Duration requestTimeout;
+
+    /**
+     * Creates the client for base_uri and base_path of the global properties. The protocol is read from
+     * api_http_version, the timeouts from api_connect_timeout_seconds and api_request_timeout_seconds and requests
+     * are routed through proxy when it is set.
+     *
+     * @param globalProp - Global properties
+     */
+    public AssetApiClient(Properties globalProp) {
+        this(joinPath(globalProp.getProperty("base_uri"), globalProp.getProperty("base_path")), globalProp);
+    }
+
+    /**
+     * @param baseUri    - URI the endpoints are resolved against
+     * @param globalProp - Global properties with the client settings
+     */
+    public AssetApiClient(String baseUri, Properties globalProp) {
+        this.baseUri = baseUri;
+        this.requestTimeout = Duration.ofSeconds(ReusableCommonMethods.getIntProperty(globalProp,
+                "api_request_timeout_seconds", 300));
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version("1.1".equals(globalProp.getProperty("api_http_version", "2").trim())
+                        ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(ReusableCommonMethods.getIntProperty(globalProp,
+                        "api_connect_timeout_seconds", 30)));
+        InetSocketAddress proxyAddress = parseProxy(globalProp.getProperty("proxy"));
+        if (proxyAddress != null) {
+            builder.proxy(ProxySelector.of(proxyAddress));
+        }
+        this.httpClient = builder.build();
+    }
+
+    /**
+     * This method will fetch one page of the given endpoint and decode its mapped fields from the response stream.
+     * A page rejected with 401 is requested once more with a renewed token. It is safe to call from several threads
+     * at once.
+     *
+     * @param endPoint     - API endpoint to fetch
+     * @param offset       - Offset of the first record of the page
+     * @param limit        - Maximum number of records in the page
+     * @param tokenManager - Token manager handing out the access token
+     * @param decoder      - Decoder reading the mapped fields
+     * @return AssetPage
+     */
+    public AssetPageDecoder.AssetPage fetchPage(String endPoint, int offset, int limit, TokenManager tokenManager,
+                                                AssetPageDecoder decoder) throws Exception {
+        return fetchPage(endPoint, "offset=" + offset + "&limit=" + limit, tokenManager, decoder);
+    }
+
+    /**
+     * This method will fetch one page of the given endpoint with cursor paging, the empty cursor giving the first
+     * page.
+     *
+     * @param endPoint     - API endpoint to fetch
+     * @param cursor       - Cursor of the page, nextCursor of the page before it
+     * @param limit        - Maximum number of records in the page
+     * @param tokenManager - Token manager handing out the access token
+     * @param decoder      - Decoder reading the mapped fields and the next cursor
+     * @return AssetPage
+     */
+    public AssetPageDecoder.AssetPage fetchPageByCursor(String endPoint, String cursor, int limit,
+                                                        TokenManager tokenManager, AssetPageDecoder decoder)
+            throws Exception {
+        return fetchPage(endPoint, "cursor=" + URLEncoder.encode(cursor == null ? "" : cursor, StandardCharsets.UTF_8)
+                + "&limit=" + limit, tokenManager, decoder);
+    }
+
+    private AssetPageDecoder.AssetPage fetchPage(String endPoint, String query, TokenManager tokenManager,
+                                                 AssetPageDecoder decoder) throws Exception {
+        URI uri = URI.create(joinPath(baseUri, endPoint) + "?" + query);
+        String accessToken = tokenManager.getToken();
+        long start = System.nanoTime();
+        HttpResponse<InputStream> response = send(uri, accessToken);
+        if (response.statusCode() == 401) {
+            response.body().close();
+            System.out.println("Access token rejected for " + query + ", renewing the token");
+            response = send(uri, tokenManager.refreshAfterUnauthorized(accessToken));
+        }
+        //The body is still unread, so this is the wait for the response headers
+        if (decoder.getMetrics() != null) {
+            decoder.getMetrics().record(ValidationMetrics.HTTP_WAIT, System.nanoTime() - start);
+        }
+        return decoder.decode(openBody(response));
+    }
+
+    /**
+     * This method will send a GET request and return the response with its body still unread.
+     *
+     * @param uri         - Absolute request URI
+     * @param accessToken - Bearer token of the request
+     * @return HttpResponse with a streamed body
+     */
+    public HttpResponse<InputStream> send(URI uri, String accessToken) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * This method will return the body of a 200 response, unzipped when the server sent it gzip encoded. Any other
+     * status fails with an ApiResponseException carrying the status, the Retry-After delay and the start of the body.
+     *
+     * @param response - Response returned by send
+     * @return InputStream of the body, to be closed by the caller
+     */
+    public static InputStream openBody(HttpResponse<InputStream> response) throws IOException {
+        InputStream body = response.body();
+        if (response.statusCode() != 200) {
+            String message;
+            try (InputStream in = body) {
+                message = new String(in.readNBytes(512), StandardCharsets.UTF_8);
+            }
+            throw new ApiResponseException(response.statusCode(),
+                    parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)),
+                    "Expected status code 200 but was " + response.statusCode() + " for " + response.uri() + " : " + message);
+        }
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.trim().equalsIgnoreCase("gzip")).orElse(false);
+        return gzip ? new GZIPInputStream(body, 64 * 1024) : body;
+    }
+
+    /**
+     * This method will return the delay of a Retry-After header, given either in seconds or as an HTTP date.
+     *
+     * @param retryAfter - Header value
+     * @return delay in milliseconds, or -1 when the header is missing or cannot be read
+     */
+    public static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000L);
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, retryAt.toInstant().toEpochMilli() - System.currentTimeMillis());
+            } catch (DateTimeParseException parseException) {
+                return -1;
+            }
+        }
+    }
+
+    private static String joinPath(String base, String path) {
+        String left = base == null ? "" : base.trim();
+        String right = path == null ? "" : path.trim();
+        if (right.isEmpty()) {
+            return left;
+        }
+        if (left.endsWith("/")) {
+            left = left.substring(0, left.length() - 1);
+        }
+        return left + (right.startsWith("/") ? right : "/" + right);
+    }
+
+    private static InetSocketAddress parseProxy(String proxy) {
+        if (proxy == null || proxy.trim().isEmpty()) {
+            return null;
+        }
+        String value = proxy.trim();
+        if (value.contains("://")) {
+            URI uri = URI.create(value);
+            return InetSocketAddress.createUnresolved(uri.getHost(), uri.getPort() < 0 ? DEFAULT_PROXY_PORT : uri.getPort());
+        }
+        int colon = value.lastIndexOf(':');
+        if (colon > 0) {
+            return InetSocketAddress.createUnresolved(value.substring(0, colon),
+                    Integer.parseInt(value.substring(colon + 1)));
+        }
+        return InetSocketAddress.createUnresolved(value, DEFAULT_PROXY_PORT);
+    }
+}
@@ -0,0 +1,141 @@
+package org.databricks;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+
+/**
+ * Offset pagination strategy, walks the pages of an API endpoint with offset/limit paging. The first page is fetched
+ * on its own as the number of records in scope is derived from it, the remaining pages are fetched and decoded
+ * concurrently through a PageFetchPipeline and returned in offset order.
+ * <p>
+ * Page size, pages in flight and retries are decided by an AdaptiveCrawlController. The offset and limit of a page
+ * are fixed when the page is handed to the pipeline, so pages of different sizes still cover the records in scope
+ * exactly once. The resume position is the offset following the last returned page.
+ */
+public class AssetPageCrawl implements PaginationStrategy {
+
+    private final ValidationResources resources;
+    private final String endPoint;
+    private final int expectedTotalRecordsToValidate;
+    private final AssetPageDecoder decoder;
+    private final AdaptiveCrawlController controller;
+    private final int startOffset;
+    //End offsets of the pages handed to the pipeline and not returned yet, in offset order
+    private final ArrayDeque<Integer> pageEndOffsets = new ArrayDeque<>();
+    private int returnedEndOffset;
+    private PageFetchPipeline<AssetPageDecoder.AssetPage> pipeline;
+    private boolean firstPageReturned;
+    private int nextOffset;
+    private int endOffset;
+
+    /**
+     * @param resources                      - Shared resources with the global properties, token, HTTP client and
+     *                                         page fetch threads
+     * @param endPoint                       - API endpoint to crawl
+     * @param expectedTotalRecordsToValidate - Number of records to crawl, negative to crawl every record
+     * @param decoder                        - Decoder reading the mapped fields of every page
+     */
+    public AssetPageCrawl(ValidationResources resources, String endPoint, int expectedTotalRecordsToValidate,
+                          AssetPageDecoder decoder) {
+        this(resources, endPoint, expectedTotalRecordsToValidate, decoder, null);
+    }
+
+    /**
+     * @param resources                      - Shared resources with the global properties, token, HTTP client and
+     *                                         page fetch threads
+     * @param endPoint                       - API endpoint to crawl
+     * @param expectedTotalRecordsToValidate - Number of records to crawl, negative to crawl every record
+     * @param decoder                        - Decoder reading the mapped fields of every page
+     * @param resumePosition                 - Offset to start from, null or empty to start from offset 0
+     */
+    public AssetPageCrawl(ValidationResources resources, String endPoint, int expectedTotalRecordsToValidate,
+                          AssetPageDecoder decoder, String resumePosition) {
+        this.resources = resources;
+        this.endPoint = endPoint;
+        this.expectedTotalRecordsToValidate = expectedTotalRecordsToValidate;
+        this.decoder = decoder;
+        this.controller = new AdaptiveCrawlController(resources.getGlobalProp());
+        this.startOffset = resumePosition == null || resumePosition.trim().isEmpty() ? 0
+                : Integer.parseInt(resumePosition.trim());
+        this.returnedEndOffset = startOffset;
+    }
+
+    /**
+     * Returns the next page in offset order, or null once every page in scope is returned.
+     */
+    @Override
+    public AssetPageDecoder.AssetPage nextPage() throws Exception {
+        if (!firstPageReturned) {
+            firstPageReturned = true;
+            int firstLimit = controller.getPageSize();
+            if (expectedTotalRecordsToValidate >= 0) {
+                firstLimit = Math.min(firstLimit, expectedTotalRecordsToValidate - startOffset);
+                if (firstLimit <= 0) {
+                    return null;
+                }
+            }
+            AssetPageDecoder.AssetPage firstPage = fetchPage(startOffset, firstLimit);
+            //If all the records to be validated
+            if (expectedTotalRecordsToValidate < 0) {
+                endOffset = (int) firstPage.getTotal();
+            } else {
+                //if total records to be validated is not full set and user has provided input
+                endOffset = expectedTotalRecordsToValidate;
+            }
+            nextOffset = startOffset + firstLimit;
+            returnedEndOffset = nextOffset;
+            pipeline = new PageFetchPipeline<>(resources.getPageFetchExecutor(), controller::getConcurrency,
+                    this::nextPageRequest);
+            return firstPage;
+        }
+        if (pipeline == null) {
+            return null;
+        }
+        AssetPageDecoder.AssetPage page = pipeline.next();
+        if (page != null) {
+            returnedEndOffset = pageEndOffsets.removeFirst();
+        }
+        return page;
+    }
+
+    @Override
+    public boolean isFullCrawl() {
+        return expectedTotalRecordsToValidate < 0;
+    }
+
+    @Override
+    public String getResumePosition() {
+        return String.valueOf(returnedEndOffset);
+    }
+
+    @Override
+    public AdaptiveCrawlController getController() {
+        return controller;
+    }
+
+    //Called on the consuming thread, the page size in force decides the limit of the next page
+    private Callable<AssetPageDecoder.AssetPage> nextPageRequest() {
+        if (nextOffset >= endOffset) {
+            return null;
+        }
+        final int offset = nextOffset;
+        final int limit = Math.min(controller.getPageSize(), endOffset - offset);
+        nextOffset += limit;
+        pageEndOffsets.addLast(nextOffset);
+        return () -> fetchPage(offset, limit);
+    }
+
+    private AssetPageDecoder.AssetPage fetchPage(int offset, int limit) throws Exception {
+        return controller.execute(() -> resources.getApiClient().fetchPage(endPoint, offset, limit,
+                resources.getTokenManager(), decoder), page -> page.getRecords().size(),
+                endPoint + " offset " + offset + " limit " + limit);
+    }
+
+    @Override
+    public void close() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        System.out.println(controller);
+    }
+}
@@ -0,0 +1,311 @@
+package org.databricks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Token-streaming decoder for pages of the form {"total": n, "nextCursor": "...", "results": [{...}, ...]}, where
+ * total and nextCursor are optional. Only the primary key and the
+ * mapped fields are read, every other value is skipped without being materialised, and each record is handed over
+ * as soon as its closing brace is read.
+ * <p>
+ * A decoded record is a String[] holding the primary key at index 0 followed by the values of the mapping entries in
+ * mapping order. A value that is not present in the record is null, a JSON null is "null" and an object or array is
+ * "", the same text JsonNode.asText() gives. A JSON number of a decimal, timestamp or date entry is read by its
+ * ValueComparator instead, into the text Databricks gives the same value, so that matching values compare as text.
+ */
+public class AssetPageDecoder {
+
+    /**
+     * Receives records in page order, on the thread that decodes the page.
+     */
+    public interface RecordHandler {
+        void onRecord(String[] record) throws Exception;
+    }
+
+    //JsonFactory is thread safe, parsers created from it are not shared
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final PathNode root = new PathNode();
+    private final FieldMapping fieldMapping;
+    private final int recordLength;
+    //Comparator of every record slot whose JSON numbers are read with jsonNumberText, null for the other slots
+    private final ValueComparator[] numberReaders;
+    private final ValidationMetrics.TableMetrics metrics;
+
+    /**
+     * @param primaryKeyPath - Path of the primary key in a record
+     * @param fieldMapping   - Mapping whose JSON paths are read
+     */
+    public AssetPageDecoder(JsonFieldPath primaryKeyPath, FieldMapping fieldMapping) {
+        this(primaryKeyPath, fieldMapping, null);
+    }
+
+    /**
+     * @param primaryKeyPath - Path of the primary key in a record
+     * @param fieldMapping   - Mapping whose JSON paths are read
+     * @param metrics        - Metrics of the table, receiving the json_parse time and the bytes read, null for none
+     */
+    public AssetPageDecoder(JsonFieldPath primaryKeyPath, FieldMapping fieldMapping,
+                            ValidationMetrics.TableMetrics metrics) {
+        this.metrics = metrics;
+        this.fieldMapping = fieldMapping;
+        addPath(primaryKeyPath, 0);
+        for (int i = 0; i < fieldMapping.size(); i++) {
+            addPath(fieldMapping.getJsonPath(i), i + 1);
+        }
+        recordLength = fieldMapping.size() + 1;
+        numberReaders = new ValueComparator[recordLength];
+        for (int i = 0; i < fieldMapping.size(); i++) {
+            if (fieldMapping.getComparator(i).readsJsonNumbers()) {
+                numberReaders[i + 1] = fieldMapping.getComparator(i);
+            }
+        }
+    }
+
+    /**
+     * @return mapping whose fields follow the primary key in a decoded record
+     */
+    public FieldMapping getFieldMapping() {
+        return fieldMapping;
+    }
+
+    /**
+     * This method will decode a page and collect its records.
+     *
+     * @param in - Page body, closed by this method
+     * @return AssetPage
+     */
+    public AssetPage decode(InputStream in) throws Exception {
+        List<String[]> records = new ArrayList<>();
+        String[] nextCursor = new String[1];
+        long total = decode(in, records::add, nextCursor);
+        return new AssetPage(total, records, nextCursor[0]);
+    }
+
+    /**
+     * This method will decode a page and hand every record to the handler as soon as it is read.
+     *
+     * @param in      - Page body, closed by this method
+     * @param handler - Receives the records in page order
+     * @return value of the "total" field, or -1 when the page has none
+     */
+    public long decode(InputStream in, RecordHandler handler) throws Exception {
+        return decode(in, handler, new String[1]);
+    }
+
+    private long decode(InputStream in, RecordHandler handler, String[] nextCursor) throws Exception {
+        if (metrics == null) {
+            return decodePage(in, handler, nextCursor);
+        }
+        long start = System.nanoTime();
+        CountingInputStream countingIn = new CountingInputStream(in);
+        try {
+            return decodePage(countingIn, handler, nextCursor);
+        } finally {
+            metrics.record(ValidationMetrics.JSON_PARSE, System.nanoTime() - start);
+            metrics.add(ValidationMetrics.BYTES_READ, countingIn.count);
+        }
+    }
+
+    private long decodePage(InputStream in, RecordHandler handler, String[] nextCursor) throws Exception {
+        long total = -1;
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Page is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("total".equals(fieldName) && token.isNumeric()) {
+                    total = parser.getLongValue();
+                } else if ("nextCursor".equals(fieldName) && token == JsonToken.VALUE_STRING) {
+                    nextCursor[0] = parser.getText();
+                } else if ("results".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String[] record = new String[recordLength];
+                        readValue(parser, root, record);
+                        handler.onRecord(record);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return total;
+    }
+
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * @return metrics of the table, null when the decoder records none
+     */
+    public ValidationMetrics.TableMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void readValue(JsonParser parser, PathNode node, String[] record) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (node.slots != null) {
+            String text = token.isScalarValue() ? (token == JsonToken.VALUE_NULL ? "null" : parser.getText()) : "";
+            for (int slot : node.slots) {
+                record[slot] = token.isNumeric() && numberReaders[slot] != null
+                        ? numberReaders[slot].jsonNumberText(parser) : text;
+            }
+        }
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                PathNode child = node.fields == null ? null : node.fields.get(parser.getCurrentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    readValue(parser, child, record);
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                PathNode child = node.elements == null || index >= node.elements.length ? null : node.elements[index];
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    readValue(parser, child, record);
+                }
+                index++;
+            }
+        }
+    }
+
+    private void addPath(JsonFieldPath path, int slot) {
+        //A numeric segment is registered both as a field name and as an array position
+        List<PathNode> current = new ArrayList<>();
+        current.add(root);
+        for (int segment = 0; segment < path.getSegmentCount(); segment++) {
+            List<PathNode> next = new ArrayList<>();
+            for (PathNode node : current) {
+                next.add(node.field(path.getSegmentName(segment)));
+                if (path.getSegmentIndex(segment) >= 0) {
+                    next.add(node.element(path.getSegmentIndex(segment)));
+                }
+            }
+            current = next;
+        }
+        for (PathNode node : current) {
+            node.addSlot(slot);
+        }
+    }
+
+    /**
+     * Node of the trie built from the mapped paths.
+     */
+    private static class PathNode {
+        private HashMap<String, PathNode> fields;
+        private PathNode[] elements;
+        private int[] slots;
+
+        PathNode field(String name) {
+            if (fields == null) {
+                fields = new HashMap<>();
+            }
+            return fields.computeIfAbsent(name, key -> new PathNode());
+        }
+
+        PathNode element(int index) {
+            if (elements == null || elements.length <= index) {
+                PathNode[] grown = new PathNode[index + 1];
+                if (elements != null) {
+                    System.arraycopy(elements, 0, grown, 0, elements.length);
+                }
+                elements = grown;
+            }
+            if (elements[index] == null) {
+                elements[index] = new PathNode();
+            }
+            return elements[index];
+        }
+
+        void addSlot(int slot) {
+            if (slots == null) {
+                slots = new int[]{slot};
+            } else {
+                int[] grown = new int[slots.length + 1];
+                System.arraycopy(slots, 0, grown, 0, slots.length);
+                grown[slots.length] = slot;
+                slots = grown;
+            }
+        }
+    }
+
+    /**
+     * Records of one page in page order, together with the total and the cursor of the next page reported by the API.
+     */
+    public static class AssetPage {
+        private final long total;
+        private final List<String[]> records;
+        private final String nextCursor;
+
+        public AssetPage(long total, List<String[]> records) {
+            this(total, records, null);
+        }
+
+        public AssetPage(long total, List<String[]> records, String nextCursor) {
+            this.total = total;
+            this.records = records;
+            this.nextCursor = nextCursor;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public List<String[]> getRecords() {
+            return records;
+        }
+
+        /**
+         * @return cursor of the next page, null when the page has none, which is the case on the last page
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    //Counts the bytes of the page body the parser reads, after gzip decoding
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
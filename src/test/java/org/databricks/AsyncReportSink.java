@@ -0,0 +1,99 @@
+package org.databricks;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Hands the rows of a report to a background thread that writes them to the wrapped sink, so serializing the report
+ * overlaps with the comparison. The queue is bounded: when the writer falls behind, writeRow blocks instead of
+ * letting queued rows grow without limit. A failure of the writer thread is rethrown by the next writeRow or by close.
+ */
+public class AsyncReportSink implements ReportSink {
+
+    private static final String[] END_OF_REPORT = new String[0];
+
+    private final ReportSink delegate;
+    private final BlockingQueue<String[]> queue;
+    private final Thread writerThread;
+    private volatile Exception writerFailure;
+    private long rowsWritten;
+    private boolean closed;
+
+    /**
+     * @param delegate  - Sink the rows are written to on the background thread
+     * @param queueSize - Number of rows that can wait for the writer
+     */
+    public AsyncReportSink(ReportSink delegate, int queueSize) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.writerThread = new Thread(this::drain, "report-writer-" + new java.io.File(delegate.getFilePath()).getName());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    private void drain() {
+        try {
+            String[] row;
+            while ((row = queue.take()) != END_OF_REPORT) {
+                //After a failure rows are still taken, so that producers blocked on a full queue are released
+                if (writerFailure == null) {
+                    try {
+                        delegate.writeRow(row);
+                    } catch (Exception e) {
+                        writerFailure = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            writerFailure = e;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void writeRow(String... values) throws IOException {
+        checkWriter();
+        try {
+            queue.put(values);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing report row", e);
+        }
+        rowsWritten++;
+    }
+
+    private void checkWriter() throws IOException {
+        if (writerFailure != null) {
+            throw new IOException("Report writer failed for [" + delegate.getFilePath() + "]", writerFailure);
+        }
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public String getFilePath() {
+        return delegate.getFilePath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(END_OF_REPORT);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for report writer", e);
+        } finally {
+            delegate.close();
+        }
+        checkWriter();
+    }
+}
@@ -0,0 +1,224 @@
+package org.databricks;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compact binary report stored column by column. Rows are buffered into row groups; when a group is full every
+ * column is written as a dictionary of its distinct values followed by one code per row, so a value repeated across
+ * the group (type, status, domain ...) is stored once.
+ * <pre>
+ * file      = magic "DCVCOL01", int columnCount, columnCount x string (column names), rowGroup*, int 0
+ * rowGroup  = int rowCount, columnCount x column
+ * column    = varint dictionarySize, dictionarySize x string, rowCount x varint code
+ * code      = 0 for null, otherwise dictionary position + 1
+ * string    = varint byteLength, UTF-8 bytes
+ * </pre>
+ */
+public class ColumnarReportSink implements ReportSink {
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 65536;
+    private static final byte[] MAGIC = "DCVCOL01".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Receives the rows of a columnar report in file order.
+     */
+    public interface RowHandler {
+        void onRow(String[] values) throws IOException;
+    }
+
+    private final String filePath;
+    private final String[] header;
+    private final int rowGroupSize;
+    private final ColumnBuffer[] columns;
+    private int rowsInGroup;
+    private DataOutputStream out;
+    private long rowsWritten;
+
+    /**
+     * @param filePath     - Path of the report file, parent folders are created when missing
+     * @param header       - Column names
+     * @param rowGroupSize - Number of rows buffered and dictionary encoded together
+     */
+    public ColumnarReportSink(String filePath, String[] header, int rowGroupSize) {
+        this.filePath = filePath;
+        this.header = header;
+        this.rowGroupSize = Math.max(1, rowGroupSize);
+        this.columns = new ColumnBuffer[header.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new ColumnBuffer(this.rowGroupSize);
+        }
+    }
+
+    @Override
+    public void writeRow(String... values) throws IOException {
+        if (out == null) {
+            File parent = new File(filePath).getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Report folder [" + parent + "] could not be created");
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath), 1 << 16));
+            out.write(MAGIC);
+            out.writeInt(header.length);
+            for (String name : header) {
+                writeString(out, name);
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].add(i < values.length ? values[i] : null, rowsInGroup);
+        }
+        rowsInGroup++;
+        rowsWritten++;
+        if (rowsInGroup == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (rowsInGroup == 0) {
+            return;
+        }
+        out.writeInt(rowsInGroup);
+        for (ColumnBuffer column : columns) {
+            writeVarInt(out, column.dictionary.size());
+            for (String value : column.dictionary) {
+                writeString(out, value);
+            }
+            for (int row = 0; row < rowsInGroup; row++) {
+                writeVarInt(out, column.codes[row]);
+            }
+            column.reset();
+        }
+        rowsInGroup = 0;
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public String getFilePath() {
+        return filePath;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            return;
+        }
+        try {
+            flushRowGroup();
+            out.writeInt(0);
+        } finally {
+            out.close();
+            out = null;
+        }
+    }
+
+    /**
+     * This method will read a columnar report back row by row.
+     *
+     * @param file    - Report file
+     * @param handler - Receives every row, the first call carries the column names
+     */
+    public static void read(File file, RowHandler handler) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!java.util.Arrays.equals(magic, MAGIC)) {
+                throw new IOException("File [" + file + "] is not a columnar report");
+            }
+            int columnCount = in.readInt();
+            String[] header = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                header[i] = readString(in);
+            }
+            handler.onRow(header);
+            int rowCount;
+            while ((rowCount = in.readInt()) > 0) {
+                String[][] group = new String[rowCount][columnCount];
+                for (int column = 0; column < columnCount; column++) {
+                    String[] dictionary = new String[readVarInt(in)];
+                    for (int i = 0; i < dictionary.length; i++) {
+                        dictionary[i] = readString(in);
+                    }
+                    for (int row = 0; row < rowCount; row++) {
+                        int code = readVarInt(in);
+                        group[row][column] = code == 0 ? null : dictionary[code - 1];
+                    }
+                }
+                for (String[] row : group) {
+                    handler.onRow(row);
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in columnar report");
+    }
+
+    /**
+     * Dictionary and codes of one column for the current row group.
+     */
+    private static class ColumnBuffer {
+        private final HashMap<String, Integer> positions = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private final int[] codes;
+
+        ColumnBuffer(int rowGroupSize) {
+            codes = new int[rowGroupSize];
+        }
+
+        void add(String value, int row) {
+            if (value == null) {
+                codes[row] = 0;
+                return;
+            }
+            Integer position = positions.get(value);
+            if (position == null) {
+                position = dictionary.size();
+                positions.put(value, position);
+                dictionary.add(value);
+            }
+            codes[row] = position + 1;
+        }
+
+        void reset() {
+            positions.clear();
+            dictionary.clear();
+        }
+    }
+}
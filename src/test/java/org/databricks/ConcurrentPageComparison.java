@@ -0,0 +1,255 @@
+package org.databricks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Comparison engine that fetches and compares every API page as one task, so pages are compared in whatever order
+ * they arrive instead of in offset order on one thread. The tasks run on an executor of ExecutorStrategy, platform
+ * threads or one virtual thread per page with executor_mode=virtual, and no more than api_max_pages_in_flight pages
+ * are fetched or compared at once. Pass and fail counts and passed rows are collected in a ValidationResultAggregator.
+ * Failures are written to the failure report as each page is compared, the failures of a page together and in page
+ * order, the pages in the order they finish. The success report is written once every page is compared, in row store
+ * order.
+ * <p>
+ * The row store is read from Databricks before the crawl, as for the in_memory engine. Offset pagination is needed to
+ * hand out the pages up front; cursor pagination, sampling and incremental validation are left to the in_memory
+ * engine, and so are tables whose API reports no total. Checkpoints are not used.
+ */
+public class ConcurrentPageComparison {
+
+    /**
+     * This method will validate the table by comparing its API pages concurrently against the row store, and write
+     * the failure and success reports.
+     *
+     * @param resources                      - Resources shared by the tables of the run
+     * @param tableProp                      - Table properties
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @param dataFromDatabricks             - Databricks rows of the table
+     * @param validationTableName            - Table properties file name, used for the report folder
+     * @return true when every record matched
+     */
+    public static boolean performComparison(ValidationResources resources, Properties tableProp,
+                                            int expectedTotalRecordsToValidate, DatabricksRowStore dataFromDatabricks,
+                                            String validationTableName) {
+        String unsupported = getUnsupportedSetting(tableProp);
+        if (unsupported != null) {
+            System.out.println("The concurrent engine does not support " + unsupported + ", the table is validated with the in_memory engine");
+            return ReusableCommonMethods.performComparisonBetweenDBAndAPIUsingJackson(resources, tableProp,
+                    expectedTotalRecordsToValidate, dataFromDatabricks, validationTableName, null);
+        }
+        Properties globalProp = resources.getGlobalProp();
+        ExecutorService pageExecutor = null;
+        ReportSink failureReport = null;
+        AdaptiveCrawlController controller = new AdaptiveCrawlController(globalProp);
+        try {
+            String primaryKeyInJSONResponse = tableProp.getProperty("primary_key_in_json_response");
+            FieldMapping fieldMapping;
+            try {
+                fieldMapping = FieldMapping.load(ReusableCommonMethods.getMappingFilePath(tableProp));
+            } catch (IOException e) {
+                System.out.println("No Property file is available in the name of " +
+                        "[" + tableProp.getProperty("asset_table_db_json_mapping_file_name") + "] under folder DB_JSON_MAPPING");
+                return false;
+            }
+            ValidationMetrics.TableMetrics tableMetrics = resources.getMetrics().forTable(validationTableName);
+            controller.setMetrics(tableMetrics);
+            AssetPageDecoder decoder = new AssetPageDecoder(JsonFieldPath.compile(primaryKeyInJSONResponse),
+                    fieldMapping, tableMetrics);
+            int[] dbColumns = fieldMapping.resolveColumns(dataFromDatabricks);
+            String endPoint = tableProp.getProperty("asset_table_end_point");
+            //Pages of one size are handed out up front, the controller only retries them
+            int pageSize = controller.getPageSize();
+
+            //The first page gives the number of records of the endpoint
+            AssetPageDecoder.AssetPage firstPage = fetchPage(resources, controller, endPoint, decoder, 0, pageSize);
+            if (firstPage.getTotal() < 0) {
+                System.out.println("API response of " + endPoint + " has no total, the table is validated with the in_memory engine");
+                return ReusableCommonMethods.performComparisonBetweenDBAndAPIUsingJackson(resources, tableProp,
+                        expectedTotalRecordsToValidate, dataFromDatabricks, validationTableName, null);
+            }
+            long recordsInScope = expectedTotalRecordsToValidate < 0 ? firstPage.getTotal()
+                    : Math.min(expectedTotalRecordsToValidate, firstPage.getTotal());
+            int pageCount = (int) ((recordsInScope + pageSize - 1) / pageSize);
+
+            failureReport = ReusableCommonMethods.openReport(globalProp, validationTableName, "FailureReport",
+                    ReusableCommonMethods.FAILURE_REPORT_HEADER);
+            ValidationResultAggregator results = new ValidationResultAggregator(dataFromDatabricks.size(), failureReport);
+            int maxPagesInFlight = Math.max(1, ReusableCommonMethods.getIntProperty(globalProp, "api_max_pages_in_flight", 8));
+            pageExecutor = ExecutorStrategy.newExecutor(globalProp, "page-compare",
+                    ReusableCommonMethods.getIntProperty(globalProp, "api_fetch_threads", 4));
+            System.out.println("Comparing " + recordsInScope + " records in " + pageCount + " pages of " + pageSize
+                    + ", up to " + maxPagesInFlight + " pages in flight on "
+                    + (ExecutorStrategy.isVirtual(globalProp) ? "virtual" : "platform") + " threads");
+            Semaphore pagesInFlight = new Semaphore(maxPagesInFlight);
+            List<Future<?>> pageTasks = new ArrayList<>();
+            //No new page is handed out once a page failed, the failure is thrown below
+            AtomicBoolean pageFailed = new AtomicBoolean();
+            for (int page = 0; page < pageCount && !pageFailed.get(); page++) {
+                final int offset = page * pageSize;
+                final int limit = (int) Math.min(pageSize, recordsInScope - offset);
+                final AssetPageDecoder.AssetPage fetchedPage = page == 0 ? firstPage : null;
+                pagesInFlight.acquire();
+                try {
+                    pageTasks.add(pageExecutor.submit(() -> {
+                        try {
+                            List<String[]> records = (fetchedPage != null ? fetchedPage
+                                    : fetchPage(resources, controller, endPoint, decoder, offset, limit)).getRecords();
+                            comparePage(records.subList(0, Math.min(limit, records.size())), dataFromDatabricks,
+                                    fieldMapping, dbColumns, results, tableMetrics);
+                            resources.getMetrics().sampleHeap();
+                            System.out.println("Total Records Validate : [" + results.getValidatedCount() + "], Pass ["
+                                    + results.getPassCount() + "], Fail [" + results.getFailCount() + "]");
+                            return null;
+                        } catch (Exception e) {
+                            pageFailed.set(true);
+                            throw e;
+                        } finally {
+                            pagesInFlight.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    pagesInFlight.release();
+                    throw e;
+                }
+            }
+            for (Future<?> pageTask : pageTasks) {
+                try {
+                    pageTask.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+
+            //Rows no API record was found for, only known when every record of the endpoint was compared
+            long totalMissingInAPI = 0;
+            if (expectedTotalRecordsToValidate < 0) {
+                for (int dbRow = results.nextUnvisitedRow(0); dbRow >= 0; dbRow = results.nextUnvisitedRow(dbRow + 1)) {
+                    String primaryValue = dataFromDatabricks.getValue(dbRow, dataFromDatabricks.getPrimaryKeyColumn());
+                    results.recordFailure(primaryValue, "Primary Value  [" + primaryValue + "] is not present in API response");
+                    totalMissingInAPI++;
+                }
+                tableMetrics.add(ValidationMetrics.RECORDS_MISSING_IN_API, totalMissingInAPI);
+            }
+            long validated = results.getValidatedCount() - totalMissingInAPI;
+            System.out.println("Total Records Validate : [" + validated + "], Pass [" + results.getPassCount() + "], Fail ["
+                    + (results.getFailCount() - totalMissingInAPI) + "]"
+                    + (expectedTotalRecordsToValidate < 0 ? ", Missing in API [" + totalMissingInAPI + "]" : ""));
+
+            long reportStart = System.nanoTime();
+            ReusableCommonMethods.closeReport(failureReport, "Failure");
+            failureReport = null;
+            writeSuccessReport(globalProp, validationTableName, fieldMapping, dataFromDatabricks, dbColumns, results);
+            tableMetrics.record(ValidationMetrics.REPORT_WRITE, System.nanoTime() - reportStart);
+            return results.getFailCount() == 0;
+
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while validating value between DB and JSON : " + e);
+            return false;
+        } finally {
+            if (pageExecutor != null) {
+                pageExecutor.shutdownNow();
+            }
+            if (failureReport != null) {
+                ReusableCommonMethods.closeReport(failureReport, "Failure");
+            }
+            System.out.println(controller);
+            ReusableCommonMethods.writeCrawlMetrics(globalProp, validationTableName, controller);
+        }
+    }
+
+    //Setting of the table the engine cannot honour, null when there is none
+    private static String getUnsupportedSetting(Properties tableProp) {
+        if (!"offset".equalsIgnoreCase(tableProp.getProperty("pagination_mode", "offset").trim())) {
+            return "pagination_mode " + tableProp.getProperty("pagination_mode").trim();
+        }
+        if (SampledPageCrawl.isEnabled(tableProp)) {
+            return "sampling_mode " + SampledPageCrawl.getSamplingMode(tableProp);
+        }
+        if (ReusableCommonMethods.isIncrementalValidation(tableProp)) {
+            return "validation_mode incremental";
+        }
+        return null;
+    }
+
+    private static AssetPageDecoder.AssetPage fetchPage(ValidationResources resources, AdaptiveCrawlController controller,
+                                                        String endPoint, AssetPageDecoder decoder, int offset,
+                                                        int limit) throws Exception {
+        return controller.execute(() -> resources.getApiClient().fetchPage(endPoint, offset, limit,
+                resources.getTokenManager(), decoder), page -> page.getRecords().size(),
+                endPoint + " offset " + offset + " limit " + limit);
+    }
+
+    /**
+     * This method will compare the records of one page with the row store. Safe to call for several pages at once.
+     *
+     * @param records            - Decoded records, primary key first and the mapped fields after it
+     * @param dataFromDatabricks - Databricks rows of the table
+     * @param fieldMapping       - Mapping of the API fields to the DB columns
+     * @param dbColumns          - Column ordinal of every mapped field, resolved with fieldMapping.resolveColumns
+     * @param results            - Aggregator the outcome of every record is recorded in
+     * @param tableMetrics       - Metrics of the table
+     */
+    public static void comparePage(List<String[]> records, DatabricksRowStore dataFromDatabricks,
+                                   FieldMapping fieldMapping, int[] dbColumns, ValidationResultAggregator results,
+                                   ValidationMetrics.TableMetrics tableMetrics) throws IOException {
+        long compareStart = System.nanoTime();
+        List<String[]> failures = new ArrayList<>();
+        for (String[] result : records) {
+            String primaryValue = result[0];
+            int dbRow = dataFromDatabricks.indexOf(primaryValue);
+            StringBuilder validationResultMessage = null;
+            if (dbRow >= 0) {
+                results.markVisited(dbRow);
+                for (int entry = 0; entry < dbColumns.length; entry++) {
+                    String valueFromJSON = result[entry + 1];
+                    String valueFromDB = dbColumns[entry] < 0 ? null : dataFromDatabricks.getValue(dbRow, dbColumns[entry]);
+                    if (!fieldMapping.getComparator(entry).matches(valueFromDB, valueFromJSON)) {
+                        if (validationResultMessage == null) {
+                            validationResultMessage = new StringBuilder();
+                        }
+                        validationResultMessage.append("Value not matching for [").append(fieldMapping.getJsonKey(entry)).append("], ").append("Expected value from JSON [").append(valueFromJSON).append("],Actual value from DB [").append(valueFromDB).append("]").append("\n");
+                    }
+                }
+            } else {
+                validationResultMessage = new StringBuilder("Primary Value  [").append(primaryValue).append("] is not present in Databricks Database");
+            }
+            if (validationResultMessage == null) {
+                results.recordPass(dbRow);
+            } else {
+                failures.add(new String[]{primaryValue, validationResultMessage.toString()});
+            }
+        }
+        results.recordFailures(failures);
+        tableMetrics.record(ValidationMetrics.COMPARE, System.nanoTime() - compareStart);
+        tableMetrics.add(ValidationMetrics.RECORDS_VALIDATED, records.size());
+        tableMetrics.add(ValidationMetrics.RECORDS_FAILED, failures.size());
+    }
+
+    private static void writeSuccessReport(Properties globalProp, String validationTableName, FieldMapping fieldMapping,
+                                           DatabricksRowStore dataFromDatabricks, int[] dbColumns,
+                                           ValidationResultAggregator results) {
+        String[] successReportHeader = new String[fieldMapping.size()];
+        for (int entry = 0; entry < fieldMapping.size(); entry++) {
+            successReportHeader[entry] = fieldMapping.getDbColumn(entry);
+        }
+        ReportSink successReport = ReusableCommonMethods.openReport(globalProp, validationTableName, "SuccessReport",
+                successReportHeader);
+        try {
+            for (int dbRow : results.getSuccessRows()) {
+                successReport.writeRow(ReusableCommonMethods.getReportRow(dataFromDatabricks, dbRow, dbColumns));
+            }
+        } catch (IOException e) {
+            System.out.println("Exception Occurred while generating success report : " + e);
+        } finally {
+            ReusableCommonMethods.closeReport(successReport, "Success");
+        }
+    }
+}
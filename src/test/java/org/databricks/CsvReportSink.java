@@ -0,0 +1,131 @@
+package org.databricks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSV report written through a FileChannel. Rows are formatted into a reusable StringBuilder, encoded as UTF-8 into
+ * a direct buffer and written to the channel whenever the buffer is full. Values are quoted as in RFC 4180 when they
+ * contain a comma, a quote or a line break.
+ */
+public class CsvReportSink implements ReportSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String filePath;
+    private final String[] header;
+    private final StringBuilder line = new StringBuilder(256);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+    private long rowsWritten;
+
+    /**
+     * @param filePath - Path of the csv file, parent folders are created when missing
+     * @param header   - Header line
+     */
+    public CsvReportSink(String filePath, String[] header) {
+        this.filePath = filePath;
+        this.header = header;
+    }
+
+    @Override
+    public void writeRow(String... values) throws IOException {
+        if (channel == null) {
+            File parent = new File(filePath).getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Report folder [" + parent + "] could not be created");
+            }
+            channel = FileChannel.open(new File(filePath).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            writeLine(header);
+        }
+        writeLine(values);
+        rowsWritten++;
+    }
+
+    private void writeLine(String[] values) throws IOException {
+        line.setLength(0);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendValue(values[i]);
+        }
+        line.append("\r\n");
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                flushBuffer();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        encoder.reset();
+    }
+
+    private void appendValue(String value) {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public String getFilePath() {
+        return filePath;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            flushBuffer();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+}
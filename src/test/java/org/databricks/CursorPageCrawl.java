@@ -0,0 +1,131 @@
+package org.databricks;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Walks the pages of an API endpoint with cursor paging: the first page is requested with an empty cursor and every
+ * further page with the nextCursor of the page before it. The server resumes from the cursor instead of skipping
+ * offset records, so late pages are as fast as early ones and records inserted or deleted during the crawl do not
+ * shift the pages.
+ * <p>
+ * A page can only be requested once the page before it has arrived, so one page is fetched ahead: while the caller
+ * compares a page the next one is already on its way. The page size follows the AdaptiveCrawlController, which also
+ * retries failed pages. The resume position is the number of records returned followed by the cursor of the next
+ * page, as in 25000:b2Zmc2V0OjI1MDAw, the cursor left empty once the last page was returned.
+ */
+public class CursorPageCrawl implements PaginationStrategy {
+
+    private final ValidationResources resources;
+    private final String endPoint;
+    private final int expectedTotalRecordsToValidate;
+    private final AssetPageDecoder decoder;
+    private final AdaptiveCrawlController controller;
+    private final String resumeCursor;
+    private int recordsReturned;
+    private String returnedNextCursor;
+    private Future<AssetPageDecoder.AssetPage> nextPage;
+    private boolean started;
+    private int recordsRequested;
+
+    /**
+     * @param resources                      - Shared resources with the global properties, token, HTTP client and
+     *                                         page fetch threads
+     * @param endPoint                       - API endpoint to crawl
+     * @param expectedTotalRecordsToValidate - Number of records to crawl, negative to crawl every record
+     * @param decoder                        - Decoder reading the mapped fields and the next cursor of every page
+     */
+    public CursorPageCrawl(ValidationResources resources, String endPoint, int expectedTotalRecordsToValidate,
+                           AssetPageDecoder decoder) {
+        this(resources, endPoint, expectedTotalRecordsToValidate, decoder, null);
+    }
+
+    /**
+     * @param resources                      - Shared resources with the global properties, token, HTTP client and
+     *                                         page fetch threads
+     * @param endPoint                       - API endpoint to crawl
+     * @param expectedTotalRecordsToValidate - Number of records to crawl, negative to crawl every record
+     * @param decoder                        - Decoder reading the mapped fields and the next cursor of every page
+     * @param resumePosition                 - getResumePosition of an earlier crawl, null or empty to start from the
+     *                                         first page
+     */
+    public CursorPageCrawl(ValidationResources resources, String endPoint, int expectedTotalRecordsToValidate,
+                           AssetPageDecoder decoder, String resumePosition) {
+        this.resources = resources;
+        this.endPoint = endPoint;
+        this.expectedTotalRecordsToValidate = expectedTotalRecordsToValidate;
+        this.decoder = decoder;
+        this.controller = new AdaptiveCrawlController(resources.getGlobalProp());
+        if (resumePosition == null || resumePosition.trim().isEmpty()) {
+            this.resumeCursor = "";
+        } else {
+            int separator = resumePosition.indexOf(':');
+            this.recordsReturned = Integer.parseInt(resumePosition.substring(0, separator).trim());
+            //An empty cursor after the record count means the crawl had already returned its last page
+            this.resumeCursor = resumePosition.substring(separator + 1).trim();
+            this.started = resumeCursor.isEmpty();
+        }
+        this.recordsRequested = recordsReturned;
+        this.returnedNextCursor = resumeCursor;
+    }
+
+    @Override
+    public AssetPageDecoder.AssetPage nextPage() throws Exception {
+        if (!started) {
+            started = true;
+            nextPage = submit(resumeCursor);
+        }
+        if (nextPage == null) {
+            return null;
+        }
+        AssetPageDecoder.AssetPage page = nextPage.get();
+        List<String[]> records = page.getRecords();
+        String nextCursor = page.getNextCursor();
+        //The next page is requested before this one is handed over, so the fetch overlaps the comparison
+        boolean lastPage = records.isEmpty() || nextCursor == null || nextCursor.isEmpty();
+        nextPage = lastPage ? null : submit(nextCursor);
+        recordsReturned += records.size();
+        returnedNextCursor = lastPage ? "" : nextCursor;
+        return page;
+    }
+
+    @Override
+    public boolean isFullCrawl() {
+        return expectedTotalRecordsToValidate < 0;
+    }
+
+    @Override
+    public String getResumePosition() {
+        return recordsReturned + ":" + returnedNextCursor;
+    }
+
+    @Override
+    public AdaptiveCrawlController getController() {
+        return controller;
+    }
+
+    private Future<AssetPageDecoder.AssetPage> submit(String cursor) {
+        int limit = controller.getPageSize();
+        if (expectedTotalRecordsToValidate >= 0) {
+            limit = Math.min(limit, expectedTotalRecordsToValidate - recordsRequested);
+            if (limit <= 0) {
+                return null;
+            }
+        }
+        recordsRequested += limit;
+        final int pageLimit = limit;
+        return resources.getPageFetchExecutor().submit(() -> controller.execute(
+                () -> resources.getApiClient().fetchPageByCursor(endPoint, cursor, pageLimit,
+                        resources.getTokenManager(), decoder),
+                page -> page.getRecords().size(), endPoint + " cursor [" + cursor + "] limit " + pageLimit));
+    }
+
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+        System.out.println(controller);
+    }
+}
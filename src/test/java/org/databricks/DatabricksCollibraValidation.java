@@ -1,7 +1,5 @@
 package org.databricks;
 
-import java.sql.ResultSet;
-import java.util.HashMap;
 import java.util.Properties;
 
 public class DatabricksCollibraValidation {
@@ -17,38 +15,153 @@ public class DatabricksCollibraValidation {
         if (globalProp == null) {
             System.exit(0);
         }
-        Properties tableProp = ReusableCommonMethods.readTableProperty(validationTableName);
-        //If the table properties are not read, fail
-        if (tableProp == null) {
+
+        //Get the access token, renewed ahead of its expiry for the whole run
+        TokenManager tokenManager = null;
+        try {
+            tokenManager = new TokenManager(globalProp);
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while fetching the access token : " + e);
             System.exit(0);
         }
-        //Read the SQL file using value from table properties file
-        String sqlQuery = ReusableCommonMethods.readSQLQuery(tableProp.getProperty("sql_query"));
 
-        //Establish DB connection and perform the SQL Query
-        ResultSet resultSet = ReusableCommonMethods.getDBConnection(globalProp, sqlQuery);
-
-        if (resultSet == null) {
-            System.out.println("DB Connection is not successful");
+        TableValidationResult result;
+        try (ValidationResources resources = new ValidationResources(globalProp, tokenManager)) {
+            result = validateTable(resources, validationTableName, totalRecordsWishToValidate);
+        }
+        System.out.println(result);
+        if (!result.isPassed()) {
+            System.out.println("Overall validation failed, please check logs for more details");
             System.exit(0);
         }
 
-        //Get the entire DB data in a HashMap
-        HashMap<String, HashMap<String, String>> dataFromDatabricks =
-                ReusableCommonMethods.getDataFromDB(resultSet, tableProp.getProperty("primary_key"));
 
-        //Get the access token
-        String accessToken = ReusableCommonMethods.getRenewedAccessToken(globalProp);
+    }
 
-        //Perform the comparison
-        boolean overallValidation =
-                ReusableCommonMethods.performComparisonBetweenDBAndAPIUsingJackson
-                        (globalProp, tableProp, accessToken, totalRecordsWishToValidate, dataFromDatabricks, validationTableName);
-        if (!overallValidation) {
-            System.out.println("Overall validation failed, please check logs for more details");
-            System.exit(0);
+    /**
+     * This method will validate one table with the engine configured in its properties file and record how long the
+     * Databricks extract and the comparison took.
+     *
+     * @param resources                  - Resources shared by the tables of the run
+     * @param validationTableName        - Table properties file name under resources/config
+     * @param totalRecordsWishToValidate - Number of API records to validate, negative to validate every record
+     * @return TableValidationResult
+     */
+    public static TableValidationResult validateTable(ValidationResources resources, String validationTableName,
+                                                      int totalRecordsWishToValidate) {
+        Properties tableProp = ReusableCommonMethods.readTableProperty(validationTableName);
+        //If the table properties are not read, fail
+        if (tableProp == null) {
+            TableValidationResult result = new TableValidationResult(validationTableName);
+            result.setErrorMessage("Table properties could not be read");
+            return result;
+        }
+        //Read the SQL file using value from table properties file, or generate it from the mapping file
+        String sqlQuery = TableQuery.forTable(tableProp);
+        if (sqlQuery == null) {
+            TableValidationResult result = new TableValidationResult(validationTableName);
+            result.setErrorMessage("SQL query could not be read");
+            return result;
         }
+        return validateTable(resources, validationTableName, tableProp, sqlQuery, totalRecordsWishToValidate);
+    }
 
+    /**
+     * This method will validate one table with the engine of the given table properties and SQL query.
+     *
+     * @param resources                  - Resources shared by the tables of the run
+     * @param validationTableName        - Table properties file name, used for the report folder
+     * @param tableProp                  - Table properties
+     * @param sqlQuery                   - Table SQL query
+     * @param totalRecordsWishToValidate - Number of API records to validate, negative to validate every record
+     * @return TableValidationResult
+     */
+    public static TableValidationResult validateTable(ValidationResources resources, String validationTableName,
+                                                      Properties tableProp, String sqlQuery,
+                                                      int totalRecordsWishToValidate) {
+        TableValidationResult result = new TableValidationResult(validationTableName);
+        ValidationMetrics.TableMetrics tableMetrics = resources.getMetrics().forTable(validationTableName);
+        long start = System.currentTimeMillis();
+        try {
+            if ("sort_merge".equalsIgnoreCase(tableProp.getProperty("comparison_engine", "in_memory").trim())) {
+                //Both sides are streamed in primary key order, so neither has to fit in memory
+                result.setPassed(SortMergeComparison.performComparison
+                        (resources, tableProp, totalRecordsWishToValidate, sqlQuery, validationTableName));
+                result.setComparisonMillis(System.currentTimeMillis() - start);
+            } else if ("concurrent".equalsIgnoreCase(tableProp.getProperty("comparison_engine", "in_memory").trim())) {
+                //Every page is fetched and compared as its own task, on platform or virtual threads
+                long extractStart = System.nanoTime();
+                DatabricksRowStore dataFromDatabricks = ShardedExtraction.extract(resources, tableProp, sqlQuery);
+                tableMetrics.record(ValidationMetrics.DB_EXTRACT, System.nanoTime() - extractStart);
+                if (dataFromDatabricks == null) {
+                    result.setErrorMessage("Data could not be read from Databricks");
+                    return result;
+                }
+                tableMetrics.add(ValidationMetrics.RECORDS_READ_DB, dataFromDatabricks.size());
+                resources.getMetrics().sampleHeap();
+                result.setDbExtractMillis(System.currentTimeMillis() - start);
+                long comparisonStart = System.currentTimeMillis();
+                result.setPassed(ConcurrentPageComparison.performComparison
+                        (resources, tableProp, totalRecordsWishToValidate, dataFromDatabricks, validationTableName));
+                result.setComparisonMillis(System.currentTimeMillis() - comparisonStart);
+            } else if ((OverlappedExtraction.isConcurrent(tableProp)
+                    || OverlappedExtraction.isKeyLookup(tableProp, totalRecordsWishToValidate))
+                    && !ValidationCheckpoint.isEnabled(resources.getGlobalProp())) {
+                //The Databricks reads run while the API is crawled, records are compared as their rows arrive. A
+                //sampled run only reads the rows of the sampled keys
+                try (OverlappedExtraction extraction = OverlappedExtraction.isKeyLookup(tableProp, totalRecordsWishToValidate)
+                        ? OverlappedExtraction.startKeyLookup(resources, tableProp, sqlQuery, tableMetrics)
+                        : OverlappedExtraction.start(resources, tableProp, sqlQuery, tableMetrics)) {
+                    result.setPassed(ReusableCommonMethods.performComparisonBetweenDBAndAPIUsingJackson
+                            (resources, tableProp, totalRecordsWishToValidate, extraction, validationTableName));
+                    result.setDbExtractMillis(extraction.getExtractMillis());
+                    if (extraction.getFailure() != null) {
+                        result.setErrorMessage("Data could not be read from Databricks");
+                    }
+                }
+                result.setComparisonMillis(System.currentTimeMillis() - start);
+            } else {
+                if (OverlappedExtraction.isConcurrent(tableProp)) {
+                    System.out.println("Checkpoints do not support orchestration_mode concurrent, the table is read before the API crawl");
+                } else if (OverlappedExtraction.isKeyLookup(tableProp, totalRecordsWishToValidate)) {
+                    System.out.println("Checkpoints do not support sampled_db_read key_lookup, the whole table is read before the API crawl");
+                }
+                //A run resumed from a checkpoint reads the row store snapshot instead of querying Databricks again
+                ValidationCheckpoint checkpoint = ValidationCheckpoint.open(resources.getGlobalProp(), tableProp,
+                        validationTableName, totalRecordsWishToValidate, sqlQuery);
+                DatabricksRowStore dataFromDatabricks = checkpoint == null ? null : checkpoint.loadRowStore();
+                if (dataFromDatabricks == null) {
+                    //Perform the SQL Query on pooled connections, in db_shard_count shards read concurrently
+                    long extractStart = System.nanoTime();
+                    dataFromDatabricks = ShardedExtraction.extract(resources, tableProp, sqlQuery);
+                    tableMetrics.record(ValidationMetrics.DB_EXTRACT, System.nanoTime() - extractStart);
+                    if (dataFromDatabricks == null) {
+                        result.setErrorMessage("Data could not be read from Databricks");
+                        return result;
+                    }
+                    tableMetrics.add(ValidationMetrics.RECORDS_READ_DB, dataFromDatabricks.size());
+                    resources.getMetrics().sampleHeap();
+                    if (checkpoint != null) {
+                        checkpoint.saveRowStore(dataFromDatabricks);
+                    }
+                }
+                result.setDbExtractMillis(System.currentTimeMillis() - start);
 
+                //Perform the comparison
+                long comparisonStart = System.currentTimeMillis();
+                result.setPassed(ReusableCommonMethods.performComparisonBetweenDBAndAPIUsingJackson
+                        (resources, tableProp, totalRecordsWishToValidate, dataFromDatabricks, validationTableName,
+                                checkpoint));
+                result.setComparisonMillis(System.currentTimeMillis() - comparisonStart);
+            }
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while validating table [" + validationTableName + "] : " + e);
+            result.setErrorMessage(e.toString());
+        } finally {
+            result.setTotalMillis(System.currentTimeMillis() - start);
+            tableMetrics.finish();
+            System.out.println(tableMetrics);
+        }
+        return result;
     }
 }
@@ -0,0 +1,416 @@
+package org.databricks;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compact row store for the Databricks side of the validation. Column names are resolved once from the
+ * ResultSetMetaData, each row is kept as a fixed-position run of values inside a larger chunk (value of column c of
+ * row r lives at position (r % CHUNK_ROWS) * columnCount + c) and the primary key is held and looked up by a
+ * PrimaryKeyIndex instead of HashMap nodes. UUID and numeric keys are packed into longs, see primary_key_type.
+ * <p>
+ * Rows can be added from several threads at once, appendRows adds a whole batch under one lock. Lookups are not
+ * synchronised and must only start once every loading thread is done, or be made by the thread that adds the rows,
+ * see OverlappedExtraction.
+ * <p>
+ * The comparison marks every row an API record matched in a visited bitset, one bit per row. Once the crawl is done a
+ * sweep over the bitset finds the rows the API never returned.
+ */
+public class DatabricksRowStore {
+
+    private static final int CHUNK_ROWS = 4096;
+
+    private final String[] columnNames;
+    private final HashMap<String, Integer> columnIndex = new HashMap<>();
+    private final int primaryKeyColumn;
+    private final int columnCount;
+
+    private final String primaryKeyType;
+    private final boolean primaryKeyOffHeap;
+    //Typed getters of the ResultSet the store is filled from, see fromMetaData
+    private TypedColumnReader columnReader;
+
+    private String[][] chunks = new String[16][];
+    private int rowCount;
+
+    //Holds the key of every row, the primary key position of the chunks is left empty
+    private PrimaryKeyIndex primaryKeyIndex;
+    //Bit r is set once row r was matched by an API record, allocated by the first markVisited and grown with the rows
+    private long[] visited;
+
+    /**
+     * @param columnNames          - Upper-cased column names in ResultSet order
+     * @param primaryKeyColumnName - Name of the primary key column
+     */
+    public DatabricksRowStore(String[] columnNames, String primaryKeyColumnName) {
+        this(columnNames, primaryKeyColumnName, PrimaryKeyIndex.AUTO, false);
+    }
+
+    /**
+     * @param columnNames          - Upper-cased column names in ResultSet order
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @param primaryKeyType       - string, uuid, long or auto to take the type of the first key
+     * @param primaryKeyOffHeap    - true to keep packed uuid and long keys in direct memory
+     */
+    public DatabricksRowStore(String[] columnNames, String primaryKeyColumnName, String primaryKeyType,
+                              boolean primaryKeyOffHeap) {
+        this.primaryKeyType = primaryKeyType;
+        this.primaryKeyOffHeap = primaryKeyOffHeap;
+        this.columnNames = columnNames;
+        this.columnCount = columnNames.length;
+        for (int i = 0; i < columnNames.length; i++) {
+            columnIndex.put(columnNames[i], i);
+        }
+        Integer pkIndex = columnIndex.get(primaryKeyColumnName.toUpperCase());
+        if (pkIndex == null) {
+            throw new IllegalArgumentException("Primary key column [" + primaryKeyColumnName
+                    + "] is not present in the Databricks result, available columns " + Arrays.toString(columnNames));
+        }
+        this.primaryKeyColumn = pkIndex;
+        this.columnReader = TypedColumnReader.untyped(columnCount);
+    }
+
+    /**
+     * This method will create an empty store with the column layout of the given ResultSet. A table prefix in the
+     * column name (table.column) is dropped.
+     *
+     * @param md                   - Metadata of the ResultSet the store is filled from
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @return DatabricksRowStore
+     */
+    public static DatabricksRowStore fromMetaData(ResultSetMetaData md, String primaryKeyColumnName) throws SQLException {
+        return fromMetaData(md, primaryKeyColumnName, PrimaryKeyIndex.AUTO, false);
+    }
+
+    /**
+     * This method will create an empty store with the column layout of the given ResultSet and the given primary key
+     * index. An auto key type of an integer key column is resolved to long.
+     *
+     * @param md                   - Metadata of the ResultSet the store is filled from
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @param primaryKeyType       - string, uuid, long or auto
+     * @param primaryKeyOffHeap    - true to keep packed uuid and long keys in direct memory
+     * @return DatabricksRowStore
+     */
+    public static DatabricksRowStore fromMetaData(ResultSetMetaData md, String primaryKeyColumnName,
+                                                  String primaryKeyType, boolean primaryKeyOffHeap)
+            throws SQLException {
+        String[] names = new String[md.getColumnCount()];
+        for (int i = 1; i <= names.length; i++) {
+            String columnName = md.getColumnName(i).toUpperCase();
+            if (columnName.contains(".")) {
+                columnName = columnName.substring(columnName.indexOf(".") + 1);
+            }
+            names[i - 1] = columnName.intern();
+        }
+        int primaryKeyJdbcType = Types.OTHER;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(primaryKeyColumnName.toUpperCase())) {
+                primaryKeyJdbcType = md.getColumnType(i + 1);
+            }
+        }
+        DatabricksRowStore store = new DatabricksRowStore(names, primaryKeyColumnName,
+                PrimaryKeyIndex.resolveKeyType(primaryKeyType, primaryKeyJdbcType), primaryKeyOffHeap);
+        store.columnReader = TypedColumnReader.fromMetaData(md);
+        return store;
+    }
+
+    /**
+     * This method will copy the current row of the ResultSet into the store. SQL NULL values are stored as null.
+     *
+     * @param resultSet - ResultSet positioned on the row to copy
+     * @return false when the row has no primary key value and was skipped
+     */
+    public boolean appendRow(ResultSet resultSet) throws SQLException {
+        return appendRow(readRow(resultSet));
+    }
+
+    /**
+     * This method will read the current row of the ResultSet in the layout of the store, without adding it. Values
+     * are read with the getter of their JDBC type, see TypedColumnReader, and SQL NULL values are read as null.
+     *
+     * @param resultSet - ResultSet positioned on the row to read
+     * @return values in column order
+     */
+    public String[] readRow(ResultSet resultSet) throws SQLException {
+        String[] values = new String[columnCount];
+        columnReader.readRow(resultSet, values);
+        return values;
+    }
+
+    /**
+     * This method will add a batch of rows under one lock, for loaders that read on several threads.
+     *
+     * @param rows - Rows with values in column order
+     * @return number of rows skipped as they have no primary key value
+     */
+    public synchronized int appendRows(List<String[]> rows) {
+        int skippedRows = 0;
+        for (String[] row : rows) {
+            if (!appendRow(row)) {
+                skippedRows++;
+            }
+        }
+        return skippedRows;
+    }
+
+    /**
+     * This method will add a row to the store. A row whose primary key is already present replaces the earlier row.
+     *
+     * @param values - Values in column order
+     * @return false when the row has no primary key value and was skipped
+     */
+    public synchronized boolean appendRow(String[] values) {
+        String primaryKeyValue = values[primaryKeyColumn];
+        if (primaryKeyValue == null) {
+            return false;
+        }
+        if (primaryKeyIndex == null) {
+            primaryKeyIndex = PrimaryKeyIndex.create(PrimaryKeyIndex.AUTO.equals(primaryKeyType)
+                    ? PrimaryKeyIndex.detectKeyType(primaryKeyValue) : primaryKeyType, primaryKeyOffHeap);
+        } else if (!primaryKeyIndex.accepts(primaryKeyValue)) {
+            moveKeysToStringIndex(primaryKeyValue);
+        }
+        int row = primaryKeyIndex.add(primaryKeyValue);
+        if (row == rowCount) {
+            int chunk = row / CHUNK_ROWS;
+            if (chunk == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            }
+            if (chunks[chunk] == null) {
+                chunks[chunk] = new String[CHUNK_ROWS * columnCount];
+            }
+            rowCount++;
+        }
+        String[] chunk = chunkOf(row);
+        int offset = offsetOf(row);
+        System.arraycopy(values, 0, chunk, offset, columnCount);
+        chunk[offset + primaryKeyColumn] = null;
+        return true;
+    }
+
+    //A key the packed index cannot hold, e.g. an upper case UUID, moves every key to a string index
+    private void moveKeysToStringIndex(String primaryKeyValue) {
+        System.out.println("Primary key [" + primaryKeyValue + "] is not a " + primaryKeyIndex.getKeyType()
+                + " key, the primary keys are indexed as strings");
+        PrimaryKeyIndex stringIndex = new StringKeyIndex();
+        for (int row = 0; row < rowCount; row++) {
+            stringIndex.add(primaryKeyIndex.keyAt(row));
+        }
+        primaryKeyIndex = stringIndex;
+    }
+
+    /**
+     * @param primaryKeyValue - Primary key to look up
+     * @return row index of the primary key, or -1 when it is not present
+     */
+    public int indexOf(String primaryKeyValue) {
+        if (primaryKeyValue == null || primaryKeyIndex == null) {
+            return -1;
+        }
+        return primaryKeyIndex.indexOf(primaryKeyValue);
+    }
+
+    public boolean containsKey(String primaryKeyValue) {
+        return indexOf(primaryKeyValue) >= 0;
+    }
+
+    public String getValue(int row, int column) {
+        if (column == primaryKeyColumn) {
+            return primaryKeyIndex.keyAt(row);
+        }
+        return chunkOf(row)[offsetOf(row) + column];
+    }
+
+    /**
+     * @param row        - Row index
+     * @param columnName - Upper-cased column name
+     * @return value of the column, or null when the column is not part of the result
+     */
+    public String getValue(int row, String columnName) {
+        int column = getColumnIndex(columnName);
+        return column < 0 ? null : getValue(row, column);
+    }
+
+    /**
+     * @param columnName - Upper-cased column name
+     * @return ordinal of the column in the store, or -1 when the column is not part of the result
+     */
+    public int getColumnIndex(String columnName) {
+        Integer column = columnIndex.get(columnName);
+        return column == null ? -1 : column;
+    }
+
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    public int getPrimaryKeyColumn() {
+        return primaryKeyColumn;
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    /**
+     * This method will mark a row as matched by an API record. Meant for the single comparison thread, once every
+     * row is loaded.
+     *
+     * @param row - Row index
+     */
+    public void markVisited(int row) {
+        long[] bits = visited;
+        if (bits == null || (row >>> 6) >= bits.length) {
+            int words = (rowCount + 63) >>> 6;
+            bits = visited = bits == null ? new long[words] : Arrays.copyOf(bits, words);
+        }
+        bits[row >>> 6] |= 1L << row;
+    }
+
+    public boolean isVisited(int row) {
+        return visited != null && (row >>> 6) < visited.length && (visited[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * This method will return the first row at or after the given row that no API record matched.
+     *
+     * @param fromRow - Row index the search starts at
+     * @return row index, or -1 when every remaining row was visited
+     */
+    public int nextUnvisitedRow(int fromRow) {
+        if (fromRow >= rowCount) {
+            return -1;
+        }
+        int word = fromRow >>> 6;
+        if (visited == null || word >= visited.length) {
+            //Rows added after the last markVisited were not visited
+            return fromRow;
+        }
+        long unvisited = ~visited[word] & (-1L << fromRow);
+        while (true) {
+            if (unvisited != 0) {
+                int row = (word << 6) + Long.numberOfTrailingZeros(unvisited);
+                return row < rowCount ? row : -1;
+            }
+            if (++word == visited.length) {
+                return word << 6 < rowCount ? word << 6 : -1;
+            }
+            unvisited = ~visited[word];
+        }
+    }
+
+    /**
+     * This method will write the visited bitset, for a checkpoint of the comparison.
+     *
+     * @param out - Stream to write to, left open
+     */
+    public void writeVisitedTo(DataOutputStream out) throws IOException {
+        out.writeInt(rowCount);
+        long[] bits = visited == null ? new long[0] : visited;
+        out.writeInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * This method will restore the visited bitset written by writeVisitedTo.
+     *
+     * @param in - Stream positioned at the start of the bitset
+     */
+    public void readVisitedFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != rowCount) {
+            throw new IOException("Visited rows were recorded for another row store");
+        }
+        long[] bits = new long[in.readInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        visited = bits.length == 0 ? null : bits;
+    }
+
+    /**
+     * @return primary key index of the store, null while the store is empty
+     */
+    public PrimaryKeyIndex getPrimaryKeyIndex() {
+        return primaryKeyIndex;
+    }
+
+    /**
+     * This method will write the column layout and every row of the store, so that readFrom can rebuild it without
+     * querying Databricks again. Values are written as length-prefixed UTF-8, -1 standing for null.
+     *
+     * @param out - Stream to write to, left open
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(columnCount);
+        for (String columnName : columnNames) {
+            out.writeUTF(columnName);
+        }
+        out.writeUTF(columnNames[primaryKeyColumn]);
+        out.writeUTF(primaryKeyIndex == null ? primaryKeyType : primaryKeyIndex.getKeyType());
+        out.writeBoolean(primaryKeyOffHeap);
+        out.writeInt(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            for (int column = 0; column < columnCount; column++) {
+                String value = getValue(row, column);
+                if (value == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method will rebuild a store written by writeTo.
+     *
+     * @param in - Stream positioned at the start of the store
+     * @return DatabricksRowStore
+     */
+    public static DatabricksRowStore readFrom(DataInputStream in) throws IOException {
+        String[] names = new String[in.readInt()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = in.readUTF().intern();
+        }
+        DatabricksRowStore store = new DatabricksRowStore(names, in.readUTF(), in.readUTF(), in.readBoolean());
+        int rows = in.readInt();
+        byte[] bytes = new byte[256];
+        for (int row = 0; row < rows; row++) {
+            String[] values = new String[names.length];
+            for (int column = 0; column < names.length; column++) {
+                int length = in.readInt();
+                if (length >= 0) {
+                    if (length > bytes.length) {
+                        bytes = new byte[Math.max(length, bytes.length * 2)];
+                    }
+                    in.readFully(bytes, 0, length);
+                    values[column] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                }
+            }
+            store.appendRow(values);
+        }
+        return store;
+    }
+
+    private String[] chunkOf(int row) {
+        return chunks[row / CHUNK_ROWS];
+    }
+
+    private int offsetOf(int row) {
+        return (row % CHUNK_ROWS) * columnCount;
+    }
+}
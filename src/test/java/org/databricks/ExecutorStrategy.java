@@ -0,0 +1,129 @@
+package org.databricks;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors of the blocking per-page work, page fetches and the fetch-and-compare tasks of the
+ * concurrent engine, in the executor_mode of the global properties. platform (default) runs the tasks on a fixed pool
+ * of daemon threads. virtual starts one virtual thread per task, so thousands of requests can wait on the API at once
+ * without sizing a pool; the number of tasks in flight is then only bounded by api_max_pages_in_flight.
+ * <p>
+ * Virtual threads need Java 21 or later. They are looked up by reflection, so the build keeps targeting Java 17, and
+ * on an older JVM the platform pool is used instead.
+ */
+public class ExecutorStrategy {
+
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    /**
+     * This method will return the executor mode of the run, executor_mode of the global properties.
+     *
+     * @param globalProp - Global properties
+     * @return platform or virtual
+     */
+    public static String getExecutorMode(Properties globalProp) {
+        String executorMode = globalProp.getProperty("executor_mode", PLATFORM).trim().toLowerCase();
+        if (!PLATFORM.equals(executorMode) && !VIRTUAL.equals(executorMode)) {
+            System.out.println("Executor mode [" + executorMode + "] is not supported, platform threads are used");
+            return PLATFORM;
+        }
+        return executorMode;
+    }
+
+    /**
+     * This method will tell whether the executors of the run start virtual threads, that is executor_mode is virtual
+     * and the JVM supports them.
+     *
+     * @param globalProp - Global properties
+     * @return boolean
+     */
+    public static boolean isVirtual(Properties globalProp) {
+        return VIRTUAL.equals(getExecutorMode(globalProp)) && isVirtualThreadSupported();
+    }
+
+    /**
+     * This method will create an executor in the executor mode of the run.
+     *
+     * @param globalProp      - Global properties with executor_mode
+     * @param threadName      - Name prefix of the threads
+     * @param platformThreads - Number of threads of the platform pool, not used for virtual threads
+     * @return ExecutorService, to be shut down by the caller
+     */
+    public static ExecutorService newExecutor(Properties globalProp, String threadName, int platformThreads) {
+        if (VIRTUAL.equals(getExecutorMode(globalProp))) {
+            ThreadFactory virtualThreadFactory = virtualThreadFactory(threadName);
+            if (virtualThreadFactory != null) {
+                ExecutorService executor = newThreadPerTaskExecutor(virtualThreadFactory);
+                if (executor != null) {
+                    return executor;
+                }
+            }
+        }
+        return newPlatformExecutor(threadName, platformThreads);
+    }
+
+    /**
+     * This method will create a fixed pool of daemon threads.
+     *
+     * @param threadName      - Name prefix of the threads
+     * @param platformThreads - Number of threads
+     * @return ExecutorService
+     */
+    public static ExecutorService newPlatformExecutor(String threadName, int platformThreads) {
+        AtomicInteger threadSequence = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), runnable -> {
+            Thread thread = new Thread(runnable, threadName + "-" + threadSequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * This method will tell whether the running JVM can start virtual threads.
+     *
+     * @return true from Java 21 on
+     */
+    public static boolean isVirtualThreadSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    //Thread.ofVirtual().name(threadName + "-", 1).factory(), null before Java 21
+    private static ThreadFactory virtualThreadFactory(String threadName) {
+        if (!isVirtualThreadSupported()) {
+            System.out.println("Virtual threads need Java 21 or later, this JVM is " + System.getProperty("java.version")
+                    + ", platform threads are used");
+            return null;
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            //The builder methods are looked up on the public interface, the builder class itself is not accessible
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, threadName + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Exception Occurred while creating the virtual thread factory : " + e);
+            return null;
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+        try {
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Exception Occurred while creating the virtual thread executor : " + e);
+            return null;
+        }
+    }
+}
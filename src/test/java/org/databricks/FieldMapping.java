@@ -0,0 +1,112 @@
+package org.databricks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A DB_JSON_MAPPING file compiled once per run. Entries keep the order of the file, every JSON path is compiled into
+ * a JsonFieldPath, the DB column name is upper-cased and the comparison rules written after the column are compiled
+ * into a ValueComparator up front, so the comparison loop only walks arrays.
+ */
+public class FieldMapping {
+
+    private final String[] jsonKeys;
+    private final JsonFieldPath[] jsonPaths;
+    private final String[] dbColumns;
+    private final ValueComparator[] comparators;
+
+    private FieldMapping(List<String> jsonKeys, List<String> dbColumns, List<ValueComparator> comparators) {
+        this.jsonKeys = jsonKeys.toArray(new String[0]);
+        this.dbColumns = dbColumns.toArray(new String[0]);
+        this.comparators = comparators.toArray(new ValueComparator[0]);
+        this.jsonPaths = new JsonFieldPath[this.jsonKeys.length];
+        for (int i = 0; i < jsonPaths.length; i++) {
+            jsonPaths[i] = JsonFieldPath.compile(this.jsonKeys[i]);
+        }
+    }
+
+    /**
+     * This method will read and compile a mapping file of json_path=db_column lines, optionally followed by comparison
+     * rules separated by semicolons (json_path=db_column;rule;rule, see ValueComparator). Blank lines and lines
+     * starting with # or ! are ignored.
+     *
+     * @param mappingFilePath - Absolute path of the mapping file
+     * @return FieldMapping
+     */
+    public static FieldMapping load(String mappingFilePath) throws IOException {
+        List<String> jsonKeys = new ArrayList<>();
+        List<String> dbColumns = new ArrayList<>();
+        List<ValueComparator> comparators = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(mappingFilePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("!") || !line.contains("=")) {
+                    continue;
+                }
+                String[] parts = line.split("=", 2);
+                String[] columnAndRules = parts[1].split(";", 2);
+                jsonKeys.add(parts[0].trim());
+                dbColumns.add(columnAndRules[0].trim().toUpperCase());
+                try {
+                    comparators.add(ValueComparator.compile(columnAndRules.length > 1 ? columnAndRules[1] : null));
+                } catch (RuntimeException e) {
+                    throw new IOException("Comparison rules of [" + line + "] cannot be read : " + e.getMessage(), e);
+                }
+            }
+        }
+        return new FieldMapping(jsonKeys, dbColumns, comparators);
+    }
+
+    /**
+     * This method will return the DB column of a mapping line value, without the comparison rules written after it.
+     *
+     * @param mappingValue - Value of a mapping line, db_column optionally followed by ;rules
+     * @return upper-cased column name
+     */
+    public static String getColumnName(String mappingValue) {
+        int rulesStart = mappingValue.indexOf(';');
+        return (rulesStart < 0 ? mappingValue : mappingValue.substring(0, rulesStart)).trim().toUpperCase();
+    }
+
+    /**
+     * This method will resolve the ordinal of every mapped DB column in the row store. A column that is not part of
+     * the Databricks result resolves to -1.
+     *
+     * @param dataFromDatabricks - Row store the ordinals are resolved against
+     * @return int[] in mapping order
+     */
+    public int[] resolveColumns(DatabricksRowStore dataFromDatabricks) {
+        int[] columns = new int[dbColumns.length];
+        for (int i = 0; i < dbColumns.length; i++) {
+            columns[i] = dataFromDatabricks.getColumnIndex(dbColumns[i]);
+            if (columns[i] < 0) {
+                System.out.println("Mapped column [" + dbColumns[i] + "] is not present in the Databricks result");
+            }
+        }
+        return columns;
+    }
+
+    public int size() {
+        return jsonKeys.length;
+    }
+
+    public String getJsonKey(int entry) {
+        return jsonKeys[entry];
+    }
+
+    public JsonFieldPath getJsonPath(int entry) {
+        return jsonPaths[entry];
+    }
+
+    public String getDbColumn(int entry) {
+        return dbColumns[entry];
+    }
+
+    public ValueComparator getComparator(int entry) {
+        return comparators[entry];
+    }
+}
@@ -0,0 +1,315 @@
+package org.databricks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Persisted map from primary key to the fingerprint of the mapped field values of every record that matched in the
+ * previous run. The next incremental run skips a record whose API values and DB values both still hash to the stored
+ * fingerprint, and re-checks the rest.
+ * <p>
+ * The file holds the magic "DCVFP001", the mapping signature and the entry count, followed by 16 byte entries of
+ * 64-bit key hash and 64-bit fingerprint, sorted by key hash. It is memory-mapped and searched in place, so opening it
+ * costs nothing and a lookup touches a handful of pages however many keys it holds. A store written for another
+ * mapping is ignored.
+ */
+public class FingerprintStore {
+
+    private static final byte[] MAGIC = {'D', 'C', 'V', 'F', 'P', '0', '0', '1'};
+    private static final int HEADER_LENGTH = MAGIC.length + 8 + 8;
+    private static final int ENTRY_LENGTH = 16;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    //Separates the values, so that ["ab", "c"] and ["a", "bc"] differ
+    private static final long VALUE_SEPARATOR = 0x1fL;
+    //Marks a value that is not present, unlike the text "null" of a JSON null
+    private static final long MISSING_VALUE = 0x9e3779b97f4a7c15L;
+
+    private final MappedByteBuffer entries;
+    private final int entryCount;
+
+    private FingerprintStore(MappedByteBuffer entries, int entryCount) {
+        this.entries = entries;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * This method will map the store written by the previous run. A missing file, a damaged file or a file written
+     * for another mapping gives an empty store, every record is then checked.
+     *
+     * @param storeFile        - Store file
+     * @param mappingSignature - Signature of the current mapping, see mappingSignature
+     * @return FingerprintStore
+     */
+    public static FingerprintStore open(File storeFile, long mappingSignature) {
+        if (!storeFile.isFile() || storeFile.length() < HEADER_LENGTH) {
+            return new FingerprintStore(null, 0);
+        }
+        try (FileChannel channel = FileChannel.open(storeFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(0, magic);
+            long storedSignature = buffer.getLong(MAGIC.length);
+            long count = buffer.getLong(MAGIC.length + 8);
+            if (!Arrays.equals(magic, MAGIC) || count < 0 || HEADER_LENGTH + count * ENTRY_LENGTH != channel.size()) {
+                System.out.println("Fingerprint store " + storeFile + " is damaged, every record will be checked");
+                return new FingerprintStore(null, 0);
+            }
+            if (storedSignature != mappingSignature) {
+                System.out.println("Fingerprint store " + storeFile + " was written for another mapping, every record will be checked");
+                return new FingerprintStore(null, 0);
+            }
+            return new FingerprintStore(buffer, (int) count);
+        } catch (IOException e) {
+            System.out.println("Exception Occurred while opening fingerprint store : " + e);
+            return new FingerprintStore(null, 0);
+        }
+    }
+
+    /**
+     * @return true when the store holds the key with exactly this fingerprint
+     */
+    public boolean matches(long keyHash, long fingerprint) {
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = entries.getLong(HEADER_LENGTH + mid * ENTRY_LENGTH);
+            if (midKey < keyHash) {
+                low = mid + 1;
+            } else if (midKey > keyHash) {
+                high = mid - 1;
+            } else {
+                return entries.getLong(HEADER_LENGTH + mid * ENTRY_LENGTH + 8) == fingerprint;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * This method will return the 64-bit hash a primary key is stored under.
+     *
+     * @param primaryKey - Primary key value
+     * @return long
+     */
+    public static long hashKey(String primaryKey) {
+        return finish(addValue(FNV_OFFSET_BASIS, primaryKey));
+    }
+
+    /**
+     * This method will return the fingerprint of values[from] to the end of the array, the mapped values of a decoded
+     * API record when from is 1.
+     *
+     * @param values - Values in mapping order
+     * @param from   - Index of the first value
+     * @return long
+     */
+    public static long fingerprint(String[] values, int from) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = from; i < values.length; i++) {
+            hash = addValue(hash, values[i]);
+        }
+        return finish(hash);
+    }
+
+    /**
+     * This method will return the fingerprint of the mapped columns of a row store row, in mapping order. Equal
+     * values give the fingerprint the API record gets from fingerprint(record, 1).
+     *
+     * @param store     - Row store
+     * @param row       - Row index
+     * @param dbColumns - Column index of every mapping entry, -1 for a column that is not in the store
+     * @return long
+     */
+    public static long fingerprint(DatabricksRowStore store, int row, int[] dbColumns) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int column : dbColumns) {
+            hash = addValue(hash, column < 0 ? null : store.getValue(row, column));
+        }
+        return finish(hash);
+    }
+
+    /**
+     * This method will return the fingerprint of the mapped columns of a row, in mapping order.
+     *
+     * @param row       - Row values in column order
+     * @param dbColumns - Column index of every mapping entry, -1 for a column that is not in the row
+     * @return long
+     */
+    public static long fingerprint(String[] row, int[] dbColumns) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int column : dbColumns) {
+            hash = addValue(hash, column < 0 ? null : row[column]);
+        }
+        return finish(hash);
+    }
+
+    /**
+     * This method will return the signature of a mapping, its JSON keys and DB columns in order. A store is only used
+     * by a run with the same signature.
+     *
+     * @param fieldMapping - DB to JSON mapping
+     * @return long
+     */
+    public static long mappingSignature(FieldMapping fieldMapping) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < fieldMapping.size(); i++) {
+            hash = addValue(hash, fieldMapping.getJsonKey(i));
+            hash = addValue(hash, fieldMapping.getDbColumn(i));
+        }
+        return finish(hash);
+    }
+
+    private static long addValue(long hash, String value) {
+        if (value == null) {
+            hash ^= MISSING_VALUE;
+            hash *= FNV_PRIME;
+        } else {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                hash ^= c & 0xff;
+                hash *= FNV_PRIME;
+                hash ^= c >>> 8;
+                hash *= FNV_PRIME;
+            }
+        }
+        hash ^= VALUE_SEPARATOR;
+        return hash * FNV_PRIME;
+    }
+
+    //Final avalanche of the 64-bit MurmurHash3 finaliser, spreads FNV's weak high bits over the whole key space
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Collects the records that matched in this run and replaces the store file with them on commit. The new file is
+     * written next to the old one and moved over it, so an interrupted run leaves the previous store in place.
+     */
+    public static class Writer {
+
+        private final File storeFile;
+        private final long mappingSignature;
+        private long[] keyHashes = new long[1024];
+        private long[] fingerprints = new long[1024];
+        private int size;
+
+        /**
+         * @param storeFile        - Store file to replace
+         * @param mappingSignature - Signature of the current mapping
+         */
+        public Writer(File storeFile, long mappingSignature) {
+            this.storeFile = storeFile;
+            this.mappingSignature = mappingSignature;
+        }
+
+        public void add(long keyHash, long fingerprint) {
+            if (size == keyHashes.length) {
+                keyHashes = Arrays.copyOf(keyHashes, size * 2);
+                fingerprints = Arrays.copyOf(fingerprints, size * 2);
+            }
+            keyHashes[size] = keyHash;
+            fingerprints[size] = fingerprint;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * This method will sort the collected entries and replace the store file with them.
+         */
+        public void commit() throws IOException {
+            sort(0, size - 1);
+            File folder = storeFile.getAbsoluteFile().getParentFile();
+            if (folder != null) {
+                folder.mkdirs();
+            }
+            File tempFile = new File(folder, storeFile.getName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.BIG_ENDIAN);
+                buffer.put(MAGIC).putLong(mappingSignature).putLong(size);
+                for (int i = 0; i < size; i++) {
+                    if (buffer.remaining() < ENTRY_LENGTH) {
+                        writeFully(channel, buffer);
+                    }
+                    buffer.putLong(keyHashes[i]).putLong(fingerprints[i]);
+                }
+                writeFully(channel, buffer);
+                channel.force(false);
+            }
+            Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        //Quicksort of the two parallel arrays by key hash, insertion sort for short ranges
+        private void sort(int low, int high) {
+            while (high - low > 16) {
+                long pivot = keyHashes[(low + high) >>> 1];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (keyHashes[i] < pivot) {
+                        i++;
+                    }
+                    while (keyHashes[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                //Recurse into the smaller half, loop on the larger one
+                if (j - low < high - i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && keyHashes[j - 1] > keyHashes[j]; j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private void swap(int i, int j) {
+            long key = keyHashes[i];
+            keyHashes[i] = keyHashes[j];
+            keyHashes[j] = key;
+            long fingerprint = fingerprints[i];
+            fingerprints[i] = fingerprints[j];
+            fingerprints[j] = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.databricks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Small bounded pool of Databricks JDBC connections shared by the validation runs of one JVM. Connections are opened
+ * on demand up to the pool size, handed back with release and checked with isValid before they are reused.
+ */
+public class JdbcConnectionPool implements AutoCloseable {
+
+    private final String jdbcURL;
+    private final Properties connectionProperties;
+    private final Semaphore permits;
+    private final ArrayDeque<Connection> idleConnections = new ArrayDeque<>();
+    private volatile boolean closed;
+
+    /**
+     * @param jdbcURL              - JDBC URL of the Databricks SQL warehouse
+     * @param connectionProperties - Connection properties, user and password
+     * @param maxConnections       - Maximum number of connections open at once
+     */
+    public JdbcConnectionPool(String jdbcURL, Properties connectionProperties, int maxConnections) {
+        this.jdbcURL = jdbcURL;
+        this.connectionProperties = connectionProperties;
+        this.permits = new Semaphore(Math.max(1, maxConnections), true);
+    }
+
+    /**
+     * This method will create a pool for the Databricks connection of the global properties. The pool size is read
+     * from jdbc_pool_size.
+     *
+     * @param prop - Global properties
+     * @return JdbcConnectionPool
+     */
+    public static JdbcConnectionPool fromGlobalProperties(Properties prop) {
+        Properties connectionProperties = new Properties();
+        connectionProperties.put("user", "token");
+        connectionProperties.put("password", prop.getProperty("password"));
+        return new JdbcConnectionPool(prop.getProperty("jdbcurl"), connectionProperties,
+                ReusableCommonMethods.getIntProperty(prop, "jdbc_pool_size", 4));
+    }
+
+    /**
+     * This method will return an idle connection, or open a new one, waiting while every connection is in use.
+     * Every borrowed connection must be handed back with release.
+     *
+     * @return Connection
+     */
+    public Connection borrow() throws SQLException, InterruptedException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        permits.acquire();
+        try {
+            while (true) {
+                Connection connection;
+                synchronized (idleConnections) {
+                    connection = idleConnections.poll();
+                }
+                if (connection == null) {
+                    return DriverManager.getConnection(jdbcURL, connectionProperties);
+                }
+                if (connection.isValid(5)) {
+                    return connection;
+                }
+                closeQuietly(connection);
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * This method will hand a borrowed connection back to the pool.
+     *
+     * @param connection - Connection returned by borrow
+     */
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            if (closed || connection.isClosed()) {
+                closeQuietly(connection);
+            } else {
+                synchronized (idleConnections) {
+                    idleConnections.push(connection);
+                }
+            }
+        } catch (SQLException e) {
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (idleConnections) {
+            for (Connection connection : idleConnections) {
+                closeQuietly(connection);
+            }
+            idleConnections.clear();
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Exception Occurred while closing database connection : " + e);
+        }
+    }
+}
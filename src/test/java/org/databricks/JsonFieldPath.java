@@ -0,0 +1,137 @@
+package org.databricks;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A JSON field path from the DB_JSON_MAPPING files, compiled once into its segments so that reading a value from a
+ * record is a plain walk over the nodes. Three notations are accepted:
+ * <ul>
+ *     <li>dot notation, e.g. {@code domain.id}</li>
+ *     <li>dot notation with array indices, e.g. {@code attributes[0].value} or {@code attributes.0.value}</li>
+ *     <li>JSON Pointer, e.g. {@code /attributes/0/value}</li>
+ * </ul>
+ * A numeric segment selects an array element when the node is an array and a field of that name otherwise.
+ */
+public class JsonFieldPath {
+
+    private static final ConcurrentHashMap<String, JsonFieldPath> COMPILED_PATHS = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final String[] names;
+    private final int[] indexes;
+
+    private JsonFieldPath(String path, List<String> segments) {
+        this.path = path;
+        this.names = new String[segments.size()];
+        this.indexes = new int[segments.size()];
+        for (int i = 0; i < names.length; i++) {
+            String segment = segments.get(i);
+            names[i] = segment;
+            indexes[i] = parseIndex(segment);
+        }
+    }
+
+    /**
+     * This method will compile a field path. Paths are immutable, so compiled paths are cached and shared.
+     *
+     * @param path - Field path in dot or JSON Pointer notation
+     * @return JsonFieldPath
+     */
+    public static JsonFieldPath compile(String path) {
+        return COMPILED_PATHS.computeIfAbsent(path, JsonFieldPath::parse);
+    }
+
+    private static JsonFieldPath parse(String path) {
+        List<String> segments = new ArrayList<>();
+        if (path.startsWith("/")) {
+            for (JsonPointer pointer = JsonPointer.compile(path); !pointer.matches(); pointer = pointer.tail()) {
+                segments.add(pointer.getMatchingProperty());
+            }
+        } else {
+            for (String part : path.split("\\.")) {
+                int bracket = part.indexOf('[');
+                if (bracket < 0) {
+                    segments.add(part);
+                    continue;
+                }
+                if (bracket > 0) {
+                    segments.add(part.substring(0, bracket));
+                }
+                //One or more [n] suffixes
+                while (bracket >= 0) {
+                    int close = part.indexOf(']', bracket);
+                    if (close < 0) {
+                        throw new IllegalArgumentException("Unclosed array index in JSON path [" + path + "]");
+                    }
+                    segments.add(part.substring(bracket + 1, close).trim());
+                    bracket = part.indexOf('[', close);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Empty JSON path [" + path + "]");
+        }
+        return new JsonFieldPath(path, segments);
+    }
+
+    private static int parseIndex(String segment) {
+        if (segment.isEmpty() || segment.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < segment.length(); i++) {
+            if (!Character.isDigit(segment.charAt(i))) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(segment);
+    }
+
+    /**
+     * @param node - Record node
+     * @return node at the path, or null when any segment is missing
+     */
+    public JsonNode resolve(JsonNode node) {
+        for (int i = 0; i < names.length && node != null; i++) {
+            node = indexes[i] >= 0 && node.isArray() ? node.get(indexes[i]) : node.get(names[i]);
+        }
+        return node;
+    }
+
+    /**
+     * @param node - Record node
+     * @return text of the value at the path, or null when any segment is missing
+     */
+    public String readText(JsonNode node) {
+        JsonNode value = resolve(node);
+        return value == null || value.isMissingNode() ? null : value.asText();
+    }
+
+    public int getSegmentCount() {
+        return names.length;
+    }
+
+    public String getSegmentName(int segment) {
+        return names[segment];
+    }
+
+    /**
+     * @return array index of the segment, or -1 when the segment is not numeric
+     */
+    public int getSegmentIndex(int segment) {
+        return indexes[segment];
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,144 @@
+package org.databricks;
+
+/**
+ * Primary key index for numeric keys. A key in the canonical decimal form of a long (no sign other than a leading
+ * minus, no leading zeros) is packed into 8 bytes per row and formatted back to the same text by keyAt. The packed
+ * keys live on the heap or in direct memory, the open-addressing table of (row index + 1) stays on the heap.
+ * <p>
+ * A key that is not in canonical form cannot be present, so it is answered with -1 without probing.
+ */
+public class LongKeyIndex implements PrimaryKeyIndex {
+
+    private final PackedLongArray keys;
+    private int[] slots = new int[1024];
+    private int size;
+
+    /**
+     * @param offHeap - true to keep the packed keys in direct memory
+     */
+    public LongKeyIndex(boolean offHeap) {
+        this.keys = new PackedLongArray(offHeap);
+    }
+
+    /**
+     * @param key - Primary key
+     * @return true when the key is the canonical decimal form of a long
+     */
+    public static boolean isCanonical(String key) {
+        if (key == null || key.isEmpty() || key.length() > 20) {
+            return false;
+        }
+        int start = key.charAt(0) == '-' ? 1 : 0;
+        if (start == key.length() || (key.charAt(start) == '0' && (key.length() > start + 1 || start == 1))) {
+            return false;
+        }
+        for (int i = start; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (key.length() - start < 19) {
+            return true;
+        }
+        //19 digits and more may be out of the long range
+        try {
+            Long.parseLong(key);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean accepts(String key) {
+        return isCanonical(key);
+    }
+
+    @Override
+    public int indexOf(String key) {
+        if (!isCanonical(key)) {
+            return -1;
+        }
+        return indexOf(Long.parseLong(key));
+    }
+
+    private int indexOf(long key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (keys.get(entry - 1) == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int add(String key) {
+        long value = Long.parseLong(key);
+        int existingRow = indexOf(value);
+        if (existingRow >= 0) {
+            return existingRow;
+        }
+        int row = size;
+        keys.set(row, value);
+        size++;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insertSlot(slots, row);
+        }
+        return row;
+    }
+
+    @Override
+    public String keyAt(int row) {
+        return Long.toString(keys.get(row));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getKeyType() {
+        return LONG;
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        return 4L * slots.length + keys.getAllocatedBytes();
+    }
+
+    private void rehash(int newCapacity) {
+        int[] newSlots = new int[newCapacity];
+        for (int row = 0; row < size; row++) {
+            insertSlot(newSlots, row);
+        }
+        slots = newSlots;
+    }
+
+    private void insertSlot(int[] table, int row) {
+        int mask = table.length - 1;
+        int slot = hash(keys.get(row)) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+
+    private static int hash(long key) {
+        //Murmur3 finaliser, sequential ids spread over the whole table
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,146 @@
+package org.databricks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Validates every table properties file under src/test/resources/config concurrently. The tables share one access
+ * token, one JDBC connection pool, one HTTP client and the page fetch threads, and a consolidated summary with the
+ * timing of every table is written to the report folder once all of them are done.
+ */
+public class MultiTableValidationRunner {
+
+    public static void main(String[] args) {
+        //Read the global properties
+        Properties globalProp = ReusableCommonMethods.readGlobalProperty();
+        //If the global properties are not read, fail
+        if (globalProp == null) {
+            System.exit(0);
+        }
+        List<String> validationTableNames = findTablePropertyFiles();
+        if (validationTableNames.isEmpty()) {
+            System.out.println("No table properties file is available under folder config");
+            System.exit(0);
+        }
+        System.out.println("Tables to validate : " + validationTableNames);
+
+        //Get the access token, renewed ahead of its expiry for the whole run
+        TokenManager tokenManager = null;
+        try {
+            tokenManager = new TokenManager(globalProp);
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while fetching the access token : " + e);
+            System.exit(0);
+        }
+
+        long start = System.currentTimeMillis();
+        List<TableValidationResult> results;
+        try (ValidationResources resources = new ValidationResources(globalProp, tokenManager)) {
+            results = validateTables(resources, validationTableNames, DatabricksCollibraValidation.totalRecordsWishToValidate);
+        }
+        long totalMillis = System.currentTimeMillis() - start;
+
+        boolean overallValidation = true;
+        System.out.println("Validation Summary");
+        for (TableValidationResult result : results) {
+            System.out.println(result);
+            overallValidation = overallValidation && result.isPassed();
+        }
+        System.out.println("Total time for " + results.size() + " tables : " + totalMillis + " ms");
+        writeSummaryReport(globalProp, results);
+        if (!overallValidation) {
+            System.out.println("Overall validation failed, please check logs for more details");
+            System.exit(0);
+        }
+    }
+
+    /**
+     * This method will return the file names of the table properties files under resources/config, that is every
+     * properties file except GLOBAL_PROPERTIES.properties, in name order.
+     *
+     * @return List of table properties file names
+     */
+    public static List<String> findTablePropertyFiles() {
+        File configFolder = new File(System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+                + File.separator + "resources" + File.separator + "config");
+        File[] files = configFolder.listFiles((dir, name) -> name.endsWith(".properties")
+                && !name.equalsIgnoreCase("GLOBAL_PROPERTIES.properties"));
+        List<String> validationTableNames = new ArrayList<>();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                validationTableNames.add(file.getName());
+            }
+        }
+        return validationTableNames;
+    }
+
+    /**
+     * This method will validate the tables on table_parallelism threads and return their results in the given
+     * order.
+     *
+     * @param resources                  - Resources shared by the tables
+     * @param validationTableNames       - Table properties file names
+     * @param totalRecordsWishToValidate - Number of API records to validate per table, negative for every record
+     * @return List of TableValidationResult
+     */
+    public static List<TableValidationResult> validateTables(ValidationResources resources,
+                                                             List<String> validationTableNames,
+                                                             int totalRecordsWishToValidate) {
+        int tableParallelism = ReusableCommonMethods.getIntProperty(resources.getGlobalProp(), "table_parallelism", 2);
+        ExecutorService tableExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(tableParallelism,
+                validationTableNames.size())));
+        try {
+            List<Future<TableValidationResult>> futures = new ArrayList<>();
+            for (String validationTableName : validationTableNames) {
+                futures.add(tableExecutor.submit(() -> DatabricksCollibraValidation.validateTable
+                        (resources, validationTableName, totalRecordsWishToValidate)));
+            }
+            List<TableValidationResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (Exception e) {
+                    TableValidationResult result = new TableValidationResult(validationTableNames.get(i));
+                    result.setErrorMessage(e.toString());
+                    results.add(result);
+                }
+            }
+            return results;
+        } finally {
+            tableExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * This method will write the consolidated summary of the tables as a csv file in the report folder.
+     *
+     * @param globalProp - Global properties with reportPath
+     * @param results    - Results of the tables
+     */
+    public static void writeSummaryReport(Properties globalProp, List<TableValidationResult> results) {
+        String filePath = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+                + File.separator + globalProp.getProperty("reportPath") + File.separator + "ValidationSummary_"
+                + ReusableCommonMethods.getCurrentDateAndTime() + ".csv";
+        ReportSink summary = new CsvReportSink(filePath, new String[]{"Table", "Status", "DB Extract ms",
+                "Comparison ms", "Total ms", "Error"});
+        try {
+            for (TableValidationResult result : results) {
+                summary.writeRow(result.getValidationTableName(), result.isPassed() ? "PASS" : "FAIL",
+                        String.valueOf(result.getDbExtractMillis()), String.valueOf(result.getComparisonMillis()),
+                        String.valueOf(result.getTotalMillis()), result.getErrorMessage());
+            }
+        } catch (IOException e) {
+            System.out.println("Exception Occurred while writing validation summary : " + e);
+        } finally {
+            ReusableCommonMethods.closeReport(summary, "Summary");
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package org.databricks;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the Databricks side of a table while the API is crawled. The reads run on their own threads and hand the rows
+ * over in batches. The comparison thread adds them to the row store between pages, so the store is only ever changed
+ * and read by that thread. There are two ways of reading:
+ * <ul>
+ * <li>start, for orchestration_mode=concurrent, reads the whole table in db_shard_count shards like
+ * ShardedExtraction. An API record whose primary key is not in the store yet is parked in a pending buffer and
+ * compared once its row has arrived.</li>
+ * <li>startKeyLookup, for sampled runs with sampled_db_read=key_lookup, reads only the rows of the sampled records.
+ * The records are parked until db_lookup_batch_size of them are collected, then their keys are looked up in one
+ * IN (...) query and the records are compared once it is done.</li>
+ * </ul>
+ * Once more than pending_buffer_records records are parked the comparison waits for the reads, which holds back the
+ * crawl through its bounded pages in flight. Records whose row never arrived are not present in Databricks.
+ */
+public class OverlappedExtraction implements AutoCloseable {
+
+    private static final int APPEND_BATCH_ROWS = 1024;
+    //Put on the queue by every shard once it is done, read or failed. A key lookup puts its records instead
+    private static final List<String[]> END_OF_SHARD = new ArrayList<>(0);
+
+    private final ValidationResources resources;
+    private final ValidationMetrics.TableMetrics tableMetrics;
+    private final String sqlQuery;
+    private final String primaryKeyColumnName;
+    private final String primaryKeyType;
+    private final boolean primaryKeyOffHeap;
+    private final int fetchSize;
+    private final int pendingLimit;
+    //Keys per lookup query, 0 when the whole table is read
+    private final int lookupBatchSize;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong extractEndNanos = new AtomicLong();
+    //Batches are taken off the queue after every page, it holds at most the rows read while one page is awaited
+    private final BlockingQueue<List<String[]>> batches = new LinkedBlockingQueue<>();
+    private final CountDownLatch rowStoreCreated = new CountDownLatch(1);
+    private final ExecutorService readExecutor;
+
+    private DatabricksRowStore rowStore;
+    private volatile Exception failure;
+
+    //State of the comparison thread
+    private List<String[]> pending = new ArrayList<>();
+    private final Set<List<String[]>> lookupsInFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<String[]> lookedUp = new ArrayList<>();
+    private int recordsInFlight;
+    private int keysLookedUp;
+    private int readsSubmitted;
+    private int readsDone;
+    private boolean allReadsSubmitted;
+    private int skippedRows;
+    private int rowsSinceResolve;
+    private boolean finished;
+
+    private OverlappedExtraction(ValidationResources resources, Properties tableProp, String sqlQuery,
+                                 ValidationMetrics.TableMetrics tableMetrics, int threads, int lookupBatchSize) {
+        this.resources = resources;
+        this.tableMetrics = tableMetrics;
+        this.sqlQuery = sqlQuery;
+        this.primaryKeyColumnName = tableProp.getProperty("primary_key");
+        this.primaryKeyType = ReusableCommonMethods.getPrimaryKeyType(tableProp);
+        this.primaryKeyOffHeap = Boolean.parseBoolean(tableProp.getProperty("primary_key_off_heap", "false").trim());
+        this.fetchSize = ShardedExtraction.getFetchSize(resources.getGlobalProp(), tableProp);
+        this.pendingLimit = ReusableCommonMethods.getIntProperty(tableProp, "pending_buffer_records", 100000);
+        this.lookupBatchSize = lookupBatchSize;
+        this.readExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "db-extract");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * This method will tell whether the table runs its Databricks extract concurrently with the API crawl.
+     *
+     * @param tableProp - Table properties
+     * @return true when orchestration_mode is concurrent
+     */
+    public static boolean isConcurrent(Properties tableProp) {
+        return "concurrent".equalsIgnoreCase(tableProp.getProperty("orchestration_mode", "sequential").trim());
+    }
+
+    /**
+     * This method will tell whether a run reads only the Databricks rows of the sampled API records.
+     *
+     * @param tableProp                      - Table properties
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @return true for a sampled run, or a run with sampling_mode set, with sampled_db_read key_lookup
+     */
+    public static boolean isKeyLookup(Properties tableProp, int expectedTotalRecordsToValidate) {
+        return (expectedTotalRecordsToValidate >= 0 || SampledPageCrawl.isEnabled(tableProp))
+                && "key_lookup".equalsIgnoreCase(tableProp.getProperty("sampled_db_read", "key_lookup").trim());
+    }
+
+    /**
+     * This method will start reading the table SQL in the background, sharded when db_shard_count of the table
+     * properties is above 1.
+     *
+     * @param resources    - Resources with the JDBC connection pool
+     * @param tableProp    - Table properties
+     * @param sqlQuery     - Table SQL query
+     * @param tableMetrics - Metrics of the table, the extract is recorded as db_extract
+     * @return OverlappedExtraction
+     */
+    public static OverlappedExtraction start(ValidationResources resources, Properties tableProp, String sqlQuery,
+                                             ValidationMetrics.TableMetrics tableMetrics) {
+        int shardCount = Math.max(1, ReusableCommonMethods.getIntProperty(tableProp, "db_shard_count", 1));
+        System.out.println("Reading Databricks data in " + shardCount + " shard(s) while the API is crawled");
+        OverlappedExtraction extraction = new OverlappedExtraction(resources, tableProp, sqlQuery, tableMetrics,
+                shardCount, 0);
+        for (int shard = 0; shard < shardCount; shard++) {
+            extraction.submitRead(shardCount == 1 ? sqlQuery
+                    : ShardedExtraction.wrapWithShardFilter(sqlQuery, extraction.primaryKeyColumnName, shardCount, shard));
+        }
+        extraction.allReadsSubmitted = true;
+        return extraction;
+    }
+
+    /**
+     * This method will start a key lookup extraction, reading only the rows of the API records handed to admit. The
+     * lookups run on up to jdbc_pool_size connections.
+     *
+     * @param resources    - Resources with the JDBC connection pool
+     * @param tableProp    - Table properties with db_lookup_batch_size
+     * @param sqlQuery     - Table SQL query
+     * @param tableMetrics - Metrics of the table, the lookups are recorded as db_extract
+     * @return OverlappedExtraction
+     */
+    public static OverlappedExtraction startKeyLookup(ValidationResources resources, Properties tableProp,
+                                                      String sqlQuery, ValidationMetrics.TableMetrics tableMetrics) {
+        int lookupBatchSize = Math.max(1, ReusableCommonMethods.getIntProperty(tableProp, "db_lookup_batch_size", 1000));
+        System.out.println("Reading the Databricks rows of the sampled records, " + lookupBatchSize + " keys per query");
+        OverlappedExtraction extraction = new OverlappedExtraction(resources, tableProp, sqlQuery, tableMetrics,
+                Math.max(1, ReusableCommonMethods.getIntProperty(resources.getGlobalProp(), "jdbc_pool_size", 4)),
+                lookupBatchSize);
+        //The column layout comes from a query without rows, before the first keys are known
+        extraction.submitRead(TableQuery.wrapWithNoRows(sqlQuery));
+        return extraction;
+    }
+
+    /**
+     * This method will wait until the first read returned its result and the row store has its column layout.
+     *
+     * @return DatabricksRowStore, filled while the API records are admitted
+     */
+    public DatabricksRowStore awaitRowStore() throws Exception {
+        rowStoreCreated.await();
+        synchronized (this) {
+            if (rowStore == null) {
+                throw failure;
+            }
+            return rowStore;
+        }
+    }
+
+    /**
+     * This method will add the rows read so far to the row store and return the records that can be compared now:
+     * those of the page whose row has arrived and the earlier parked records whose row arrived since. The other
+     * records of the page are parked.
+     *
+     * @param records - Records of the next API page
+     * @return records to compare, in no particular order
+     */
+    public List<String[]> admit(List<String[]> records) throws Exception {
+        drain(false);
+        if (isExtractComplete() && pending.isEmpty()) {
+            return records;
+        }
+        List<String[]> ready = new ArrayList<>(records.size());
+        collectReady(ready);
+        for (String[] record : records) {
+            if (isExtractComplete() || rowStore.indexOf(record[0]) >= 0) {
+                ready.add(record);
+            } else {
+                pending.add(record);
+                if (pending.size() == lookupBatchSize) {
+                    submitLookup();
+                }
+            }
+        }
+        //A full buffer waits for the reads
+        while (pending.size() + recordsInFlight > pendingLimit && !isExtractComplete()) {
+            submitLookup();
+            if (readsDone == readsSubmitted) {
+                break;
+            }
+            drain(true);
+            collectReady(ready);
+        }
+        return ready;
+    }
+
+    /**
+     * This method will wait for the end of the reads and return the records still parked, to be compared like any
+     * other record. Those whose row never arrived are not present in Databricks.
+     *
+     * @return parked records, or null once they were handed out
+     */
+    public List<String[]> finish() throws Exception {
+        if (finished) {
+            return null;
+        }
+        submitLookup();
+        allReadsSubmitted = true;
+        while (!isExtractComplete()) {
+            drain(true);
+        }
+        finished = true;
+        List<String[]> remaining = new ArrayList<>(pending);
+        pending = new ArrayList<>();
+        collectReady(remaining);
+        return remaining;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return exception that stopped the reads, null when every read succeeded
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return time from the start of the extract until its last read was done
+     */
+    public long getExtractMillis() {
+        return ((isExtractComplete() ? extractEndNanos.get() : System.nanoTime()) - startNanos) / 1000000;
+    }
+
+    private boolean isExtractComplete() {
+        return allReadsSubmitted && readsDone == readsSubmitted;
+    }
+
+    private void submitRead(String query) {
+        readsSubmitted++;
+        readExecutor.execute(() -> read(query, null, null));
+    }
+
+    //Looks up the keys of the parked records, which are compared once the lookup is done
+    private void submitLookup() {
+        if (lookupBatchSize == 0 || pending.isEmpty()) {
+            return;
+        }
+        List<String[]> records = pending;
+        pending = new ArrayList<>();
+        lookupsInFlight.add(records);
+        recordsInFlight += records.size();
+        readsSubmitted++;
+        Set<String> keys = new LinkedHashSet<>();
+        for (String[] record : records) {
+            keys.add(record[0]);
+        }
+        keysLookedUp += keys.size();
+        String query = TableQuery.wrapWithKeyFilter(sqlQuery, primaryKeyColumnName, keys.size());
+        readExecutor.execute(() -> read(query, keys, records));
+    }
+
+    //Adds the batches on the queue to the row store, waiting for one when wait is set
+    private void drain(boolean wait) throws Exception {
+        boolean completeBefore = isExtractComplete();
+        List<String[]> batch = wait ? batches.take() : batches.poll();
+        while (batch != null) {
+            if (batch == END_OF_SHARD) {
+                readsDone++;
+            } else if (lookupsInFlight.remove(batch)) {
+                readsDone++;
+                recordsInFlight -= batch.size();
+                lookedUp.addAll(batch);
+            } else {
+                skippedRows += rowStore.appendRows(batch);
+                rowsSinceResolve += batch.size();
+            }
+            batch = batches.poll();
+        }
+        if (failure != null) {
+            //A partial extract would report the rows of the failed read as missing in Databricks
+            throw failure;
+        }
+        if (isExtractComplete() && !completeBefore) {
+            tableMetrics.record(ValidationMetrics.DB_EXTRACT, extractEndNanos.get() - startNanos);
+            tableMetrics.add(ValidationMetrics.RECORDS_READ_DB, rowStore.size());
+            if (skippedRows > 0) {
+                System.out.println("Total Records skipped as primary key is NULL : " + skippedRows);
+            }
+            System.out.println("Total Records read from Databricks : " + rowStore.size() + " in " + getExtractMillis()
+                    + " ms" + (lookupBatchSize == 0 ? ", " + pending.size() + " API records pending"
+                    : " for " + keysLookedUp + " sampled keys in " + (readsDone - 1) + " lookup queries"));
+        }
+    }
+
+    //Moves the parked records that can be compared to ready
+    private void collectReady(List<String[]> ready) {
+        ready.addAll(lookedUp);
+        lookedUp.clear();
+        //Records waiting for the table are checked again once enough rows arrived to pay for the lookups
+        if (lookupBatchSize > 0 || pending.isEmpty()
+                || (rowsSinceResolve < pending.size() && !isExtractComplete())) {
+            return;
+        }
+        List<String[]> stillPending = new ArrayList<>();
+        for (String[] record : pending) {
+            if (isExtractComplete() || rowStore.indexOf(record[0]) >= 0) {
+                ready.add(record);
+            } else {
+                stillPending.add(record);
+            }
+        }
+        pending = stillPending;
+        rowsSinceResolve = 0;
+    }
+
+    //Reads a query into batches, with the given keys bound to its parameters
+    private void read(String query, Set<String> keys, List<String[]> records) {
+        JdbcConnectionPool jdbcConnectionPool = resources.getJdbcConnectionPool();
+        try {
+            Connection connection = jdbcConnectionPool.borrow();
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                statement.setFetchSize(fetchSize);
+                if (keys != null) {
+                    int parameter = 1;
+                    for (String key : keys) {
+                        statement.setString(parameter++, key);
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    DatabricksRowStore store = getOrCreateRowStore(resultSet);
+                    //Rows are read here and added to the store by the comparison thread
+                    List<String[]> batch = new ArrayList<>(APPEND_BATCH_ROWS);
+                    while (resultSet.next()) {
+                        batch.add(store.readRow(resultSet));
+                        if (batch.size() == APPEND_BATCH_ROWS) {
+                            batches.add(batch);
+                            batch = new ArrayList<>(APPEND_BATCH_ROWS);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        batches.add(batch);
+                    }
+                }
+            } finally {
+                jdbcConnectionPool.release(connection);
+            }
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while fetching data from databricks : " + e);
+            failure = e;
+        } finally {
+            extractEndNanos.accumulateAndGet(System.nanoTime(), Math::max);
+            rowStoreCreated.countDown();
+            batches.add(records == null ? END_OF_SHARD : records);
+        }
+    }
+
+    private synchronized DatabricksRowStore getOrCreateRowStore(ResultSet resultSet) throws Exception {
+        if (rowStore == null) {
+            rowStore = DatabricksRowStore.fromMetaData(resultSet.getMetaData(), primaryKeyColumnName, primaryKeyType,
+                    primaryKeyOffHeap);
+            rowStoreCreated.countDown();
+        }
+        return rowStore;
+    }
+
+    @Override
+    public void close() {
+        readExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,84 @@
+package org.databricks;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Growable array of longs kept in chunks of CHUNK_LONGS values, either as long[] on the heap or as direct buffers
+ * outside of it. Off the heap the values are not scanned by the garbage collector and do not count against -Xmx,
+ * they are limited by -XX:MaxDirectMemorySize instead.
+ */
+public class PackedLongArray {
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_LONGS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_LONGS - 1;
+
+    private final boolean offHeap;
+    private long[][] heapChunks;
+    private ByteBuffer[] directChunks;
+    private int chunkCount;
+
+    /**
+     * @param offHeap - true to keep the values in direct buffers
+     */
+    public PackedLongArray(boolean offHeap) {
+        this.offHeap = offHeap;
+        if (offHeap) {
+            directChunks = new ByteBuffer[16];
+        } else {
+            heapChunks = new long[16][];
+        }
+    }
+
+    public long get(int index) {
+        if (offHeap) {
+            return directChunks[index >>> CHUNK_SHIFT].getLong((index & CHUNK_MASK) << 3);
+        }
+        return heapChunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * This method will set a value, growing the array when the index is past its end.
+     *
+     * @param index - Index of the value
+     * @param value - Value
+     */
+    public void set(int index, long value) {
+        int chunk = index >>> CHUNK_SHIFT;
+        while (chunk >= chunkCount) {
+            addChunk();
+        }
+        if (offHeap) {
+            directChunks[chunk].putLong((index & CHUNK_MASK) << 3, value);
+        } else {
+            heapChunks[chunk][index & CHUNK_MASK] = value;
+        }
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * @return bytes allocated for the values
+     */
+    public long getAllocatedBytes() {
+        return (long) chunkCount * CHUNK_LONGS * Long.BYTES;
+    }
+
+    private void addChunk() {
+        if (offHeap) {
+            if (chunkCount == directChunks.length) {
+                directChunks = Arrays.copyOf(directChunks, chunkCount * 2);
+            }
+            directChunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_LONGS * Long.BYTES).order(ByteOrder.nativeOrder());
+        } else {
+            if (chunkCount == heapChunks.length) {
+                heapChunks = Arrays.copyOf(heapChunks, chunkCount * 2);
+            }
+            heapChunks[chunkCount++] = new long[CHUNK_LONGS];
+        }
+    }
+}
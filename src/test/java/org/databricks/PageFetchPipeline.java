@@ -0,0 +1,78 @@
+package org.databricks;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.IntSupplier;
+
+/**
+ * Keeps a bounded number of page requests in flight on the shared page fetch executor while the caller consumes
+ * the pages strictly in page order. A new page is only submitted when the caller takes one, so no more than
+ * maxPagesInFlight fetched pages are ever held in memory, however fast the API answers. The bound can change while
+ * the pipeline runs, it is read again every time pages are submitted.
+ *
+ * @param <T> - Parsed page type handed to the comparison stage
+ */
+public class PageFetchPipeline<T> implements AutoCloseable {
+
+    /**
+     * Hands out the fetch of the next page on the consuming thread, or null once every page is handed out.
+     */
+    public interface PageSource<T> {
+        Callable<T> nextPage();
+    }
+
+    private final ExecutorService executor;
+    private final ArrayDeque<Future<T>> inFlight = new ArrayDeque<>();
+    private final PageSource<T> pageSource;
+    private final IntSupplier maxPagesInFlight;
+    private boolean sourceExhausted;
+
+    /**
+     * Creates a pipeline on a shared executor whose pages and bound are decided while it runs, for crawls that
+     * change their page size and concurrency on the way. The executor is not shut down by close.
+     *
+     * @param executor         - Executor running the page fetches
+     * @param maxPagesInFlight - Current upper bound of pages requested or fetched but not yet consumed
+     * @param pageSource       - Hands out the fetch of every page in page order
+     */
+    public PageFetchPipeline(ExecutorService executor, IntSupplier maxPagesInFlight, PageSource<T> pageSource) {
+        this.executor = executor;
+        this.maxPagesInFlight = maxPagesInFlight;
+        this.pageSource = pageSource;
+        fill();
+    }
+
+    /**
+     * Returns the next page in page order, blocking until it is fetched. Returns null once every page is consumed.
+     * A failure of the fetch is rethrown here, on the consuming thread.
+     */
+    public T next() throws Exception {
+        Future<T> head = inFlight.poll();
+        if (head == null) {
+            return null;
+        }
+        fill();
+        return head.get();
+    }
+
+    private void fill() {
+        while (!sourceExhausted && inFlight.size() < Math.max(1, maxPagesInFlight.getAsInt())) {
+            Callable<T> page = pageSource.nextPage();
+            if (page == null) {
+                sourceExhausted = true;
+            } else {
+                inFlight.add(executor.submit(page));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Future<T> future : inFlight) {
+            future.cancel(true);
+        }
+        inFlight.clear();
+    }
+}
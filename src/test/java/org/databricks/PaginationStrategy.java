@@ -0,0 +1,91 @@
+package org.databricks;
+
+import java.util.Properties;
+
+/**
+ * Walks the pages of an API endpoint for the comparison, returning the records in scope exactly once and the pages in
+ * API order. The strategy of a table is chosen with pagination_mode in its properties file: offset (the default)
+ * pages with offset/limit and fetches several pages at once, cursor follows the nextCursor of every page so that a
+ * page costs the same at the end of the catalog as at its start. With sampling_mode set, SampledPageCrawl validates
+ * a sample of pages spread over the whole endpoint instead.
+ */
+public interface PaginationStrategy extends AutoCloseable {
+
+    /**
+     * Returns the next page, or null once every page in scope is returned.
+     */
+    AssetPageDecoder.AssetPage nextPage() throws Exception;
+
+    /**
+     * @return true when the crawl covers every record of the endpoint rather than a requested subset
+     */
+    boolean isFullCrawl();
+
+    /**
+     * @return controller of the crawl, with the metrics of its decisions
+     */
+    AdaptiveCrawlController getController();
+
+    /**
+     * @return position of the crawl after the last page returned by nextPage, for create to resume from
+     */
+    String getResumePosition();
+
+    /**
+     * @return estimate of the mismatch rate of the endpoint for a sampled crawl, null when every record in scope is
+     * crawled
+     */
+    default SamplingEstimate getSamplingEstimate() {
+        return null;
+    }
+
+    @Override
+    void close();
+
+    /**
+     * This method will create the pagination strategy configured with pagination_mode for the table.
+     *
+     * @param resources                      - Shared resources with the global properties, token, HTTP client and
+     *                                         page fetch threads
+     * @param tableProp                      - Table properties with the endpoint and pagination_mode
+     * @param expectedTotalRecordsToValidate - Number of records to crawl, negative to crawl every record
+     * @param decoder                        - Decoder reading the mapped fields of every page
+     * @return PaginationStrategy
+     */
+    static PaginationStrategy create(ValidationResources resources, Properties tableProp,
+                                     int expectedTotalRecordsToValidate, AssetPageDecoder decoder) {
+        return create(resources, tableProp, expectedTotalRecordsToValidate, decoder, null);
+    }
+
+    /**
+     * This method will create the pagination strategy configured with pagination_mode for the table, resuming after
+     * the page a checkpointed crawl stopped at.
+     *
+     * @param resources                      - Shared resources with the global properties, token, HTTP client and
+     *                                         page fetch threads
+     * @param tableProp                      - Table properties with the endpoint and pagination_mode
+     * @param expectedTotalRecordsToValidate - Number of records to crawl, negative to crawl every record
+     * @param decoder                        - Decoder reading the mapped fields of every page
+     * @param resumePosition                 - getResumePosition of the earlier crawl, null to start from the first page
+     * @return PaginationStrategy
+     */
+    static PaginationStrategy create(ValidationResources resources, Properties tableProp,
+                                     int expectedTotalRecordsToValidate, AssetPageDecoder decoder,
+                                     String resumePosition) {
+        String endPoint = tableProp.getProperty("asset_table_end_point");
+        String paginationMode = tableProp.getProperty("pagination_mode", "offset").trim().toLowerCase();
+        if (SampledPageCrawl.isEnabled(tableProp)) {
+            //A sample jumps to its pages by offset, whatever the pagination mode
+            return new SampledPageCrawl(resources, tableProp, expectedTotalRecordsToValidate, decoder, resumePosition);
+        }
+        switch (paginationMode) {
+            case "cursor":
+                return new CursorPageCrawl(resources, endPoint, expectedTotalRecordsToValidate, decoder, resumePosition);
+            default:
+                if (!"offset".equals(paginationMode)) {
+                    System.out.println("Pagination mode [" + paginationMode + "] is not supported, using offset");
+                }
+                return new AssetPageCrawl(resources, endPoint, expectedTotalRecordsToValidate, decoder, resumePosition);
+        }
+    }
+}
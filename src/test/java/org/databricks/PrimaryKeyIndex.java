@@ -0,0 +1,115 @@
+package org.databricks;
+
+import java.sql.Types;
+
+/**
+ * Primary key index of a DatabricksRowStore, mapping every primary key to the index of its row and holding the key
+ * of every row. The key type of a table is declared with primary_key_type in its properties file:
+ * <ul>
+ *     <li>string - keys kept as String objects, any key</li>
+ *     <li>uuid - keys in the canonical lower case UUID form packed into two longs, see UuidKeyIndex</li>
+ *     <li>long - keys in the canonical decimal form of a long packed into one long, see LongKeyIndex</li>
+ *     <li>auto (default) - long when the JDBC type of the key column is an integer type, otherwise the type of the
+ *     first key</li>
+ * </ul>
+ * A packed index only takes keys that are formatted back to exactly the same text, so a lookup answers as the String
+ * comparison would. When a key of another form arrives the row store moves its keys to a StringKeyIndex.
+ */
+public interface PrimaryKeyIndex {
+
+    String STRING = "string";
+    String UUID = "uuid";
+    String LONG = "long";
+    String AUTO = "auto";
+
+    /**
+     * @param key - Primary key
+     * @return false when the index cannot hold the key
+     */
+    boolean accepts(String key);
+
+    /**
+     * @param key - Primary key to look up
+     * @return row index of the key, or -1 when it is not present
+     */
+    int indexOf(String key);
+
+    /**
+     * This method will add the key of the next row, row size(), unless the key is present already.
+     *
+     * @param key - Primary key accepted by the index
+     * @return row of the key, size() before the call when the key was added
+     */
+    int add(String key);
+
+    /**
+     * @param row - Row index
+     * @return primary key of the row
+     */
+    String keyAt(int row);
+
+    int size();
+
+    String getKeyType();
+
+    /**
+     * @return estimated bytes held by the index, keys included, on and off the heap
+     */
+    long getFootprintBytes();
+
+    /**
+     * This method will create an empty index of the given key type.
+     *
+     * @param keyType - string, uuid or long
+     * @param offHeap - true to keep the packed keys of a uuid or long index in direct memory
+     * @return PrimaryKeyIndex
+     */
+    static PrimaryKeyIndex create(String keyType, boolean offHeap) {
+        switch (keyType) {
+            case UUID:
+                return new UuidKeyIndex(offHeap);
+            case LONG:
+                return new LongKeyIndex(offHeap);
+            default:
+                return new StringKeyIndex();
+        }
+    }
+
+    /**
+     * This method will return the most compact key type that holds the given key.
+     *
+     * @param key - Primary key
+     * @return uuid, long or string
+     */
+    static String detectKeyType(String key) {
+        if (UuidKeyIndex.isCanonical(key)) {
+            return UUID;
+        }
+        if (LongKeyIndex.isCanonical(key)) {
+            return LONG;
+        }
+        return STRING;
+    }
+
+    /**
+     * This method will resolve the auto key type from the JDBC type of the primary key column.
+     *
+     * @param keyType  - Declared key type
+     * @param jdbcType - java.sql.Types of the primary key column
+     * @return long for an auto key of an integer column, otherwise the declared key type
+     */
+    static String resolveKeyType(String keyType, int jdbcType) {
+        if (!AUTO.equals(keyType)) {
+            return keyType;
+        }
+        switch (jdbcType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return LONG;
+            default:
+                return AUTO;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.databricks;
+
+import java.io.IOException;
+
+/**
+ * Destination of the rows of a success or failure report. The format is chosen with report_format in
+ * GLOBAL_PROPERTIES.properties, see ReusableCommonMethods.openReport. Implementations create their file with the
+ * first row, so a report without rows leaves no file behind.
+ */
+public interface ReportSink extends AutoCloseable {
+
+    /**
+     * This method will append a row to the report. Null values are written as empty values.
+     *
+     * @param values - Values in header order
+     */
+    void writeRow(String... values) throws IOException;
+
+    long getRowsWritten();
+
+    String getFilePath();
+
+    /**
+     * This method will flush every row to the report file and release the resources of the sink.
+     */
+    @Override
+    void close() throws IOException;
+}
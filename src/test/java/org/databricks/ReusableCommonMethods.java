@@ -9,8 +9,6 @@ import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
 import io.restassured.specification.ResponseSpecification;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -24,6 +22,10 @@ import static io.restassured.RestAssured.given;
 
 public class ReusableCommonMethods {
 
+    //Rows of a streaming report kept in memory when the row window is not configured
+    public static final int DEFAULT_REPORT_ROW_WINDOW = 100;
+    public static final String[] FAILURE_REPORT_HEADER = {"Primary Key", "Failure Description"};
+
     /**
      * This method will return a Properties file object that helps to load properties of a Properties file by passing
      * the file path of the Properties file. If the file path is invalid, then it returns null.
@@ -104,8 +106,7 @@ public class ReusableCommonMethods {
             connectionProperties.put("password", prop.getProperty("password"));
             Connection connection = DriverManager.getConnection(jdbcURL, connectionProperties);
             if (connection != null) {
-                Statement statement = connection.createStatement();
-                return statement.executeQuery(sqlQuery);
+                return executeQuery(connection, prop, sqlQuery);
             } else {
                 return null;
             }
@@ -115,34 +116,73 @@ public class ReusableCommonMethods {
         }
     }
 
-    public static HashMap<String, HashMap<String, String>> getDataFromDB(ResultSet resultSet, String primaryKeyColumnName) {
-        HashMap<String, HashMap<String, String>> dataFromDatabricks = new HashMap<>();
+    /**
+     * This method will run the SQL query on the given connection. The caller closes the statement of the returned
+     * ResultSet once it is read.
+     *
+     * @param connection - Open database connection
+     * @param prop       - Global properties with jdbc_fetch_size
+     * @param sqlQuery   - SQL query
+     * @return ResultSet
+     */
+    public static ResultSet executeQuery(Connection connection, Properties prop, String sqlQuery) throws SQLException {
+        return executeQuery(connection, sqlQuery, getIntProperty(prop, "jdbc_fetch_size", 10000));
+    }
+
+    /**
+     * This method will run the query with the given fetch size. The caller closes the statement of the ResultSet.
+     *
+     * @param connection - Databricks connection
+     * @param sqlQuery   - SQL query
+     * @param fetchSize  - Number of rows the driver fetches per round trip
+     * @return ResultSet
+     */
+    public static ResultSet executeQuery(Connection connection, String sqlQuery, int fetchSize) throws SQLException {
+        Statement statement = connection.createStatement();
+        //Rows are streamed into the row store, so the driver only needs to buffer one fetch at a time
+        statement.setFetchSize(fetchSize);
+        return statement.executeQuery(sqlQuery);
+    }
+
+    /**
+     * This method will stream the ResultSet into a compact row store keyed by the primary key column. Rows without a
+     * primary key value cannot be matched against the API and are skipped.
+     *
+     * @param resultSet            - ResultSet of the table SQL query
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @return DatabricksRowStore, or null when the ResultSet could not be read
+     */
+    public static DatabricksRowStore getDataFromDB(ResultSet resultSet, String primaryKeyColumnName) {
+        return getDataFromDB(resultSet, primaryKeyColumnName, PrimaryKeyIndex.AUTO, false);
+    }
+
+    /**
+     * This method will stream the ResultSet into a compact row store keyed by the primary key column, with the
+     * given primary key index.
+     *
+     * @param resultSet            - ResultSet of the table SQL query
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @param primaryKeyType       - string, uuid, long or auto, see PrimaryKeyIndex
+     * @param primaryKeyOffHeap    - true to keep packed uuid and long keys in direct memory
+     * @return DatabricksRowStore, or null when the ResultSet could not be read
+     */
+    public static DatabricksRowStore getDataFromDB(ResultSet resultSet, String primaryKeyColumnName,
+                                                   String primaryKeyType, boolean primaryKeyOffHeap) {
+        DatabricksRowStore dataFromDatabricks = null;
         try {
-            String primaryKeyValue = null;
-            ResultSetMetaData md = resultSet.getMetaData();
-            int totalColumn = md.getColumnCount();
+            dataFromDatabricks = DatabricksRowStore.fromMetaData(resultSet.getMetaData(), primaryKeyColumnName,
+                    primaryKeyType, primaryKeyOffHeap);
+            int skippedRows = 0;
             while (resultSet.next()) {
-                HashMap<String, String> temp = new HashMap<>();
-                for (int i = 0; i <= totalColumn; i++) {
-                    String columnName = md.getColumnName(i).toUpperCase();
-                    if (columnName.contains(".")) {
-                        int index = columnName.indexOf(".");
-                        columnName = columnName.substring((index + 1));
-                    }
-                    if (columnName.equalsIgnoreCase(primaryKeyColumnName)) {
-                        primaryKeyValue = resultSet.getObject(i).toString();
-                    }
-                    if (resultSet.getObject(i) != null) {
-                        temp.put(columnName.toUpperCase(), resultSet.getObject(i).toString());
-                    } else {
-                        temp.put(columnName.toUpperCase(), "NULL");
-                    }
-                }
-                dataFromDatabricks.put(primaryKeyValue, temp);
-                if (dataFromDatabricks.size() % 10000 == 0) {
+                if (!dataFromDatabricks.appendRow(resultSet)) {
+                    skippedRows++;
+                } else if (dataFromDatabricks.size() % 10000 == 0) {
                     System.out.println("Total Records read from Databricks so far :" + dataFromDatabricks.size());
                 }
             }
+            if (skippedRows > 0) {
+                System.out.println("Total Records skipped as primary key is NULL : " + skippedRows);
+            }
             System.out.println("Total Records read from Databricks : " + dataFromDatabricks.size());
             return dataFromDatabricks;
 
@@ -154,21 +194,7 @@ public class ReusableCommonMethods {
 
     public static String getRenewedAccessToken(Properties prop) {
         try {
-            // Spotify API Token Renewal URL
-            String tokenUrl = prop.getProperty("token_url");
-            // Making the POST request
-            Response response = given().relaxedHTTPSValidation().proxy(prop.getProperty("proxy"))
-                    .header("Content-Type", "application/x-www-form-urlencoded")
-                    .header("Connection", "keep-alive")// Required header
-                    .formParam("grant_type", prop.get("grant_type"))
-                    .formParam("client_id", prop.get("client_id"))
-                    .formParam("client_secret", prop.get("client_secret"))
-                    .when()
-                    .post(tokenUrl)
-                    .then()
-                    .statusCode(200)  // Validate success response
-                    .extract()
-                    .response();
+            Response response = requestAccessToken(prop);
 
             // Extract the new access token
             String accessToken = response.jsonPath().getString("access_token");
@@ -182,9 +208,48 @@ public class ReusableCommonMethods {
         }
     }
 
+    /**
+     * This method will request a new access token from the token URL and return the token response, which carries
+     * access_token and, when the server sends it, expires_in. A status other than 200 fails with an
+     * IllegalStateException carrying the status and the start of the body.
+     *
+     * @param prop - Global properties with the token request parameters
+     * @return Response
+     */
+    public static Response requestAccessToken(Properties prop) {
+        // Spotify API Token Renewal URL
+        String tokenUrl = prop.getProperty("token_url");
+        // Making the POST request
+        RequestSpecification request = given().relaxedHTTPSValidation();
+        //An empty proxy means a direct connection
+        String proxy = prop.getProperty("proxy");
+        if (proxy != null && !proxy.trim().isEmpty()) {
+            request.proxy(proxy);
+        }
+        Response response = request
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Connection", "keep-alive")// Required header
+                .formParam("grant_type", prop.get("grant_type"))
+                .formParam("client_id", prop.get("client_id"))
+                .formParam("client_secret", prop.get("client_secret"))
+                .when()
+                .post(tokenUrl)
+                .then()
+                .extract()
+                .response();
+        //Checked here rather than with a RestAssured assertion, whose AssertionError callers catching Exception miss
+        if (response.statusCode() != 200) {
+            String body = response.asString();
+            throw new IllegalStateException("Expected status code 200 but was " + response.statusCode() + " for "
+                    + tokenUrl + " : " + (body.length() > 512 ? body.substring(0, 512) : body));
+        }
+        return response;
+    }
+
     public static boolean performComparisonBetweenDBAndAPI
             (Properties globalProp, Properties tableProp, String accessToken, int expectedTotalRecordsToValidate,
-             HashMap<String, HashMap<String, String>> dataFromDatabricks, String validationTableName) {
+             DatabricksRowStore dataFromDatabricks, String validationTableName) {
+        ReportSink failureReport = null;
         try {
             String endPoint;
             String mappingFileName;
@@ -210,27 +275,33 @@ public class ReusableCommonMethods {
             mappingFileName = tableProp.getProperty("asset_table_db_json_mapping_file_name");
             primaryKeyInJSONResponse = tableProp.getProperty("primary_key_in_json_response");
 
-            String mappingFilePath = System.getProperty("user.dir") + File.separator + "src" + File.separator
-                    + "test" + File.separator + "resources" + File.separator + mappingFileName;
-            Properties mappingFileProperty = ReusableCommonMethods.getPropertiesFileObject(mappingFilePath);
-            if (mappingFileProperty == null) {
+            String mappingFilePath = getMappingFilePath(tableProp);
+            FieldMapping fieldMapping;
+            try {
+                fieldMapping = FieldMapping.load(mappingFilePath);
+            } catch (IOException e) {
                 System.out.println("No Property file is available in the name of " +
                         "[" + mappingFileName + "] under folder DB_JSON_MAPPING");
+                return false;
             }
 
             int totalIteration = 1;
             int offset = 0;
-            int limit = 1000;
+            int limit = getIntProperty(globalProp, "api_page_size", 1000);
             boolean overallValidationStatus = true;
             int totalRecordValidated = 0;
-            int totalPass = 0;
-            int totalFail = 0;
             int recordsLeft = 0;
             int calculatedLimit;
-            HashMap<String, String> failureReport = new HashMap<>();
-            List<HashMap<String, String>> successReport = new ArrayList<>();
+            //Failures are written to the report as they are found
+            failureReport = openReport(globalProp, validationTableName, "FailureReport", FAILURE_REPORT_HEADER);
+            ValidationResultAggregator results = new ValidationResultAggregator(dataFromDatabricks.size(), failureReport);
             for (int i = 0; i < totalIteration; i++) {
-                Response response = given(requestSpecification).proxy(globalProp.getProperty("proxy")).
+                RequestSpecification request = given(requestSpecification);
+                String proxy = globalProp.getProperty("proxy");
+                if (proxy != null && !proxy.trim().isEmpty()) {
+                    request.proxy(proxy);
+                }
+                Response response = request.
                         when().param("offset", offset).param("limit", limit).
                         get(endPoint).
                         then().spec(responseSpecification).
@@ -248,28 +319,32 @@ public class ReusableCommonMethods {
                     if (i == 0) {
                         recordsLeft = expectedTotalRecordsToValidate;
                     } else {
-                        recordsLeft = expectedTotalRecordsToValidate - limit;
+                        recordsLeft = recordsLeft - limit;
                     }
                 }
-                if (recordsLeft > 0 && recordsLeft < 1000) {
+                if (recordsLeft > 0 && recordsLeft < limit) {
                     calculatedLimit = recordsLeft;
                 } else if (recordsLeft < 0) {
                     calculatedLimit = 0;
                 } else {
                     calculatedLimit = limit;
                 }
+                //The last page of the endpoint can hold fewer records than asked for
+                calculatedLimit = Math.min(calculatedLimit, response.jsonPath().getList("results").size());
                 for (int jsonIndex = 0; jsonIndex < calculatedLimit; jsonIndex++) {
                     StringBuilder result = new StringBuilder();
                     boolean eachJSONRecordValidationStatus = true;
                     totalRecordValidated++;
                     String primaryValue =
                             response.jsonPath().getString(("results[" + jsonIndex + "]." + primaryKeyInJSONResponse));
-                    if (dataFromDatabricks.containsKey(primaryValue)) {
-                        assert mappingFileProperty != null;
-                        for (String jsonKey : mappingFileProperty.stringPropertyNames()) {
+                    int dbRow = dataFromDatabricks.indexOf(primaryValue);
+                    if (dbRow >= 0) {
+                        results.markVisited(dbRow);
+                        for (int entry = 0; entry < fieldMapping.size(); entry++) {
+                            String jsonKey = fieldMapping.getJsonKey(entry);
                             String valueFromJSON = response.jsonPath().getString("results[" + jsonIndex + "]." + jsonKey);
-                            String valueFromDB = dataFromDatabricks.get(primaryValue).get(mappingFileProperty.getProperty(jsonKey).toUpperCase());
-                            if (valueFromDB.compareTo(valueFromJSON) != 0) {
+                            String valueFromDB = dataFromDatabricks.getValue(dbRow, fieldMapping.getDbColumn(entry));
+                            if (!fieldMapping.getComparator(entry).matches(valueFromDB, valueFromJSON)) {
                                 result.append("Value not matching for [").append(jsonKey).append("], ").append("Expected value from JSON [").append(valueFromJSON).append("],Actual value from DB [").append(valueFromDB).append("]").append("\n");
                                 overallValidationStatus = false;
                                 eachJSONRecordValidationStatus = false;
@@ -282,23 +357,20 @@ public class ReusableCommonMethods {
                         eachJSONRecordValidationStatus = false;
                     }
                     if (eachJSONRecordValidationStatus) {
-                        totalPass++;
-                        successReport.add(dataFromDatabricks.get(primaryValue));
+                        results.recordPass(dbRow);
                     } else {
-                        failureReport.put(primaryValue, result.toString());
-                        totalFail++;
+                        results.recordFailure(primaryValue, result.toString());
                     }
                 }
                 offset = offset + limit;
-                System.out.println("Total Records Validate : [" + totalRecordValidated + "], Pass [" + totalPass + "], Fail [" + totalFail + "]");
-            }
-            //Write the failure report in an excel
-            if (!failureReport.isEmpty()) {
-                writeFailureReport(failureReport, globalProp.getProperty("reportPath"), validationTableName);
+                System.out.println("Total Records Validate : [" + totalRecordValidated + "], Pass [" + results.getPassCount() + "], Fail [" + results.getFailCount() + "]");
             }
+            closeReport(failureReport, "Failure");
+            failureReport = null;
             //Write the Success report in an excel
-            if (!successReport.isEmpty()) {
-                writeSuccessfulReport(mappingFilePath, globalProp.getProperty("reportPath"), validationTableName, successReport);
+            if (results.getPassCount() > 0) {
+                writeSuccessfulReport(mappingFilePath, globalProp, validationTableName,
+                        dataFromDatabricks, results.getSuccessRows());
             }
 
             return overallValidationStatus;
@@ -306,38 +378,9 @@ public class ReusableCommonMethods {
         } catch (Exception e) {
             System.out.println("Exception Occurred while validating value between DB and JSON : " + e);
             return false;
-        }
-    }
-
-    public static void writeFailureReport(HashMap<String, String> failureReport, String filePath, String validationTableName) {
-        filePath = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" + File.separator + filePath;
-        String[] arr = validationTableName.split("\\.");
-        filePath = filePath + File.separator + arr[0] + File.separator + "FailureReport_" + getCurrentDateAndTime() + ".xlsx";
-        System.out.println("Failure Report Path : " + failureReport);
-        Workbook workbook = new XSSFWorkbook();
-        // Create a sheet
-        Sheet sheet = workbook.createSheet("FailureReport");
-        Row row = sheet.createRow(0);
-        row.createCell(0).setCellValue("Primary Key");
-        row.createCell(1).setCellValue("Failure Description");
-        int rowNum = 1;
-        for (String primaryValue : failureReport.keySet()) {
-            row = sheet.createRow(rowNum);
-            row.createCell(0).setCellValue(primaryValue);
-            row.createCell(1).setCellValue(failureReport.get(primaryValue));
-
-        }
-        // Save the Excel file
-        try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-            workbook.write(fileOut);
-            System.out.println("Failure Report generated successfully: " + filePath);
-        } catch (IOException e) {
-            e.printStackTrace();
         } finally {
-            try {
-                workbook.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+            if (failureReport != null) {
+                closeReport(failureReport, "Failure");
             }
         }
     }
@@ -350,53 +393,121 @@ public class ReusableCommonMethods {
         return LocalDateTime.now().format(formatter);
     }
 
-    public static void writeSuccessfulReport(String mappingFilePath, String reportPath,
-                                             String validationTableName, List<HashMap<String, String>> successReport) {
+    public static void writeSuccessfulReport(String mappingFilePath, Properties globalProp,
+                                             String validationTableName, DatabricksRowStore dataFromDatabricks,
+                                             int[] successRows) {
+        ReportSink report = null;
         try {
             List<String> reportOrder = getPropertiesFileValueInListWithOrder(mappingFilePath);
-            reportPath = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" + File.separator + reportPath;
-            String[] arr = validationTableName.split("\\.");
-            reportPath = reportPath + File.separator + arr[0] + File.separator + "SuccessReport_" + getCurrentDateAndTime() + ".xlsx";
-            System.out.println("Success Report Path : " + reportPath);
-            Workbook workbook = new XSSFWorkbook();
-            // Create a sheet
-            Sheet sheet = workbook.createSheet("SuccessReport");
-            Row row = sheet.createRow(0);
-            //Set the header
+            report = openReport(globalProp, validationTableName, "SuccessReport", reportOrder.toArray(new String[0]));
+            System.out.println("Success Report Path : " + report.getFilePath());
+            //Resolve the column ordinal of every report column once
+            int[] reportColumns = new int[reportOrder.size()];
             for (int i = 0; i < reportOrder.size(); i++) {
-                Cell cell = row.createCell(i);
-                cell.setCellValue(reportOrder.get(i).toUpperCase());
-                CellStyle style = workbook.createCellStyle();
-                Font font = workbook.createFont();
-                font.setBold(true);
-                style.setFont(font);
-                cell.setCellStyle(style);
+                reportColumns[i] = dataFromDatabricks.getColumnIndex(reportOrder.get(i));
             }
             //Set the value of all the records
-            for (int excelRow = 1; excelRow <= successReport.size(); excelRow++) {
-                row = sheet.createRow(excelRow);
-                for (int excelCell = 0; excelCell < reportOrder.size(); excelCell++) {
-                    Cell cell = row.createCell(excelCell);
-                    cell.setCellValue(successReport.get((excelRow - 1)).get(reportOrder.get(excelCell)));
-                }
-            }
-            // Save the Excel file
-            try (FileOutputStream fileOut = new FileOutputStream(reportPath)) {
-                workbook.write(fileOut);
-                System.out.println("Success Report generated successfully: " + reportPath);
-            } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                try {
-                    workbook.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+            for (int dbRow : successRows) {
+                report.writeRow(getReportRow(dataFromDatabricks, dbRow, reportColumns));
             }
         } catch (Exception e) {
             System.out.println("Exception Occurred while generating success report : " + e);
+        } finally {
+            if (report != null) {
+                closeReport(report, "Success");
+            }
+        }
+
+    }
+
+    /**
+     * This method will create the report sink for a report of the table, in the format given by report_format in the
+     * global properties: xlsx (default), csv or columnar. With report_async=true the rows are written by a
+     * background thread. The file is placed under the report folder of the table, named after the report and the
+     * current date and time, and is only created once the first row is written.
+     *
+     * @param globalProp          - Global properties with the report settings
+     * @param validationTableName - Table properties file name, the report sub folder is named after it
+     * @param reportName          - Report and sheet name, e.g. FailureReport
+     * @param header              - Header row
+     * @return ReportSink
+     */
+    public static ReportSink openReport(Properties globalProp, String validationTableName, String reportName,
+                                        String[] header) {
+        return openReport(globalProp, validationTableName, reportName, header, getCurrentDateAndTime());
+    }
+
+    /**
+     * This method will create the report sink for a report of the table, named after the report and the given
+     * suffix instead of the current date and time. Used for the report parts of a checkpointed run.
+     *
+     * @param globalProp          - Global properties with the report settings
+     * @param validationTableName - Table properties file name, the report sub folder is named after it
+     * @param reportName          - Report and sheet name, e.g. FailureReport
+     * @param header              - Header row
+     * @param fileSuffix          - Suffix of the file name, e.g. 17102026_101500_part2
+     * @return ReportSink
+     */
+    public static ReportSink openReport(Properties globalProp, String validationTableName, String reportName,
+                                        String[] header, String fileSuffix) {
+        String reportFormat = globalProp.getProperty("report_format", "xlsx").trim().toLowerCase();
+        String filePath = getReportFolder(globalProp, validationTableName) + File.separator + reportName + "_"
+                + fileSuffix;
+        ReportSink report;
+        switch (reportFormat) {
+            case "csv":
+                report = new CsvReportSink(filePath + ".csv", header);
+                break;
+            case "columnar":
+                report = new ColumnarReportSink(filePath + ".dcvcol", header,
+                        getIntProperty(globalProp, "report_row_group_size", ColumnarReportSink.DEFAULT_ROW_GROUP_SIZE));
+                break;
+            default:
+                if (!"xlsx".equals(reportFormat)) {
+                    System.out.println("Report format [" + reportFormat + "] is not supported, writing xlsx");
+                }
+                report = new StreamingExcelReport(filePath + ".xlsx", reportName, header,
+                        getIntProperty(globalProp, "report_row_window", DEFAULT_REPORT_ROW_WINDOW));
+        }
+        if (Boolean.parseBoolean(globalProp.getProperty("report_async", "false").trim())) {
+            report = new AsyncReportSink(report, getIntProperty(globalProp, "report_async_queue_size", 10000));
         }
+        return report;
+    }
 
+    /**
+     * This method will close a report and print where it was written. Failures are printed, not thrown, so that
+     * one report does not prevent the other from being written.
+     *
+     * @param report     - Report to close
+     * @param reportType - Report type used in the message, e.g. Failure
+     */
+    public static void closeReport(ReportSink report, String reportType) {
+        try {
+            report.close();
+            if (report.getRowsWritten() > 0) {
+                System.out.println(reportType + " Report generated successfully: " + report.getFilePath());
+            }
+        } catch (IOException e) {
+            System.out.println("Exception Occurred while writing " + reportType.toLowerCase() + " report : " + e);
+        }
+    }
+
+    /**
+     * This method will return the values of the given columns of a row, in report order. A column that is not part
+     * of the row store is left empty.
+     *
+     * @param dataFromDatabricks - Row store
+     * @param dbRow              - Row index
+     * @param reportColumns      - Column ordinals in report order
+     * @return String[]
+     */
+    public static String[] getReportRow(DatabricksRowStore dataFromDatabricks, int dbRow, int[] reportColumns) {
+        String[] values = new String[reportColumns.length];
+        for (int i = 0; i < reportColumns.length; i++) {
+            values[i] = reportColumns[i] < 0 ? null : dataFromDatabricks.getValue(dbRow, reportColumns[i]);
+        }
+        return values;
     }
 
     public static List<String> getPropertiesFileValueInListWithOrder(String mappingFilePath) {
@@ -407,15 +518,15 @@ public class ReusableCommonMethods {
             BufferedReader reader = new BufferedReader(new FileReader(mappingFilePath));
             String line;
             while ((line = reader.readLine()) != null) {
-                if (line.contains("=")) { // Ignore empty lines
+                if (line.contains("=") && !line.trim().startsWith("#")) { // Ignore empty lines and comments
                     String[] parts = line.split("=", 2);
                     orderedProperties.put(parts[0].trim(), parts[1].trim());
                 }
             }
             reader.close();
-            // Printing keys in original order
+            // Printing keys in original order, without the comparison rules
             for (Map.Entry<String, String> entry : orderedProperties.entrySet()) {
-                reportOrder.add(entry.getValue().toUpperCase());
+                reportOrder.add(FieldMapping.getColumnName(entry.getValue()));
             }
             return reportOrder;
         } catch (Exception e) {
@@ -426,147 +537,498 @@ public class ReusableCommonMethods {
 
     public static boolean performComparisonBetweenDBAndAPIUsingJackson
             (Properties globalProp, Properties tableProp, String accessToken, int expectedTotalRecordsToValidate,
-             HashMap<String, HashMap<String, String>> dataFromDatabricks, String validationTableName) {
+             DatabricksRowStore dataFromDatabricks, String validationTableName) {
+        try (ValidationResources resources = new ValidationResources(globalProp, accessToken)) {
+            return performComparisonBetweenDBAndAPIUsingJackson(resources, tableProp, expectedTotalRecordsToValidate,
+                    dataFromDatabricks, validationTableName);
+        }
+    }
+
+    /**
+     * This method will validate every API record in scope against the row store, using the HTTP client, token and
+     * page fetch threads of the shared resources.
+     *
+     * @param resources                      - Resources shared by the tables of the run
+     * @param tableProp                      - Table properties
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @param dataFromDatabricks             - Databricks rows of the table
+     * @param validationTableName            - Table properties file name, used for the report folder
+     * @return true when every record matched
+     */
+    public static boolean performComparisonBetweenDBAndAPIUsingJackson
+            (ValidationResources resources, Properties tableProp, int expectedTotalRecordsToValidate,
+             DatabricksRowStore dataFromDatabricks, String validationTableName) {
+        return performComparisonBetweenDBAndAPIUsingJackson(resources, tableProp, expectedTotalRecordsToValidate,
+                dataFromDatabricks, validationTableName, ValidationCheckpoint.open(resources.getGlobalProp(), tableProp,
+                        validationTableName, expectedTotalRecordsToValidate));
+    }
+
+    /**
+     * This method will validate every API record in scope against the row store. With a checkpoint the position of
+     * the crawl, the counters and the finished report parts are recorded every checkpoint_interval_pages pages, and a
+     * resumed run continues after the last checkpointed page.
+     *
+     * @param resources                      - Resources shared by the tables of the run
+     * @param tableProp                      - Table properties
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @param dataFromDatabricks             - Databricks rows of the table
+     * @param validationTableName            - Table properties file name, used for the report folder
+     * @param checkpoint                     - Checkpoint of the table, null to validate without checkpoints
+     * @return true when every record matched
+     */
+    public static boolean performComparisonBetweenDBAndAPIUsingJackson
+            (ValidationResources resources, Properties tableProp, int expectedTotalRecordsToValidate,
+             DatabricksRowStore dataFromDatabricks, String validationTableName, ValidationCheckpoint checkpoint) {
+        return performComparisonBetweenDBAndAPIUsingJackson(resources, tableProp, expectedTotalRecordsToValidate,
+                dataFromDatabricks, validationTableName, checkpoint, null);
+    }
+
+    /**
+     * This method will validate every API record in scope against the row store while the row store is still being
+     * filled by the given extraction. Records are compared as soon as their Databricks row has arrived, the others
+     * wait in the pending buffer of the extraction.
+     *
+     * @param resources                      - Resources shared by the tables of the run
+     * @param tableProp                      - Table properties
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @param extraction                     - Databricks extract started by OverlappedExtraction.start
+     * @param validationTableName            - Table properties file name, used for the report folder
+     * @return true when every record matched
+     */
+    public static boolean performComparisonBetweenDBAndAPIUsingJackson
+            (ValidationResources resources, Properties tableProp, int expectedTotalRecordsToValidate,
+             OverlappedExtraction extraction, String validationTableName) {
+        return performComparisonBetweenDBAndAPIUsingJackson(resources, tableProp, expectedTotalRecordsToValidate,
+                null, validationTableName, null, extraction);
+    }
+
+    private static boolean performComparisonBetweenDBAndAPIUsingJackson
+            (ValidationResources resources, Properties tableProp, int expectedTotalRecordsToValidate,
+             DatabricksRowStore dataFromDatabricks, String validationTableName, ValidationCheckpoint checkpoint,
+             OverlappedExtraction extraction) {
+        Properties globalProp = resources.getGlobalProp();
         try {
-            String endPoint;
+            if (extraction != null) {
+                //The column layout is known once the first Databricks result is in, the rows follow during the crawl
+                dataFromDatabricks = extraction.awaitRowStore();
+            }
             String mappingFileName;
             String primaryKeyInJSONResponse;
-            //Define the Request Specification
-            RequestSpecBuilder reqBuilder = new RequestSpecBuilder().
-                    setBaseUri(globalProp.getProperty("base_uri")).
-                    setBasePath(globalProp.getProperty("base_path")).
-                    addHeader("Authorization", "Bearer " + accessToken).
-                    addHeader("Accept", "application/json").
-                    addHeader("Content-Type", "application/json").
-                    setContentType(ContentType.JSON).
-                    log(LogDetail.URI);
-            RequestSpecification requestSpecification = reqBuilder.build();
-
-            //Define the Response Specification
-            ResponseSpecBuilder resBuilder = new ResponseSpecBuilder()
-                    .log(LogDetail.STATUS);
-            ResponseSpecification responseSpecification = resBuilder.build();
-
 
-            endPoint = tableProp.getProperty("asset_table_end_point");
             mappingFileName = tableProp.getProperty("asset_table_db_json_mapping_file_name");
             primaryKeyInJSONResponse = tableProp.getProperty("primary_key_in_json_response");
 
-            String mappingFilePath = System.getProperty("user.dir") + File.separator + "src" + File.separator
-                    + "test" + File.separator + "resources" + File.separator + mappingFileName;
-            Properties mappingFileProperty = ReusableCommonMethods.getPropertiesFileObject(mappingFilePath);
-            if (mappingFileProperty == null) {
+            String mappingFilePath = getMappingFilePath(tableProp);
+            FieldMapping fieldMapping;
+            try {
+                fieldMapping = FieldMapping.load(mappingFilePath);
+            } catch (IOException e) {
                 System.out.println("No Property file is available in the name of " +
                         "[" + mappingFileName + "] under folder DB_JSON_MAPPING");
-                System.exit(0);
+                return false;
             }
+            //JSON paths and DB column ordinals are resolved once, not per record
+            JsonFieldPath primaryKeyPath = JsonFieldPath.compile(primaryKeyInJSONResponse);
+            int[] dbColumns = fieldMapping.resolveColumns(dataFromDatabricks);
+            //In incremental mode records that matched last run and are unchanged on both sides are not compared again
+            boolean incremental = isIncrementalValidation(tableProp);
+            long mappingSignature = FingerprintStore.mappingSignature(fieldMapping);
+            File fingerprintStoreFile = getFingerprintStoreFile(globalProp, validationTableName);
+            FingerprintStore previousFingerprints = incremental ? FingerprintStore.open(fingerprintStoreFile, mappingSignature) : null;
+            FingerprintStore.Writer newFingerprints = incremental ? new FingerprintStore.Writer(fingerprintStoreFile, mappingSignature) : null;
 
-            int totalIteration = 1;
-            int offset = 0;
-            int limit = 1000;
             boolean overallValidationStatus = true;
             int totalRecordValidated = 0;
             int totalPass = 0;
             int totalFail = 0;
-            HashMap<String, String> failureReport = new HashMap<>();
-            List<HashMap<String, String>> successReport = new ArrayList<>();
-            for (int i = 0; i < totalIteration; i++) {
-                Response response = given(requestSpecification).proxy(globalProp.getProperty("proxy")).
-                        when().param("offset", offset).param("limit", limit).
-                        get(endPoint).
-                        then().spec(responseSpecification).
-                        assertThat().
-                        statusCode(200).extract().response();
-                // Convert response to JsonNode
-                ObjectMapper objectMapper = new ObjectMapper();
-                JsonNode rootNode = objectMapper.readTree(response.asString());
-                //Add code to calculate the total iteration
-                if (i == 0) {
-                    //If all the records to be validated
-                    if (expectedTotalRecordsToValidate < 0) {
-                        int totalRecordInScope = rootNode.get("total").asInt();
-                        totalIteration = totalRecordInScope / limit + 1;
-                    } else {
-                        //if total records to be validated is not full set and user has provided input
-                        if (expectedTotalRecordsToValidate % limit != 0) {
-                            totalIteration = expectedTotalRecordsToValidate / limit + 1;
+            int totalUnchanged = 0;
+            int totalMissingInAPI = 0;
+            //Rows missing in the API are only known when the whole table was marked during this crawl
+            boolean visitedRowsComplete = true;
+            //A resumed run continues the counters of the last checkpoint
+            if (checkpoint != null && checkpoint.isResuming()) {
+                overallValidationStatus = checkpoint.getValidationStatus();
+                totalRecordValidated = (int) checkpoint.getCounter("records_validated");
+                totalPass = (int) checkpoint.getCounter("pass");
+                totalFail = (int) checkpoint.getCounter("fail");
+                totalUnchanged = (int) checkpoint.getCounter("unchanged");
+                checkpoint.discardUnfinishedReportParts("FailureReport", "SuccessReport");
+                visitedRowsComplete = checkpoint.loadVisitedRows(dataFromDatabricks);
+                if (!visitedRowsComplete) {
+                    System.out.println("Visited rows of the checkpoint are not available, rows missing in the API are not reported for this run");
+                }
+            }
+            //Reports are written while the records are validated, rows are not kept until the end
+            String[] successReportHeader = new String[fieldMapping.size()];
+            for (int entry = 0; entry < fieldMapping.size(); entry++) {
+                successReportHeader[entry] = fieldMapping.getDbColumn(entry);
+            }
+            int reportPart = checkpoint == null ? 0 : checkpoint.getReportPart();
+            String reportSuffix = checkpoint == null ? getCurrentDateAndTime() : checkpoint.getReportSuffix(reportPart);
+            ReportSink failureReport = openReport(globalProp, validationTableName, "FailureReport", FAILURE_REPORT_HEADER, reportSuffix);
+            ReportSink successReport = openReport(globalProp, validationTableName, "SuccessReport", successReportHeader, reportSuffix);
+            //Pages are fetched concurrently and handed over here in offset order
+            ValidationMetrics.TableMetrics tableMetrics = resources.getMetrics().forTable(validationTableName);
+            AssetPageDecoder decoder = new AssetPageDecoder(primaryKeyPath, fieldMapping, tableMetrics);
+            PaginationStrategy crawl = PaginationStrategy.create(resources, tableProp, expectedTotalRecordsToValidate,
+                    decoder, checkpoint == null ? null : checkpoint.getResumePosition());
+            crawl.getController().setMetrics(tableMetrics);
+            int pagesSinceCheckpoint = 0;
+            SamplingEstimate samplingEstimate = null;
+            try (crawl) {
+                List<String[]> records;
+                long waitStart = System.nanoTime();
+                while ((records = nextRecords(crawl, extraction)) != null) {
+                    long pageStart = System.nanoTime();
+                    tableMetrics.record(ValidationMetrics.PAGE_WAIT, pageStart - waitStart);
+                    if (samplingEstimate == null) {
+                        //A sampled crawl creates its estimate with the first page
+                        samplingEstimate = crawl.getSamplingEstimate();
+                    }
+                    long reportNanos = 0;
+                    int failedBeforePage = totalFail;
+                    for (String[] result : records) {
+                        totalRecordValidated++;
+                        boolean eachJSONRecordValidationStatus = true;
+                        StringBuilder validationResultMessage = null;
+                        String primaryValue = result[0];
+                        int dbRow = dataFromDatabricks.indexOf(primaryValue);
+                        if (dbRow >= 0) {
+                            dataFromDatabricks.markVisited(dbRow);
+                        }
+                        boolean unchanged = false;
+                        long keyHash = 0;
+                        long fingerprint = 0;
+                        if (incremental && dbRow >= 0) {
+                            keyHash = FingerprintStore.hashKey(primaryValue);
+                            fingerprint = FingerprintStore.fingerprint(result, 1);
+                            unchanged = previousFingerprints.matches(keyHash, fingerprint)
+                                    && FingerprintStore.fingerprint(dataFromDatabricks, dbRow, dbColumns) == fingerprint;
+                        }
+                        if (unchanged) {
+                            totalUnchanged++;
+                        } else if (dbRow >= 0) {
+                            for (int entry = 0; entry < dbColumns.length; entry++) {
+                                String valueFromJSON = result[entry + 1];
+                                String valueFromDB = dbColumns[entry] < 0 ? null : dataFromDatabricks.getValue(dbRow, dbColumns[entry]);
+                                if (!fieldMapping.getComparator(entry).matches(valueFromDB, valueFromJSON)) {
+                                    if (validationResultMessage == null) {
+                                        validationResultMessage = new StringBuilder();
+                                    }
+                                    validationResultMessage.append("Value not matching for [").append(fieldMapping.getJsonKey(entry)).append("], ").append("Expected value from JSON [").append(valueFromJSON).append("],Actual value from DB [").append(valueFromDB).append("]").append("\n");
+                                    overallValidationStatus = false;
+                                    eachJSONRecordValidationStatus = false;
+                                }
+                            }
                         } else {
-                            totalIteration = expectedTotalRecordsToValidate / limit;
+                            validationResultMessage = new StringBuilder("Primary Value  [").append(primaryValue).append("] is not present in Databricks Database");
+                            overallValidationStatus = false;
+                            eachJSONRecordValidationStatus = false;
                         }
-                    }
-                }
-
-                for (JsonNode result : rootNode.get("results")) {
-                    totalRecordValidated++;
-                    boolean eachJSONRecordValidationStatus = true;
-                    StringBuilder validationResultMessage = new StringBuilder();
-                    String primaryValue = getValueFromJSON(result, primaryKeyInJSONResponse);
-                    if (dataFromDatabricks.containsKey(primaryValue)) {
-                        for (String jsonKey : mappingFileProperty.stringPropertyNames()) {
-                            String valueFromJSON = getValueFromJSON(result, jsonKey);
-                            String valueFromDB = dataFromDatabricks.get(primaryValue).get(mappingFileProperty.getProperty(jsonKey).toUpperCase());
-                            if (valueFromDB.compareTo(valueFromJSON) != 0) {
-                                validationResultMessage.append("Value not matching for [").append(jsonKey).append("], ").append("Expected value from JSON [").append(valueFromJSON).append("],Actual value from DB [").append(valueFromDB).append("]").append("\n");
-                                overallValidationStatus = false;
-                                eachJSONRecordValidationStatus = false;
+                        if (eachJSONRecordValidationStatus) {
+                            totalPass++;
+                            //An unchanged record was reported as success by an earlier run
+                            if (!unchanged) {
+                                long reportStart = System.nanoTime();
+                                successReport.writeRow(getReportRow(dataFromDatabricks, dbRow, dbColumns));
+                                reportNanos += System.nanoTime() - reportStart;
+                            }
+                            if (incremental) {
+                                newFingerprints.add(keyHash, fingerprint);
                             }
+                        } else {
+                            long reportStart = System.nanoTime();
+                            failureReport.writeRow(primaryValue, validationResultMessage.toString());
+                            reportNanos += System.nanoTime() - reportStart;
+                            totalFail++;
+                        }
+                        if (samplingEstimate != null) {
+                            samplingEstimate.record(result, !eachJSONRecordValidationStatus);
+                        }
+                        if (totalRecordValidated % 100 == 0) {
+                            System.out.println("Total API Records Validated so far : " + totalRecordValidated);
                         }
-                    } else {
-                        validationResultMessage.append("Primary Value  [").append(primaryValue).append("] is not present in Databricks Database");
-                        overallValidationStatus = false;
-                        eachJSONRecordValidationStatus = false;
                     }
-                    if (eachJSONRecordValidationStatus) {
-                        totalPass++;
-                        successReport.add(dataFromDatabricks.get(primaryValue));
-                    } else {
-                        failureReport.put(primaryValue, result.toString());
-                        totalFail++;
+                    tableMetrics.record(ValidationMetrics.COMPARE, System.nanoTime() - pageStart - reportNanos);
+                    tableMetrics.record(ValidationMetrics.REPORT_WRITE, reportNanos);
+                    tableMetrics.add(ValidationMetrics.RECORDS_VALIDATED, records.size());
+                    tableMetrics.add(ValidationMetrics.RECORDS_FAILED, totalFail - failedBeforePage);
+                    resources.getMetrics().sampleHeap();
+                    System.out.println("Total Records Validate : [" + totalRecordValidated + "], Pass [" + totalPass + "], Fail [" + totalFail + "]"
+                            + (incremental ? ", Unchanged since last run [" + totalUnchanged + "]" : ""));
+                    if (checkpoint != null && checkpoint.isDue(++pagesSinceCheckpoint)) {
+                        long checkpointStart = System.nanoTime();
+                        //The report parts are closed before the checkpoint lists them as done
+                        closeReport(failureReport, "Failure");
+                        closeReport(successReport, "Success");
+                        Map<String, Long> counters = new LinkedHashMap<>();
+                        counters.put("records_validated", (long) totalRecordValidated);
+                        counters.put("pass", (long) totalPass);
+                        counters.put("fail", (long) totalFail);
+                        counters.put("unchanged", (long) totalUnchanged);
+                        checkpoint.saveVisitedRows(dataFromDatabricks);
+                        checkpoint.save(crawl.getResumePosition(), ++reportPart, overallValidationStatus, counters);
+                        pagesSinceCheckpoint = 0;
+                        reportSuffix = checkpoint.getReportSuffix(reportPart);
+                        failureReport = openReport(globalProp, validationTableName, "FailureReport", FAILURE_REPORT_HEADER, reportSuffix);
+                        successReport = openReport(globalProp, validationTableName, "SuccessReport", successReportHeader, reportSuffix);
+                        tableMetrics.record(ValidationMetrics.CHECKPOINT, System.nanoTime() - checkpointStart);
                     }
-                    if (totalRecordValidated % 100 == 0) {
-                        System.out.println("Total API Records Validated so far : " + totalRecordValidated);
+                    waitStart = System.nanoTime();
+                }
+                //One sweep over the visited bitset finds the Databricks rows no API record matched
+                if (crawl.isFullCrawl() && visitedRowsComplete) {
+                    for (int dbRow = dataFromDatabricks.nextUnvisitedRow(0); dbRow >= 0;
+                         dbRow = dataFromDatabricks.nextUnvisitedRow(dbRow + 1)) {
+                        String primaryValue = dataFromDatabricks.getValue(dbRow, dataFromDatabricks.getPrimaryKeyColumn());
+                        failureReport.writeRow(primaryValue, "Primary Value  [" + primaryValue + "] is not present in API response");
+                        totalMissingInAPI++;
+                        overallValidationStatus = false;
                     }
+                    tableMetrics.add(ValidationMetrics.RECORDS_MISSING_IN_API, totalMissingInAPI);
+                    System.out.println("Total Records Validate : [" + totalRecordValidated + "], Pass [" + totalPass + "], Fail [" + totalFail + "], Missing in API [" + totalMissingInAPI + "]"
+                            + (incremental ? ", Unchanged since last run [" + totalUnchanged + "]" : ""));
                 }
-                offset = offset + limit;
-                System.out.println("Total Records Validate : [" + totalRecordValidated + "], Pass [" + totalPass + "], Fail [" + totalFail + "]");
-
+                if (samplingEstimate != null) {
+                    System.out.println(samplingEstimate);
+                    writeSamplingEstimate(globalProp, validationTableName, samplingEstimate);
+                }
+            } finally {
+                closeReport(failureReport, "Failure");
+                closeReport(successReport, "Success");
+                writeCrawlMetrics(globalProp, validationTableName, crawl.getController());
             }
-
-            //Write the failure report in an excel
-            if (!failureReport.isEmpty()) {
-                writeFailureReport(failureReport, globalProp.getProperty("reportPath"), validationTableName);
+            if (incremental) {
+                newFingerprints.commit();
+                System.out.println("Fingerprint store updated with " + newFingerprints.size() + " records : " + fingerprintStoreFile);
             }
-            //Write the Success report in an excel
-            if (!successReport.isEmpty()) {
-                writeSuccessfulReport(mappingFilePath, globalProp.getProperty("reportPath"), validationTableName, successReport);
+            if (checkpoint != null) {
+                checkpoint.complete();
             }
             return overallValidationStatus;
 
         } catch (Exception e) {
             System.out.println("Exception Occurred while validating value between DB and JSON : " + e);
+            if (checkpoint != null) {
+                System.out.println("The next run resumes from the last checkpoint in "
+                        + ValidationCheckpoint.getCheckpointFolder(globalProp, validationTableName));
+            }
             return false;
         }
     }
 
-    public static String getValueFromJSON(JsonNode node, String jsonKey) {
+    //Records of the next page that can be compared, and after the last page those that waited for their Databricks row
+    private static List<String[]> nextRecords(PaginationStrategy crawl, OverlappedExtraction extraction) throws Exception {
+        if (extraction != null && extraction.isFinished()) {
+            return null;
+        }
+        AssetPageDecoder.AssetPage page = crawl.nextPage();
+        if (extraction == null) {
+            return page == null ? null : page.getRecords();
+        }
+        return page == null ? extraction.finish() : extraction.admit(page.getRecords());
+    }
+
+    /**
+     * This method will fetch one page of the given endpoint through RestAssured and decode its mapped fields straight
+     * from the response body. Meant for ad hoc checks, the validation runs fetch their pages with AssetApiClient.
+     *
+     * @param requestSpecification  - Request specification carrying base URI and common headers
+     * @param responseSpecification - Response specification used for logging
+     * @param proxy                 - Proxy to route the request through
+     * @param endPoint              - API endpoint to fetch
+     * @param offset                - Offset of the first record of the page
+     * @param limit                 - Maximum number of records in the page
+     * @param tokenManager          - Token manager handing out the access token, renewed once on a 401
+     * @param decoder               - Decoder reading the mapped fields
+     * @return AssetPage
+     */
+    public static AssetPageDecoder.AssetPage fetchAssetPage(RequestSpecification requestSpecification,
+                                                            ResponseSpecification responseSpecification, String proxy,
+                                                            String endPoint, int offset, int limit,
+                                                            TokenManager tokenManager,
+                                                            AssetPageDecoder decoder) throws Exception {
+        String accessToken = tokenManager.getToken();
+        Response response = requestAssetPage(requestSpecification, responseSpecification, proxy, endPoint, offset,
+                limit, accessToken);
+        //The token expired or was revoked, renew it once and repeat the page instead of failing the crawl
+        if (response.getStatusCode() == 401) {
+            System.out.println("Access token rejected for offset " + offset + ", renewing the token");
+            response = requestAssetPage(requestSpecification, responseSpecification, proxy, endPoint, offset, limit,
+                    tokenManager.refreshAfterUnauthorized(accessToken));
+        }
+        response.then().assertThat().statusCode(200);
+        return decoder.decode(response.asInputStream());
+    }
+
+    private static Response requestAssetPage(RequestSpecification requestSpecification,
+                                             ResponseSpecification responseSpecification, String proxy,
+                                             String endPoint, int offset, int limit, String accessToken) {
+        RequestSpecification request = given(requestSpecification);
+        if (proxy != null && !proxy.trim().isEmpty()) {
+            request.proxy(proxy);
+        }
+        return request.
+                header("Authorization", "Bearer " + accessToken).
+                when().param("offset", offset).param("limit", limit).
+                get(endPoint).
+                then().spec(responseSpecification).extract().response();
+    }
+
+    /**
+     * This method will write the metrics of the crawl controller of a table as CrawlMetrics_<time>.json in the report
+     * folder of the table.
+     *
+     * @param globalProp          - Global properties with reportPath
+     * @param validationTableName - Table properties file name
+     * @param controller          - Controller of the finished crawl
+     */
+    public static void writeCrawlMetrics(Properties globalProp, String validationTableName,
+                                         AdaptiveCrawlController controller) {
+        File metricsFile = new File(getReportFolder(globalProp, validationTableName) + File.separator
+                + "CrawlMetrics_" + getCurrentDateAndTime() + ".json");
         try {
-            if (jsonKey.contains(".")) {
-                String[] arr = jsonKey.split("\\.");
-                switch (arr.length) {
-                    case 2:
-                        return node.get(arr[0]).get(arr[1]).asText();
-                    case 3:
-                        return node.get(arr[0]).get(arr[1]).get(arr[2]).asText();
-                    case 4:
-                        return node.get(arr[0]).get(arr[1]).get(arr[2]).get(arr[3]).asText();
-                    default:
-                        System.out.println("Given JSON Path in the properties file is not supported");
-                        return null;
-                }
-            } else {
-                return node.get(jsonKey).asText();
-            }
+            metricsFile.getParentFile().mkdirs();
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(metricsFile, controller.getMetrics());
+            System.out.println("Crawl metrics written : " + metricsFile);
+        } catch (IOException e) {
+            System.out.println("Exception Occurred while writing crawl metrics : " + e);
+        }
+    }
 
+    /**
+     * This method will write the mismatch rate estimate of a sampled crawl as a json file in the report folder of the
+     * table.
+     *
+     * @param globalProp          - Global properties with reportPath
+     * @param validationTableName - Table properties file name
+     * @param estimate            - Estimate of the sampled crawl
+     */
+    public static void writeSamplingEstimate(Properties globalProp, String validationTableName,
+                                             SamplingEstimate estimate) {
+        File estimateFile = new File(getReportFolder(globalProp, validationTableName) + File.separator
+                + "SamplingEstimate_" + getCurrentDateAndTime() + ".json");
+        try {
+            estimateFile.getParentFile().mkdirs();
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(estimateFile, estimate.getMetrics());
+            System.out.println("Sampling estimate written : " + estimateFile);
+        } catch (IOException e) {
+            System.out.println("Exception Occurred while writing the sampling estimate : " + e);
+        }
+    }
+
+    /**
+     * This method will return the primary key type of the table, primary_key_type of the table properties.
+     *
+     * @param tableProp - Table properties
+     * @return string, uuid, long or auto
+     */
+    public static String getPrimaryKeyType(Properties tableProp) {
+        String primaryKeyType = tableProp.getProperty("primary_key_type", PrimaryKeyIndex.AUTO).trim().toLowerCase();
+        switch (primaryKeyType) {
+            case PrimaryKeyIndex.STRING:
+            case PrimaryKeyIndex.UUID:
+            case PrimaryKeyIndex.LONG:
+            case PrimaryKeyIndex.AUTO:
+                return primaryKeyType;
+            default:
+                System.out.println("Primary key type [" + primaryKeyType + "] is not supported, using auto");
+                return PrimaryKeyIndex.AUTO;
+        }
+    }
+
+    /**
+     * This method will tell whether the table is validated incrementally, that is validation_mode is incremental.
+     *
+     * @param tableProp - Table properties
+     * @return boolean
+     */
+    public static boolean isIncrementalValidation(Properties tableProp) {
+        return "incremental".equalsIgnoreCase(tableProp.getProperty("validation_mode", "full").trim());
+    }
+
+    /**
+     * This method will return the fingerprint store file of the table, FingerprintStore.dcvfp in the folder of
+     * fingerprint_store_path or, when that is not set, in the report folder of the table.
+     *
+     * @param globalProp          - Global properties
+     * @param validationTableName - Table properties file name
+     * @return File
+     */
+    public static File getFingerprintStoreFile(Properties globalProp, String validationTableName) {
+        String[] arr = validationTableName.split("\\.");
+        String folder = globalProp.getProperty("fingerprint_store_path", "").trim();
+        if (folder.isEmpty()) {
+            folder = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+                    + File.separator + globalProp.getProperty("reportPath");
+        }
+        return new File(folder + File.separator + arr[0] + File.separator + "FingerprintStore.dcvfp");
+    }
+
+    /**
+     * This method will return the report folder of the table, reportPath of the global properties followed by the
+     * table properties file name without its extension.
+     *
+     * @param globalProp          - Global properties with reportPath
+     * @param validationTableName - Table properties file name
+     * @return String
+     */
+    public static String getReportFolder(Properties globalProp, String validationTableName) {
+        String[] arr = validationTableName.split("\\.");
+        return System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+                + File.separator + globalProp.getProperty("reportPath") + File.separator + arr[0];
+    }
+
+    /**
+     * This method will return the absolute path of the DB to JSON mapping file configured for the table. The file
+     * name is resolved against src/test/resources unless it is an absolute path.
+     *
+     * @param tableProp - Table properties holding the mapping file name
+     * @return String
+     */
+    public static String getMappingFilePath(Properties tableProp) {
+        String mappingFileName = tableProp.getProperty("asset_table_db_json_mapping_file_name");
+        if (mappingFileName != null && new File(mappingFileName).isAbsolute()) {
+            return mappingFileName;
+        }
+        return System.getProperty("user.dir") + File.separator + "src" + File.separator
+                + "test" + File.separator + "resources" + File.separator
+                + tableProp.getProperty("asset_table_db_json_mapping_file_name");
+    }
+
+    /**
+     * This method will return the integer value of a property, or the default value when the property is missing,
+     * blank or not a number.
+     *
+     * @param prop         - Properties to read from
+     * @param key          - Property name
+     * @param defaultValue - Value used when the property is not set
+     * @return int
+     */
+    public static int getIntProperty(Properties prop, String key, int defaultValue) {
+        String value = prop.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.out.println("Property [" + key + "] is not a number, using default value " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * This method will return the text value at the given path of a JSON record, or null when the path is not
+     * present. The path is compiled on first use and reused afterwards, see JsonFieldPath for the notations.
+     *
+     * @param node    - JSON record
+     * @param jsonKey - Field path in dot or JSON Pointer notation
+     * @return String
+     */
+    public static String getValueFromJSON(JsonNode node, String jsonKey) {
+        try {
+            return JsonFieldPath.compile(jsonKey).readText(node);
         } catch (Exception e) {
             System.out.println("Exception Occurred while getting the JSON Value : " + e);
             return null;
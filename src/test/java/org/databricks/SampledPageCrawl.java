@@ -0,0 +1,208 @@
+package org.databricks;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+/**
+ * Sampling strategy, validates pages spread over the whole endpoint instead of its first records. sampling_mode random
+ * picks the pages uniformly at random among the pages of the endpoint, stratified divides the endpoint into as many
+ * equal ranges as pages are sampled and picks one page at random in each, so that every part of the catalog is in
+ * the sample. Pages hold sample_page_size records at offsets that are multiples of it, and the sample is the number of
+ * records to validate of the run, or sample_size records when the run validates every record.
+ * <p>
+ * The total of the endpoint is read with a first request of one record. The sampled pages are fetched concurrently
+ * through a PageFetchPipeline and returned in offset order, and the SamplingEstimate of the crawl reports the
+ * mismatch rate of the endpoint with its confidence interval. The seed is sample_seed, or a new seed that is printed
+ * and kept in the resume position, so a resumed run continues with the same pages. The estimate covers the pages
+ * validated since the start or the resume of the run.
+ */
+public class SampledPageCrawl implements PaginationStrategy {
+
+    public static final String RANDOM = "random";
+    public static final String STRATIFIED = "stratified";
+
+    private final ValidationResources resources;
+    private final String endPoint;
+    private final AssetPageDecoder decoder;
+    private final AdaptiveCrawlController controller;
+    private final String samplingMode;
+    private final int sampleSize;
+    private final int samplePageSize;
+    private final long seed;
+    private final double confidence;
+    private final String strataField;
+    private final int startPage;
+    private int[] sampledPageOffsets;
+    private int nextPage;
+    private int returnedPages;
+    private long total;
+    private PageFetchPipeline<AssetPageDecoder.AssetPage> pipeline;
+    private SamplingEstimate estimate;
+    private boolean started;
+
+    /**
+     * @param resources                      - Shared resources with the global properties, token, HTTP client and
+     *                                         page fetch threads
+     * @param tableProp                      - Table properties with the endpoint and the sample_ settings
+     * @param expectedTotalRecordsToValidate - Number of records to sample, negative to sample sample_size records
+     * @param decoder                        - Decoder reading the mapped fields of every page
+     * @param resumePosition                 - getResumePosition of the earlier crawl, null to start afresh
+     */
+    public SampledPageCrawl(ValidationResources resources, Properties tableProp, int expectedTotalRecordsToValidate,
+                            AssetPageDecoder decoder, String resumePosition) {
+        this.resources = resources;
+        this.endPoint = tableProp.getProperty("asset_table_end_point");
+        this.decoder = decoder;
+        this.controller = new AdaptiveCrawlController(resources.getGlobalProp());
+        this.samplingMode = getSamplingMode(tableProp);
+        this.sampleSize = expectedTotalRecordsToValidate >= 0 ? expectedTotalRecordsToValidate
+                : ReusableCommonMethods.getIntProperty(tableProp, "sample_size", 10000);
+        this.samplePageSize = Math.max(1, ReusableCommonMethods.getIntProperty(tableProp, "sample_page_size", 100));
+        this.confidence = Double.parseDouble(tableProp.getProperty("sample_confidence", "0.95").trim());
+        this.strataField = tableProp.getProperty("sample_strata_field", "").trim();
+        String configuredSeed = tableProp.getProperty("sample_seed", "").trim();
+        if (resumePosition != null && resumePosition.contains(":")) {
+            int separator = resumePosition.indexOf(':');
+            this.startPage = Integer.parseInt(resumePosition.substring(0, separator).trim());
+            this.seed = Long.parseLong(resumePosition.substring(separator + 1).trim());
+        } else {
+            this.startPage = 0;
+            this.seed = configuredSeed.isEmpty() ? new SplittableRandom().nextLong() : Long.parseLong(configuredSeed);
+        }
+        this.returnedPages = startPage;
+    }
+
+    /**
+     * This method will return the sampling mode of the table, sampling_mode of the table properties.
+     *
+     * @param tableProp - Table properties
+     * @return none, random or stratified
+     */
+    public static String getSamplingMode(Properties tableProp) {
+        String samplingMode = tableProp.getProperty("sampling_mode", "none").trim().toLowerCase();
+        switch (samplingMode) {
+            case "none":
+            case RANDOM:
+            case STRATIFIED:
+                return samplingMode;
+            default:
+                System.out.println("Sampling mode [" + samplingMode + "] is not supported, sampling is not used");
+                return "none";
+        }
+    }
+
+    public static boolean isEnabled(Properties tableProp) {
+        return !"none".equals(getSamplingMode(tableProp));
+    }
+
+    /**
+     * Returns the next sampled page in offset order, or null once every sampled page is returned.
+     */
+    @Override
+    public AssetPageDecoder.AssetPage nextPage() throws Exception {
+        if (!started) {
+            started = true;
+            total = fetchPage(0, 1).getTotal();
+            int population = (int) Math.min(Integer.MAX_VALUE, total);
+            if (total < 0) {
+                System.out.println("API response of " + endPoint + " has no total, sampling the first " + sampleSize + " records");
+                population = sampleSize;
+            }
+            sampledPageOffsets = choosePageOffsets(population);
+            nextPage = Math.min(startPage, sampledPageOffsets.length);
+            estimate = new SamplingEstimate(total, confidence, decoder.getFieldMapping(), strataField);
+            System.out.println("Sampling " + sampledPageOffsets.length + " pages of " + samplePageSize + " records out of "
+                    + (total < 0 ? "an unknown number of" : String.valueOf(total)) + " records, " + samplingMode
+                    + " sample with seed " + seed);
+            pipeline = new PageFetchPipeline<>(resources.getPageFetchExecutor(), controller::getConcurrency,
+                    this::nextPageRequest);
+        }
+        AssetPageDecoder.AssetPage page = pipeline.next();
+        if (page != null) {
+            returnedPages++;
+            estimate.addPage(page.getRecords());
+        }
+        return page;
+    }
+
+    //Page offsets of the sample in ascending order, the same for the same seed and total
+    private int[] choosePageOffsets(int population) {
+        int pageCount = (int) ((population + (long) samplePageSize - 1) / samplePageSize);
+        int samplePages = (int) Math.min(pageCount, ((long) sampleSize + samplePageSize - 1) / samplePageSize);
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] pages = new int[samplePages];
+        if (STRATIFIED.equals(samplingMode)) {
+            for (int stratum = 0; stratum < samplePages; stratum++) {
+                int first = (int) ((long) stratum * pageCount / samplePages);
+                int end = (int) ((long) (stratum + 1) * pageCount / samplePages);
+                pages[stratum] = first + random.nextInt(end - first);
+            }
+        } else {
+            //Floyd's algorithm draws distinct pages without listing every page of the endpoint
+            Set<Integer> chosen = new HashSet<>();
+            for (int candidate = pageCount - samplePages; candidate < pageCount; candidate++) {
+                int page = random.nextInt(candidate + 1);
+                chosen.add(chosen.contains(page) ? candidate : page);
+            }
+            int i = 0;
+            for (int page : chosen) {
+                pages[i++] = page;
+            }
+            Arrays.sort(pages);
+        }
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] *= samplePageSize;
+        }
+        return pages;
+    }
+
+    //Called on the consuming thread
+    private Callable<AssetPageDecoder.AssetPage> nextPageRequest() {
+        if (nextPage >= sampledPageOffsets.length) {
+            return null;
+        }
+        final int offset = sampledPageOffsets[nextPage++];
+        return () -> fetchPage(offset, samplePageSize);
+    }
+
+    private AssetPageDecoder.AssetPage fetchPage(int offset, int limit) throws Exception {
+        return controller.execute(() -> resources.getApiClient().fetchPage(endPoint, offset, limit,
+                resources.getTokenManager(), decoder), page -> page.getRecords().size(),
+                endPoint + " offset " + offset + " limit " + limit);
+    }
+
+    @Override
+    public boolean isFullCrawl() {
+        return false;
+    }
+
+    @Override
+    public String getResumePosition() {
+        return returnedPages + ":" + seed;
+    }
+
+    @Override
+    public AdaptiveCrawlController getController() {
+        return controller;
+    }
+
+    @Override
+    public SamplingEstimate getSamplingEstimate() {
+        return estimate;
+    }
+
+    @Override
+    public void close() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+        if (estimate != null) {
+            estimate.releaseRecords();
+        }
+        System.out.println(controller);
+    }
+}
@@ -0,0 +1,288 @@
+package org.databricks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Estimate of the mismatch rate of a whole endpoint from a sample of its pages. Every sampled page is a cluster of
+ * records, so the Wilson score interval of the rate is taken on the effective sample size: the sampled records
+ * divided by the design effect of the pages, estimated from the spread of their mismatch counts and never below 1.
+ * <p>
+ * With sample_strata_field set to a mapped JSON field, e.g. type.id or domain.id, the rate is also estimated for
+ * every value of that field found in the sample.
+ */
+public class SamplingEstimate {
+
+    private static final int STRATA_PRINTED = 20;
+
+    private final long populationSize;
+    private final double confidence;
+    private final double z;
+    private final String strataField;
+    //Index of the strata field in a decoded record, -1 for none
+    private final int strataIndex;
+    //Page of every sampled record not compared yet, records are compared out of page order when the Databricks rows
+    //are read alongside the crawl
+    private final Map<String[], Integer> pageOfRecord = new IdentityHashMap<>();
+    //Records and mismatches of every sampled page
+    private final List<long[]> pages = new ArrayList<>();
+    private final Map<String, long[]> strata = new TreeMap<>();
+    private long records;
+    private long mismatches;
+
+    /**
+     * @param populationSize - Records of the endpoint, -1 when the API reports no total
+     * @param confidence     - Confidence level of the intervals, e.g. 0.95
+     * @param fieldMapping   - Mapping of the decoded records
+     * @param strataField    - Mapped JSON field to estimate the rate per value of, null or empty for none
+     */
+    public SamplingEstimate(long populationSize, double confidence, FieldMapping fieldMapping, String strataField) {
+        this.populationSize = populationSize;
+        this.confidence = confidence;
+        this.z = normalQuantile(1 - (1 - confidence) / 2);
+        int index = -1;
+        if (strataField != null && !strataField.trim().isEmpty()) {
+            for (int entry = 0; entry < fieldMapping.size(); entry++) {
+                if (fieldMapping.getJsonKey(entry).equals(strataField.trim())) {
+                    index = entry + 1;
+                }
+            }
+            if (index < 0) {
+                System.out.println("Sample strata field [" + strataField.trim() + "] is not in the mapping file, the rate is not estimated per value");
+            }
+        }
+        this.strataIndex = index;
+        this.strataField = index < 0 ? null : strataField.trim();
+    }
+
+    /**
+     * This method will register the records of a sampled page, before they are compared.
+     *
+     * @param pageRecords - Records of the page
+     */
+    public void addPage(List<String[]> pageRecords) {
+        int page = pages.size();
+        pages.add(new long[2]);
+        for (String[] record : pageRecords) {
+            pageOfRecord.put(record, page);
+        }
+    }
+
+    /**
+     * This method will count the outcome of a compared record.
+     *
+     * @param record   - Record handed to addPage
+     * @param mismatch - true when the record did not match Databricks
+     */
+    public void record(String[] record, boolean mismatch) {
+        Integer page = pageOfRecord.remove(record);
+        if (page == null) {
+            return;
+        }
+        records++;
+        pages.get(page)[0]++;
+        if (strataIndex >= 0) {
+            strata.computeIfAbsent(String.valueOf(record[strataIndex]), value -> new long[2])[0]++;
+        }
+        if (mismatch) {
+            mismatches++;
+            pages.get(page)[1]++;
+            if (strataIndex >= 0) {
+                strata.get(String.valueOf(record[strataIndex]))[1]++;
+            }
+        }
+    }
+
+    /**
+     * This method will forget the sampled records that were registered but never compared, once the crawl is closed.
+     * The counts are kept.
+     */
+    public void releaseRecords() {
+        pageOfRecord.clear();
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    public double getMismatchRate() {
+        return records == 0 ? 0 : (double) mismatches / records;
+    }
+
+    /**
+     * This method will return the design effect of the page clusters, the variance of the rate over the variance a
+     * simple random sample of as many records would have.
+     *
+     * @return double, at least 1
+     */
+    public double getDesignEffect() {
+        int sampledPages = 0;
+        for (long[] page : pages) {
+            if (page[0] > 0) {
+                sampledPages++;
+            }
+        }
+        double rate = getMismatchRate();
+        if (sampledPages < 2 || rate == 0 || rate == 1) {
+            return 1;
+        }
+        double meanPageRecords = (double) records / sampledPages;
+        double sum = 0;
+        for (long[] page : pages) {
+            if (page[0] > 0) {
+                double residual = page[1] - rate * page[0];
+                sum += residual * residual;
+            }
+        }
+        double clusterVariance = sum / ((double) sampledPages * (sampledPages - 1) * meanPageRecords * meanPageRecords);
+        double simpleVariance = rate * (1 - rate) / records;
+        return Math.max(1, clusterVariance / simpleVariance);
+    }
+
+    /**
+     * This method will return the interval of the mismatch rate of the endpoint.
+     *
+     * @return {low, high}
+     */
+    public double[] getInterval() {
+        return wilson(mismatches, records / getDesignEffect(), records);
+    }
+
+    /**
+     * This method will return the estimate and the estimate of every value of the strata field.
+     *
+     * @return ordered map, ready to be written as JSON
+     */
+    public Map<String, Object> getMetrics() {
+        double designEffect = getDesignEffect();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("populationSize", populationSize);
+        metrics.put("sampledPages", pages.size());
+        metrics.put("sampledRecords", records);
+        metrics.put("mismatches", mismatches);
+        metrics.put("mismatchRate", getMismatchRate());
+        metrics.put("confidence", confidence);
+        double[] interval = getInterval();
+        metrics.put("mismatchRateLow", interval[0]);
+        metrics.put("mismatchRateHigh", interval[1]);
+        metrics.put("designEffect", designEffect);
+        if (populationSize >= 0) {
+            metrics.put("estimatedMismatchingRecords", Math.round(getMismatchRate() * populationSize));
+            metrics.put("estimatedMismatchingRecordsLow", Math.round(interval[0] * populationSize));
+            metrics.put("estimatedMismatchingRecordsHigh", Math.round(interval[1] * populationSize));
+        }
+        if (strataField != null) {
+            Map<String, Object> strataMetrics = new LinkedHashMap<>();
+            for (Map.Entry<String, long[]> stratum : strata.entrySet()) {
+                long[] counts = stratum.getValue();
+                double[] stratumInterval = wilson(counts[1], counts[0] / designEffect, counts[0]);
+                Map<String, Object> stratumMetrics = new LinkedHashMap<>();
+                stratumMetrics.put("sampledRecords", counts[0]);
+                stratumMetrics.put("mismatches", counts[1]);
+                stratumMetrics.put("mismatchRate", (double) counts[1] / counts[0]);
+                stratumMetrics.put("mismatchRateLow", stratumInterval[0]);
+                stratumMetrics.put("mismatchRateHigh", stratumInterval[1]);
+                strataMetrics.put(stratum.getKey(), stratumMetrics);
+            }
+            metrics.put("strataField", strataField);
+            metrics.put("strata", strataMetrics);
+        }
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        double[] interval = getInterval();
+        StringBuilder text = new StringBuilder("Sampled [").append(records).append("] of [")
+                .append(populationSize < 0 ? "unknown" : String.valueOf(populationSize)).append("] records in [")
+                .append(pages.size()).append("] pages, mismatch rate ").append(percent(getMismatchRate()))
+                .append(" (").append(BigDecimal.valueOf(confidence * 100).stripTrailingZeros().toPlainString())
+                .append("% CI ").append(percent(interval[0])).append(" - ")
+                .append(percent(interval[1])).append("), design effect ")
+                .append(String.format("%.2f", getDesignEffect()));
+        if (populationSize >= 0) {
+            text.append(", estimated mismatching records ").append(Math.round(getMismatchRate() * populationSize))
+                    .append(" (").append(Math.round(interval[0] * populationSize)).append(" - ")
+                    .append(Math.round(interval[1] * populationSize)).append(")");
+        }
+        if (strataField != null) {
+            //The largest strata are printed, every stratum is in the written estimate
+            List<Map.Entry<String, long[]>> largest = new ArrayList<>(strata.entrySet());
+            largest.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+            double designEffect = getDesignEffect();
+            for (Map.Entry<String, long[]> stratum : largest.subList(0, Math.min(STRATA_PRINTED, largest.size()))) {
+                long[] counts = stratum.getValue();
+                double[] stratumInterval = wilson(counts[1], counts[0] / designEffect, counts[0]);
+                text.append("\n  ").append(strataField).append(" [").append(stratum.getKey()).append("] : ")
+                        .append(counts[0]).append(" records, ").append(counts[1]).append(" mismatches, rate ")
+                        .append(percent((double) counts[1] / counts[0])).append(" (CI ")
+                        .append(percent(stratumInterval[0])).append(" - ").append(percent(stratumInterval[1]))
+                        .append(")");
+            }
+            if (largest.size() > STRATA_PRINTED) {
+                text.append("\n  ").append(largest.size() - STRATA_PRINTED).append(" more ").append(strataField)
+                        .append(" values in the sampling estimate file");
+            }
+        }
+        return text.toString();
+    }
+
+    //Wilson score interval of mismatches out of records, on the effective sample size
+    private double[] wilson(long mismatchCount, double effectiveRecords, long recordCount) {
+        if (recordCount == 0 || effectiveRecords <= 0) {
+            return new double[]{0, 1};
+        }
+        double rate = (double) mismatchCount / recordCount;
+        double z2 = z * z;
+        double denominator = 1 + z2 / effectiveRecords;
+        double centre = (rate + z2 / (2 * effectiveRecords)) / denominator;
+        double halfWidth = z * Math.sqrt(rate * (1 - rate) / effectiveRecords
+                + z2 / (4 * effectiveRecords * effectiveRecords)) / denominator;
+        return new double[]{Math.max(0, centre - halfWidth), Math.min(1, centre + halfWidth)};
+    }
+
+    private static String percent(double value) {
+        return String.format("%.3f%%", value * 100);
+    }
+
+    /**
+     * This method will return the quantile of the standard normal distribution, with the rational approximation of
+     * P. J. Acklam (relative error below 1.2e-9).
+     *
+     * @param p - Probability, between 0 and 1
+     * @return double
+     */
+    public static double normalQuantile(double p) {
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02,
+                -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01,
+                -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00,
+                4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
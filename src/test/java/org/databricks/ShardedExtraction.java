@@ -0,0 +1,174 @@
+package org.databricks;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the Databricks side of a table into one row store, split into db_shard_count shards by
+ * pmod(hash(primary key), db_shard_count). Every shard runs its own query on a connection borrowed from the shared
+ * pool, so no more than jdbc_pool_size shards read at once, and adds its rows to the row store in batches.
+ */
+public class ShardedExtraction {
+
+    private static final int APPEND_BATCH_ROWS = 1024;
+
+    /**
+     * This method will read the table SQL into a row store indexed by primary key, sharded when db_shard_count of the
+     * table properties is above 1. The fetch size is db_fetch_size of the table, or jdbc_fetch_size of the global
+     * properties.
+     *
+     * @param resources - Resources with the JDBC connection pool
+     * @param tableProp - Table properties
+     * @param sqlQuery  - Table SQL query
+     * @return DatabricksRowStore, or null when the data could not be read
+     */
+    public static DatabricksRowStore extract(ValidationResources resources, Properties tableProp, String sqlQuery)
+            throws Exception {
+        String primaryKeyColumnName = tableProp.getProperty("primary_key");
+        int fetchSize = getFetchSize(resources.getGlobalProp(), tableProp);
+        int shardCount = ReusableCommonMethods.getIntProperty(tableProp, "db_shard_count", 1);
+        String primaryKeyType = ReusableCommonMethods.getPrimaryKeyType(tableProp);
+        boolean primaryKeyOffHeap = Boolean.parseBoolean(tableProp.getProperty("primary_key_off_heap", "false").trim());
+        JdbcConnectionPool jdbcConnectionPool = resources.getJdbcConnectionPool();
+        if (shardCount <= 1) {
+            Connection connection = jdbcConnectionPool.borrow();
+            try {
+                ResultSet resultSet = ReusableCommonMethods.executeQuery(connection, sqlQuery, fetchSize);
+                //Get the entire DB data in a row store indexed by primary key
+                DatabricksRowStore dataFromDatabricks = ReusableCommonMethods.getDataFromDB(resultSet, primaryKeyColumnName,
+                        primaryKeyType, primaryKeyOffHeap);
+                resultSet.getStatement().close();
+                return dataFromDatabricks;
+            } finally {
+                jdbcConnectionPool.release(connection);
+            }
+        }
+
+        System.out.println("Reading Databricks data in " + shardCount + " shards");
+        ShardedRowStore rowStore = new ShardedRowStore(primaryKeyColumnName, primaryKeyType, primaryKeyOffHeap);
+        AtomicInteger skippedRows = new AtomicInteger();
+        ExecutorService shardExecutor = Executors.newFixedThreadPool(shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "db-shard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Integer>> shards = new ArrayList<>();
+            for (int shard = 0; shard < shardCount; shard++) {
+                String shardQuery = wrapWithShardFilter(sqlQuery, primaryKeyColumnName, shardCount, shard);
+                final int shardNumber = shard;
+                shards.add(shardExecutor.submit(() -> readShard(jdbcConnectionPool, shardQuery, fetchSize, rowStore,
+                        skippedRows, shardNumber, shardCount)));
+            }
+            int totalRowsRead = 0;
+            for (Future<Integer> shard : shards) {
+                totalRowsRead += shard.get();
+            }
+            if (skippedRows.get() > 0) {
+                System.out.println("Total Records skipped as primary key is NULL : " + skippedRows.get());
+            }
+            DatabricksRowStore dataFromDatabricks = rowStore.get();
+            System.out.println("Total Records read from Databricks : " + dataFromDatabricks.size()
+                    + " (" + totalRowsRead + " rows in " + shardCount + " shards)");
+            return dataFromDatabricks;
+        } catch (Exception e) {
+            //A partial extract would report the rows of the failed shard as missing in Databricks
+            System.out.println("Exception Occurred while fetching data from databricks in shards : " + e);
+            return null;
+        } finally {
+            shardExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * This method will restrict the table SQL to one hash shard of the primary key.
+     *
+     * @param sqlQuery             - Table SQL query
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @param shardCount           - Number of shards
+     * @param shard                - Shard number, 0 to shardCount - 1
+     * @return String
+     */
+    public static String wrapWithShardFilter(String sqlQuery, String primaryKeyColumnName, int shardCount, int shard) {
+        return "select * from (" + TableQuery.trimStatement(sqlQuery) + ") shard_source where pmod(hash(" + primaryKeyColumnName + "), "
+                + shardCount + ") = " + shard;
+    }
+
+    /**
+     * This method will return the JDBC fetch size of the table, db_fetch_size of the table properties or
+     * jdbc_fetch_size of the global properties.
+     *
+     * @param globalProp - Global properties
+     * @param tableProp  - Table properties
+     * @return int
+     */
+    public static int getFetchSize(Properties globalProp, Properties tableProp) {
+        return ReusableCommonMethods.getIntProperty(tableProp, "db_fetch_size",
+                ReusableCommonMethods.getIntProperty(globalProp, "jdbc_fetch_size", 10000));
+    }
+
+    private static int readShard(JdbcConnectionPool jdbcConnectionPool, String shardQuery, int fetchSize,
+                                 ShardedRowStore rowStore, AtomicInteger skippedRows, int shard, int shardCount)
+            throws Exception {
+        long start = System.currentTimeMillis();
+        Connection connection = jdbcConnectionPool.borrow();
+        try {
+            ResultSet resultSet = ReusableCommonMethods.executeQuery(connection, shardQuery, fetchSize);
+            try {
+                DatabricksRowStore store = rowStore.getOrCreate(resultSet);
+                //Rows are read outside the store lock and added a batch at a time
+                List<String[]> batch = new ArrayList<>(APPEND_BATCH_ROWS);
+                int rowsRead = 0;
+                while (resultSet.next()) {
+                    batch.add(store.readRow(resultSet));
+                    rowsRead++;
+                    if (batch.size() == APPEND_BATCH_ROWS) {
+                        skippedRows.addAndGet(store.appendRows(batch));
+                        batch.clear();
+                    }
+                }
+                skippedRows.addAndGet(store.appendRows(batch));
+                System.out.println("Shard " + (shard + 1) + " of " + shardCount + " read " + rowsRead + " records in "
+                        + (System.currentTimeMillis() - start) + " ms");
+                return rowsRead;
+            } finally {
+                resultSet.getStatement().close();
+            }
+        } finally {
+            jdbcConnectionPool.release(connection);
+        }
+    }
+
+    //The row store takes its column layout from whichever shard returns its result first
+    private static class ShardedRowStore {
+        private final String primaryKeyColumnName;
+        private final String primaryKeyType;
+        private final boolean primaryKeyOffHeap;
+        private DatabricksRowStore store;
+
+        ShardedRowStore(String primaryKeyColumnName, String primaryKeyType, boolean primaryKeyOffHeap) {
+            this.primaryKeyColumnName = primaryKeyColumnName;
+            this.primaryKeyType = primaryKeyType;
+            this.primaryKeyOffHeap = primaryKeyOffHeap;
+        }
+
+        synchronized DatabricksRowStore getOrCreate(ResultSet resultSet) throws Exception {
+            if (store == null) {
+                store = DatabricksRowStore.fromMetaData(resultSet.getMetaData(), primaryKeyColumnName,
+                        primaryKeyType, primaryKeyOffHeap);
+            }
+            return store;
+        }
+
+        synchronized DatabricksRowStore get() {
+            return store;
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package org.databricks;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Comparison engine that never holds either side fully in memory. The table SQL is wrapped with an ORDER BY on the
+ * primary key and read as a stream, API records are spilled to sorted run files on local disk and merged back in
+ * primary key order, and both ordered streams are joined in a single pass.
+ * <p>
+ * Primary keys are ordered as strings on both sides. The SQL side orders a string key as it is and casts any other key
+ * to VARCHAR, and this class compares keys by Unicode code point, which is the binary (UTF-8) order Databricks uses
+ * for strings. The merge relies on that order, so a run whose database returns the keys in another order fails.
+ */
+public class SortMergeComparison {
+
+    /**
+     * This method will validate the table using the sort-merge engine and write the failure and success reports.
+     *
+     * @param globalProp                     - Global properties
+     * @param tableProp                      - Table properties
+     * @param accessToken                    - API access token
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @param sqlQuery                       - Table SQL query, without ORDER BY
+     * @param validationTableName            - Table properties file name, used for the report folder
+     * @return true when every record matched
+     */
+    public static boolean performComparison(Properties globalProp, Properties tableProp, String accessToken,
+                                            int expectedTotalRecordsToValidate, String sqlQuery,
+                                            String validationTableName) {
+        try (ValidationResources resources = new ValidationResources(globalProp, accessToken)) {
+            return performComparison(resources, tableProp, expectedTotalRecordsToValidate, sqlQuery, validationTableName);
+        }
+    }
+
+    /**
+     * This method will validate the table using the sort-merge engine, with the HTTP client, token, page fetch
+     * threads and database connections of the shared resources.
+     *
+     * @param resources                      - Resources shared by the tables of the run
+     * @param tableProp                      - Table properties
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @param sqlQuery                       - Table SQL query, without ORDER BY
+     * @param validationTableName            - Table properties file name, used for the report folder
+     * @return true when every record matched
+     */
+    public static boolean performComparison(ValidationResources resources, Properties tableProp,
+                                            int expectedTotalRecordsToValidate, String sqlQuery,
+                                            String validationTableName) {
+        Properties globalProp = resources.getGlobalProp();
+        List<File> runFiles = new ArrayList<>();
+        Connection connection = null;
+        try {
+            String primaryKeyColumnName = tableProp.getProperty("primary_key");
+            String primaryKeyInJSONResponse = tableProp.getProperty("primary_key_in_json_response");
+            String mappingFilePath = ReusableCommonMethods.getMappingFilePath(tableProp);
+            FieldMapping fieldMapping;
+            try {
+                fieldMapping = FieldMapping.load(mappingFilePath);
+            } catch (IOException e) {
+                System.out.println("No Property file is available in the name of " +
+                        "[" + tableProp.getProperty("asset_table_db_json_mapping_file_name") + "] under folder DB_JSON_MAPPING");
+                return false;
+            }
+            JsonFieldPath primaryKeyPath = JsonFieldPath.compile(primaryKeyInJSONResponse);
+
+            //Spill the API side into sorted runs
+            int runSize = ReusableCommonMethods.getIntProperty(tableProp, "sort_merge_run_size", 100000);
+            File spillDirectory = getSpillDirectory(globalProp);
+            boolean fullCrawl;
+            ValidationMetrics.TableMetrics tableMetrics = resources.getMetrics().forTable(validationTableName);
+            AssetPageDecoder decoder = new AssetPageDecoder(primaryKeyPath, fieldMapping, tableMetrics);
+            PaginationStrategy crawl = PaginationStrategy.create(resources, tableProp, expectedTotalRecordsToValidate,
+                    decoder);
+            crawl.getController().setMetrics(tableMetrics);
+            try (crawl) {
+                fullCrawl = crawl.isFullCrawl();
+                if (SampledPageCrawl.isEnabled(tableProp)) {
+                    System.out.println("The sort_merge engine validates the sampled records without a sampling estimate, use the in_memory engine for the mismatch rate");
+                }
+                List<String[]> buffer = new ArrayList<>();
+                int totalRecordsSpilled = 0;
+                AssetPageDecoder.AssetPage page;
+                while ((page = crawl.nextPage()) != null) {
+                    for (String[] record : page.getRecords()) {
+                        buffer.add(record);
+                        if (buffer.size() >= runSize) {
+                            runFiles.add(writeRun(buffer, spillDirectory));
+                            totalRecordsSpilled += buffer.size();
+                            buffer.clear();
+                        }
+                    }
+                }
+                if (!buffer.isEmpty()) {
+                    runFiles.add(writeRun(buffer, spillDirectory));
+                    totalRecordsSpilled += buffer.size();
+                }
+                System.out.println("Total API Records spilled : " + totalRecordsSpilled + " in " + runFiles.size() + " sorted runs");
+            } finally {
+                ReusableCommonMethods.writeCrawlMetrics(globalProp, validationTableName, crawl.getController());
+            }
+
+            //Stream the DB side in primary key order
+            connection = resources.getJdbcConnectionPool().borrow();
+            boolean stringPrimaryKey = isStringColumn(connection, sqlQuery, primaryKeyColumnName);
+            ResultSet resultSet = ReusableCommonMethods.executeQuery(connection,
+                    wrapWithOrderBy(sqlQuery, primaryKeyColumnName, stringPrimaryKey),
+                    ShardedExtraction.getFetchSize(globalProp, tableProp));
+            ResultSetMetaData md = resultSet.getMetaData();
+            //An empty row store gives the column layout of the result
+            DatabricksRowStore columnLayout = DatabricksRowStore.fromMetaData(md, primaryKeyColumnName);
+            int primaryKeyColumn = columnLayout.getPrimaryKeyColumn();
+            int[] dbColumns = fieldMapping.resolveColumns(columnLayout);
+            String[] dbRow = new String[md.getColumnCount()];
+            TypedColumnReader columnReader = TypedColumnReader.fromMetaData(md);
+            //In incremental mode records that matched last run and are unchanged on both sides are not compared again
+            boolean incremental = ReusableCommonMethods.isIncrementalValidation(tableProp);
+            long mappingSignature = FingerprintStore.mappingSignature(fieldMapping);
+            File fingerprintStoreFile = ReusableCommonMethods.getFingerprintStoreFile(globalProp, validationTableName);
+            FingerprintStore previousFingerprints = incremental ? FingerprintStore.open(fingerprintStoreFile, mappingSignature) : null;
+            FingerprintStore.Writer newFingerprints = incremental ? new FingerprintStore.Writer(fingerprintStoreFile, mappingSignature) : null;
+            int totalUnchanged = 0;
+
+            boolean overallValidationStatus = true;
+            int totalRecordValidated = 0;
+            int totalPass = 0;
+            int totalFail = 0;
+            int totalMissingInAPI = 0;
+            //Reports are written during the merge, so passing rows are not kept either
+            String[] successReportHeader = new String[fieldMapping.size()];
+            for (int i = 0; i < fieldMapping.size(); i++) {
+                successReportHeader[i] = fieldMapping.getDbColumn(i);
+            }
+            ReportSink failureReport = ReusableCommonMethods.openReport(globalProp, validationTableName,
+                    "FailureReport", ReusableCommonMethods.FAILURE_REPORT_HEADER);
+            ReportSink successReport = ReusableCommonMethods.openReport(globalProp, validationTableName,
+                    "SuccessReport", successReportHeader);
+            try (RunMerger apiRecords = new RunMerger(runFiles)) {
+                String[] apiRecord = apiRecords.next();
+                boolean hasDbRow = nextDbRow(resultSet, columnReader, dbRow, primaryKeyColumn);
+                boolean dbRowMatched = false;
+                while (apiRecord != null || (hasDbRow && fullCrawl)) {
+                    int cmp;
+                    if (apiRecord == null) {
+                        cmp = 1;
+                    } else if (!hasDbRow) {
+                        cmp = -1;
+                    } else {
+                        cmp = comparePrimaryKeys(apiRecord[0], dbRow[primaryKeyColumn]);
+                    }
+                    if (cmp < 0) {
+                        //API record has no DB row
+                        totalRecordValidated++;
+                        totalFail++;
+                        overallValidationStatus = false;
+                        failureReport.writeRow(apiRecord[0], "Primary Value  [" + apiRecord[0] + "] is not present in Databricks Database");
+                        apiRecord = apiRecords.next();
+                    } else if (cmp > 0) {
+                        //DB row is passed, it is missing in the API when no API record matched it
+                        if (!dbRowMatched && fullCrawl) {
+                            totalMissingInAPI++;
+                            overallValidationStatus = false;
+                            failureReport.writeRow(dbRow[primaryKeyColumn], "Primary Value  [" + dbRow[primaryKeyColumn] + "] is not present in API response");
+                        }
+                        //A repeated primary key keeps the match of the row before it
+                        String passedPrimaryValue = dbRow[primaryKeyColumn];
+                        hasDbRow = nextDbRow(resultSet, columnReader, dbRow, primaryKeyColumn);
+                        dbRowMatched = dbRowMatched && hasDbRow && passedPrimaryValue.equals(dbRow[primaryKeyColumn]);
+                    } else {
+                        totalRecordValidated++;
+                        dbRowMatched = true;
+                        long keyHash = 0;
+                        long fingerprint = 0;
+                        if (incremental) {
+                            keyHash = FingerprintStore.hashKey(apiRecord[0]);
+                            fingerprint = FingerprintStore.fingerprint(apiRecord, 1);
+                            if (previousFingerprints.matches(keyHash, fingerprint)
+                                    && FingerprintStore.fingerprint(dbRow, dbColumns) == fingerprint) {
+                                totalUnchanged++;
+                                totalPass++;
+                                newFingerprints.add(keyHash, fingerprint);
+                                apiRecord = apiRecords.next();
+                                continue;
+                            }
+                        }
+                        StringBuilder validationResultMessage = new StringBuilder();
+                        for (int i = 0; i < dbColumns.length; i++) {
+                            String valueFromJSON = apiRecord[i + 1];
+                            String valueFromDB = dbColumns[i] < 0 ? null : dbRow[dbColumns[i]];
+                            if (!fieldMapping.getComparator(i).matches(valueFromDB, valueFromJSON)) {
+                                validationResultMessage.append("Value not matching for [").append(fieldMapping.getJsonKey(i)).append("], ").append("Expected value from JSON [").append(valueFromJSON).append("],Actual value from DB [").append(valueFromDB).append("]").append("\n");
+                            }
+                        }
+                        if (validationResultMessage.length() == 0) {
+                            totalPass++;
+                            String[] successRow = new String[dbColumns.length];
+                            for (int i = 0; i < dbColumns.length; i++) {
+                                successRow[i] = dbColumns[i] < 0 ? null : dbRow[dbColumns[i]];
+                            }
+                            successReport.writeRow(successRow);
+                            if (incremental) {
+                                newFingerprints.add(keyHash, fingerprint);
+                            }
+                        } else {
+                            totalFail++;
+                            overallValidationStatus = false;
+                            failureReport.writeRow(apiRecord[0], validationResultMessage.toString());
+                        }
+                        apiRecord = apiRecords.next();
+                    }
+                    if (totalRecordValidated > 0 && totalRecordValidated % 10000 == 0 && cmp <= 0) {
+                        System.out.println("Total API Records Validated so far : " + totalRecordValidated);
+                    }
+                }
+            } finally {
+                resultSet.getStatement().close();
+                ReusableCommonMethods.closeReport(failureReport, "Failure");
+                ReusableCommonMethods.closeReport(successReport, "Success");
+            }
+            System.out.println("Total Records Validate : [" + totalRecordValidated + "], Pass [" + totalPass + "], Fail [" + totalFail + "], Missing in API [" + totalMissingInAPI + "]"
+                    + (incremental ? ", Unchanged since last run [" + totalUnchanged + "]" : ""));
+            tableMetrics.add(ValidationMetrics.RECORDS_VALIDATED, totalRecordValidated);
+            tableMetrics.add(ValidationMetrics.RECORDS_FAILED, totalFail);
+            tableMetrics.add(ValidationMetrics.RECORDS_MISSING_IN_API, totalMissingInAPI);
+            if (incremental) {
+                newFingerprints.commit();
+                System.out.println("Fingerprint store updated with " + newFingerprints.size() + " records : " + fingerprintStoreFile);
+            }
+            return overallValidationStatus;
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while validating value between DB and JSON using sort-merge : " + e);
+            return false;
+        } finally {
+            resources.getJdbcConnectionPool().release(connection);
+            for (File runFile : runFiles) {
+                if (!runFile.delete()) {
+                    runFile.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * This method will wrap the table SQL so that rows are returned in primary key order, compared as strings. A key
+     * of another type is cast to VARCHAR, which Databricks and other databases alike accept.
+     *
+     * @param sqlQuery             - Table SQL query
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @param stringPrimaryKey     - Whether the primary key column already is a string column
+     * @return String
+     */
+    public static String wrapWithOrderBy(String sqlQuery, String primaryKeyColumnName, boolean stringPrimaryKey) {
+        return "select * from (" + TableQuery.trimStatement(sqlQuery) + ") sort_merge_source order by "
+                + (stringPrimaryKey ? primaryKeyColumnName : "cast(" + primaryKeyColumnName + " as varchar(255))");
+    }
+
+    //Reads the column layout of the table SQL without rows, true when the primary key column holds strings
+    private static boolean isStringColumn(Connection connection, String sqlQuery, String primaryKeyColumnName)
+            throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(TableQuery.wrapWithNoRows(sqlQuery))) {
+            ResultSetMetaData md = resultSet.getMetaData();
+            for (int i = 1; i <= md.getColumnCount(); i++) {
+                String columnName = md.getColumnName(i);
+                if (columnName.contains(".")) {
+                    columnName = columnName.substring(columnName.indexOf(".") + 1);
+                }
+                if (columnName.equalsIgnoreCase(primaryKeyColumnName)) {
+                    switch (md.getColumnType(i)) {
+                        case Types.CHAR:
+                        case Types.VARCHAR:
+                        case Types.LONGVARCHAR:
+                        case Types.NCHAR:
+                        case Types.NVARCHAR:
+                        case Types.LONGNVARCHAR:
+                            return true;
+                        default:
+                            return false;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares two primary keys by Unicode code point, nulls first.
+     */
+    public static int comparePrimaryKeys(String left, String right) {
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : -1) : 1;
+        }
+        int length = Math.min(left.length(), right.length());
+        for (int i = 0; i < length; i++) {
+            char l = left.charAt(i);
+            char r = right.charAt(i);
+            if (l != r) {
+                //Surrogates encode code points above every other char, unlike their raw UTF-16 value
+                if (Character.isSurrogate(l) != Character.isSurrogate(r)) {
+                    return Character.isSurrogate(l) ? 1 : -1;
+                }
+                return l - r;
+            }
+        }
+        return left.length() - right.length();
+    }
+
+    private static boolean nextDbRow(ResultSet resultSet, TypedColumnReader columnReader, String[] dbRow,
+                                     int primaryKeyColumn) throws Exception {
+        String previousPrimaryValue = dbRow[primaryKeyColumn];
+        while (resultSet.next()) {
+            columnReader.readRow(resultSet, dbRow);
+            //Rows without a primary key cannot be matched
+            if (dbRow[primaryKeyColumn] != null) {
+                //A key out of order would report matching records as missing on both sides
+                if (previousPrimaryValue != null && comparePrimaryKeys(previousPrimaryValue, dbRow[primaryKeyColumn]) > 0) {
+                    throw new IllegalStateException("Databricks rows are not in primary key order, [" + previousPrimaryValue
+                            + "] was returned before [" + dbRow[primaryKeyColumn] + "]");
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static File getSpillDirectory(Properties globalProp) {
+        String spillPath = globalProp.getProperty("sort_merge_spill_path");
+        File spillDirectory = new File(spillPath == null || spillPath.trim().isEmpty()
+                ? System.getProperty("java.io.tmpdir") : spillPath.trim());
+        if (!spillDirectory.exists() && !spillDirectory.mkdirs()) {
+            System.out.println("Spill folder [" + spillDirectory + "] could not be created");
+        }
+        return spillDirectory;
+    }
+
+    private static File writeRun(List<String[]> buffer, File spillDirectory) throws IOException {
+        buffer.sort((left, right) -> comparePrimaryKeys(left[0], right[0]));
+        File runFile = File.createTempFile("api_run_", ".bin", spillDirectory);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), 1 << 16))) {
+            out.writeInt(buffer.size());
+            out.writeInt(buffer.get(0).length);
+            for (String[] record : buffer) {
+                for (String value : record) {
+                    writeString(out, value);
+                }
+            }
+        }
+        return runFile;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * K-way merge of the sorted run files, returning records in primary key order.
+     */
+    private static class RunMerger implements Closeable {
+        private final PriorityQueue<RunReader> heap =
+                new PriorityQueue<>((left, right) -> comparePrimaryKeys(left.current[0], right.current[0]));
+        private final List<RunReader> readers = new ArrayList<>();
+
+        RunMerger(List<File> runFiles) throws IOException {
+            for (File runFile : runFiles) {
+                RunReader reader = new RunReader(runFile);
+                readers.add(reader);
+                if (reader.advance()) {
+                    heap.add(reader);
+                }
+            }
+        }
+
+        String[] next() throws IOException {
+            RunReader reader = heap.poll();
+            if (reader == null) {
+                return null;
+            }
+            String[] record = reader.current;
+            if (reader.advance()) {
+                heap.add(reader);
+            }
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+
+    private static class RunReader {
+        private final DataInputStream in;
+        private int remaining;
+        private final int recordLength;
+        private String[] current;
+
+        RunReader(File runFile) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), 1 << 16));
+            remaining = in.readInt();
+            recordLength = in.readInt();
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            remaining--;
+            current = new String[recordLength];
+            for (int i = 0; i < recordLength; i++) {
+                current[i] = readString(in);
+            }
+            return true;
+        }
+    }
+}
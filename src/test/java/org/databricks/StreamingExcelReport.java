@@ -0,0 +1,121 @@
+package org.databricks;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Excel report written row by row through an SXSSFWorkbook. Only the last rowWindow rows are kept in memory, older
+ * rows are flushed to a temporary file, and a new sheet is started with the same header once a sheet reaches the
+ * Excel row limit. The workbook is created with the first row, so a report without rows leaves no file behind.
+ */
+public class StreamingExcelReport implements ReportSink {
+
+    private static final int MAX_ROWS_PER_SHEET = SpreadsheetVersion.EXCEL2007.getMaxRows();
+    private static final int MAX_CELL_TEXT_LENGTH = SpreadsheetVersion.EXCEL2007.getMaxTextLength();
+
+    private final String filePath;
+    private final String sheetName;
+    private final String[] header;
+    private final int rowWindow;
+    private SXSSFWorkbook workbook;
+    private CellStyle headerStyle;
+    private SXSSFSheet sheet;
+    private int sheetCount;
+    private int nextRowInSheet;
+    private long rowsWritten;
+
+    /**
+     * @param filePath  - Path of the xlsx file, parent folders are created when missing
+     * @param sheetName - Name of the first sheet, further sheets get a _2, _3 ... suffix
+     * @param header    - Header row repeated on every sheet
+     * @param rowWindow - Number of rows kept in memory before they are flushed to disk
+     */
+    public StreamingExcelReport(String filePath, String sheetName, String[] header, int rowWindow) {
+        this.filePath = filePath;
+        this.sheetName = sheetName;
+        this.header = header;
+        this.rowWindow = Math.max(1, rowWindow);
+    }
+
+    /**
+     * This method will append a row to the report. Null values leave the cell empty.
+     *
+     * @param values - Cell values in header order
+     */
+    @Override
+    public void writeRow(String... values) {
+        if (workbook == null) {
+            workbook = new SXSSFWorkbook(rowWindow);
+            workbook.setCompressTempFiles(true);
+            //One style is shared by every header cell of every sheet
+            headerStyle = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setBold(true);
+            headerStyle.setFont(font);
+        }
+        if (sheet == null || nextRowInSheet == MAX_ROWS_PER_SHEET) {
+            startSheet();
+        }
+        Row row = sheet.createRow(nextRowInSheet++);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                String value = values[i];
+                row.createCell(i).setCellValue(value.length() > MAX_CELL_TEXT_LENGTH
+                        ? value.substring(0, MAX_CELL_TEXT_LENGTH) : value);
+            }
+        }
+        rowsWritten++;
+    }
+
+    private void startSheet() {
+        sheetCount++;
+        sheet = workbook.createSheet(sheetCount == 1 ? sheetName : sheetName + "_" + sheetCount);
+        Row row = sheet.createRow(0);
+        for (int i = 0; i < header.length; i++) {
+            row.createCell(i).setCellValue(header[i]);
+            row.getCell(i).setCellStyle(headerStyle);
+        }
+        nextRowInSheet = 1;
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * This method will write the report to its file and release the temporary files. Nothing is written when no
+     * row was added.
+     */
+    @Override
+    public void close() throws IOException {
+        if (workbook == null) {
+            return;
+        }
+        try {
+            File parent = new File(filePath).getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Report folder [" + parent + "] could not be created");
+            }
+            try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
+                workbook.write(fileOut);
+            }
+        } finally {
+            workbook.close();
+            workbook = null;
+        }
+    }
+}
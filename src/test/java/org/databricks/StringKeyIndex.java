@@ -0,0 +1,114 @@
+package org.databricks;
+
+import java.util.Arrays;
+
+/**
+ * Primary key index for keys of any form. Keys are kept as String objects in chunks by row, an open-addressing table
+ * holds (row index + 1) of every key, 0 marking an empty slot.
+ */
+public class StringKeyIndex implements PrimaryKeyIndex {
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+
+    private String[][] keys = new String[16][];
+    private int[] slots = new int[1024];
+    private int size;
+    private long keyBytes;
+
+    @Override
+    public boolean accepts(String key) {
+        return true;
+    }
+
+    @Override
+    public int indexOf(String key) {
+        if (key == null) {
+            return -1;
+        }
+        int mask = slots.length - 1;
+        int slot = mix(key.hashCode()) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (key.equals(keyAt(entry - 1))) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int add(String key) {
+        int existingRow = indexOf(key);
+        if (existingRow >= 0) {
+            return existingRow;
+        }
+        int row = size;
+        int chunk = row >>> CHUNK_SHIFT;
+        if (chunk == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        if (keys[chunk] == null) {
+            keys[chunk] = new String[CHUNK_ROWS];
+        }
+        keys[chunk][row & CHUNK_MASK] = key;
+        //Latin-1 String: 24 byte object and a byte[] of 16 byte header and the characters, 8 byte aligned
+        keyBytes += 24 + ((16 + key.length() + 7) & ~7);
+        size++;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insertSlot(slots, row);
+        }
+        return row;
+    }
+
+    @Override
+    public String keyAt(int row) {
+        return keys[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getKeyType() {
+        return STRING;
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        long chunkBytes = 0;
+        for (String[] chunk : keys) {
+            chunkBytes += chunk == null ? 0 : 16 + 4L * CHUNK_ROWS;
+        }
+        return 4L * slots.length + chunkBytes + keyBytes;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] newSlots = new int[newCapacity];
+        for (int row = 0; row < size; row++) {
+            insertSlot(newSlots, row);
+        }
+        slots = newSlots;
+    }
+
+    private void insertSlot(int[] table, int row) {
+        int mask = table.length - 1;
+        int slot = mix(keyAt(row).hashCode()) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+
+    private static int mix(int hash) {
+        //Spread the String hash so that keys sharing a prefix do not cluster in the low bits
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,110 @@
+package org.databricks;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Builds the Databricks SQL of a table. With sql_mode=projected the query is generated from the table_name and
+ * primary_key properties and the columns of the DB_JSON_MAPPING file, so only the compared columns are read. With
+ * sql_mode=file (default) it is the sql_query file, with its <table_name> placeholder replaced by table_name.
+ * <p>
+ * Sampled runs read only the rows of the sampled primary keys, see wrapWithKeyFilter and OverlappedExtraction.
+ */
+public class TableQuery {
+
+    public static final String TABLE_NAME_PLACEHOLDER = "<table_name>";
+
+    /**
+     * This method will return the SQL query of the table, projected from the mapping file or read from sql_query.
+     *
+     * @param tableProp - Table properties
+     * @return String, or null when the query could not be built
+     */
+    public static String forTable(Properties tableProp) {
+        String tableName = tableProp.getProperty("table_name", "").trim();
+        if ("projected".equalsIgnoreCase(tableProp.getProperty("sql_mode", "file").trim())) {
+            if (tableName.isEmpty()) {
+                System.out.println("Please enter the table_name property at the table level properties file for sql_mode projected");
+                return null;
+            }
+            try {
+                return project(tableName, tableProp.getProperty("primary_key"),
+                        FieldMapping.load(ReusableCommonMethods.getMappingFilePath(tableProp)));
+            } catch (IOException e) {
+                System.out.println("Exception Occurred while reading the mapping file for the projected query : " + e);
+                return null;
+            }
+        }
+        String sqlQuery = ReusableCommonMethods.readSQLQuery(tableProp.getProperty("sql_query"));
+        if (sqlQuery != null && sqlQuery.contains(TABLE_NAME_PLACEHOLDER)) {
+            if (tableName.isEmpty()) {
+                System.out.println("Please enter the table_name property for the " + TABLE_NAME_PLACEHOLDER
+                        + " placeholder of the SQL file");
+                return null;
+            }
+            sqlQuery = sqlQuery.replace(TABLE_NAME_PLACEHOLDER, tableName);
+        }
+        return sqlQuery;
+    }
+
+    /**
+     * This method will generate a query reading the primary key and every mapped column of the table, each once.
+     *
+     * @param tableName            - Table, e.g. catalog.schema.table
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @param fieldMapping         - Mapping of the API fields to the DB columns
+     * @return String
+     */
+    public static String project(String tableName, String primaryKeyColumnName, FieldMapping fieldMapping) {
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add(primaryKeyColumnName.trim().toLowerCase());
+        for (int entry = 0; entry < fieldMapping.size(); entry++) {
+            columns.add(fieldMapping.getDbColumn(entry).toLowerCase());
+        }
+        return "select " + String.join(", ", columns) + " from " + tableName;
+    }
+
+    /**
+     * This method will restrict the table SQL to the rows of the given number of primary keys, bound as parameters
+     * of an IN list.
+     *
+     * @param sqlQuery             - Table SQL query
+     * @param primaryKeyColumnName - Name of the primary key column
+     * @param keyCount             - Number of keys, one ? each
+     * @return String
+     */
+    public static String wrapWithKeyFilter(String sqlQuery, String primaryKeyColumnName, int keyCount) {
+        StringBuilder query = new StringBuilder("select * from (").append(trimStatement(sqlQuery))
+                .append(") lookup_source where ").append(primaryKeyColumnName).append(" in (");
+        for (int key = 0; key < keyCount; key++) {
+            query.append(key == 0 ? "?" : ", ?");
+        }
+        return query.append(")").toString();
+    }
+
+    /**
+     * This method will restrict the table SQL to no rows, for reading the column layout of its result.
+     *
+     * @param sqlQuery - Table SQL query
+     * @return String
+     */
+    public static String wrapWithNoRows(String sqlQuery) {
+        return "select * from (" + trimStatement(sqlQuery) + ") layout_source where 1 = 0";
+    }
+
+    /**
+     * This method will remove the trailing semicolon of a statement, so that it can be used as a subquery.
+     *
+     * @param sqlQuery - SQL query
+     * @return String
+     */
+    public static String trimStatement(String sqlQuery) {
+        String query = sqlQuery.trim();
+        if (query.endsWith(";")) {
+            query = query.substring(0, query.length() - 1);
+        }
+        return query;
+    }
+}
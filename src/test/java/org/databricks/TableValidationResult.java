@@ -0,0 +1,69 @@
+package org.databricks;
+
+/**
+ * Outcome and timing of the validation of one table.
+ */
+public class TableValidationResult {
+
+    private final String validationTableName;
+    private boolean passed;
+    private String errorMessage;
+    private long dbExtractMillis;
+    private long comparisonMillis;
+    private long totalMillis;
+
+    public TableValidationResult(String validationTableName) {
+        this.validationTableName = validationTableName;
+    }
+
+    public String getValidationTableName() {
+        return validationTableName;
+    }
+
+    public boolean isPassed() {
+        return passed;
+    }
+
+    public void setPassed(boolean passed) {
+        this.passed = passed;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public long getDbExtractMillis() {
+        return dbExtractMillis;
+    }
+
+    public void setDbExtractMillis(long dbExtractMillis) {
+        this.dbExtractMillis = dbExtractMillis;
+    }
+
+    public long getComparisonMillis() {
+        return comparisonMillis;
+    }
+
+    public void setComparisonMillis(long comparisonMillis) {
+        this.comparisonMillis = comparisonMillis;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Table [" + validationTableName + "], Status [" + (passed ? "PASS" : "FAIL") + "], DB Extract ["
+                + dbExtractMillis + " ms], Comparison [" + comparisonMillis + " ms], Total [" + totalMillis + " ms]"
+                + (errorMessage == null ? "" : ", Error [" + errorMessage + "]");
+    }
+}
@@ -0,0 +1,160 @@
+package org.databricks;
+
+import io.restassured.response.Response;
+
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the API access token for every request of the run. The token is renewed on a background thread
+ * token_refresh_ahead_seconds before its expires_in runs out, and a request rejected with 401 asks for a renewal of
+ * the token it used. Renewals are serialised and a caller whose token was already replaced gets the new token
+ * without a further request, so concurrent page fetches never cause a burst of token requests.
+ */
+public class TokenManager implements AutoCloseable {
+
+    private static final long RETRY_AFTER_FAILED_REFRESH_MILLIS = 10000;
+
+    private final Properties globalProp;
+    private final boolean renewable;
+    private final long refreshAheadMillis;
+    private final long defaultLifetimeMillis;
+    private final Object refreshLock = new Object();
+    private final ScheduledExecutorService scheduler;
+    private volatile String token;
+    private volatile long expiresAtMillis;
+    private ScheduledFuture<?> scheduledRefresh;
+
+    /**
+     * Creates a manager that requests its tokens from the token_url of the global properties. The first token is
+     * requested right away, a failed request is thrown.
+     *
+     * @param globalProp - Global properties with the token request parameters
+     */
+    public TokenManager(Properties globalProp) {
+        this(globalProp, null, true);
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            scheduler.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a manager for a token obtained by the caller. The token is used until a request is rejected with 401,
+     * a new token is then requested from token_url.
+     *
+     * @param globalProp   - Global properties with the token request parameters
+     * @param initialToken - Token to use first
+     */
+    public TokenManager(Properties globalProp, String initialToken) {
+        this(globalProp, initialToken, true);
+    }
+
+    private TokenManager(Properties globalProp, String initialToken, boolean renewable) {
+        this.globalProp = globalProp;
+        this.renewable = renewable;
+        this.token = initialToken;
+        this.expiresAtMillis = Long.MAX_VALUE;
+        this.refreshAheadMillis = ReusableCommonMethods.getIntProperty(globalProp, "token_refresh_ahead_seconds", 300) * 1000L;
+        this.defaultLifetimeMillis = ReusableCommonMethods.getIntProperty(globalProp, "token_default_expires_in", 3600) * 1000L;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a manager that always hands out the given token and never requests a new one.
+     *
+     * @param token - Token to use
+     * @return TokenManager
+     */
+    public static TokenManager fixed(String token) {
+        return new TokenManager(new Properties(), token, false);
+    }
+
+    /**
+     * This method will return the current token, renewing it first when it has already expired.
+     *
+     * @return String
+     */
+    public String getToken() {
+        String current = token;
+        if (current == null || System.currentTimeMillis() >= expiresAtMillis) {
+            return refreshIfCurrent(current);
+        }
+        return current;
+    }
+
+    /**
+     * This method will renew the token after a request was rejected with 401. When another caller already renewed
+     * it, the newer token is returned without a further token request.
+     *
+     * @param rejectedToken - Token the rejected request was sent with
+     * @return String
+     */
+    public String refreshAfterUnauthorized(String rejectedToken) {
+        return refreshIfCurrent(rejectedToken);
+    }
+
+    private String refreshIfCurrent(String staleToken) {
+        synchronized (refreshLock) {
+            String current = token;
+            if (current != null && !current.equals(staleToken) && System.currentTimeMillis() < expiresAtMillis) {
+                return current;
+            }
+            if (!renewable) {
+                return current;
+            }
+            refresh();
+            return token;
+        }
+    }
+
+    private void refresh() {
+        synchronized (refreshLock) {
+            Response response = ReusableCommonMethods.requestAccessToken(globalProp);
+            String newToken = response.jsonPath().getString("access_token");
+            if (newToken == null || newToken.isEmpty()) {
+                throw new IllegalStateException("Token response has no access_token");
+            }
+            String expiresIn = response.jsonPath().getString("expires_in");
+            long lifetimeMillis = expiresIn == null ? defaultLifetimeMillis : Long.parseLong(expiresIn.trim()) * 1000L;
+            token = newToken;
+            expiresAtMillis = System.currentTimeMillis() + lifetimeMillis;
+            System.out.println("Access token renewed, valid for " + lifetimeMillis / 1000 + " seconds");
+            //Renew ahead of expiry, a token living less than twice the lead time is renewed half way through
+            scheduleRefresh(Math.max(lifetimeMillis - refreshAheadMillis, lifetimeMillis / 2));
+        }
+    }
+
+    private void scheduleRefresh(long delayMillis) {
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        scheduledRefresh = scheduler.schedule(() -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                System.out.println("Exception Occurred while renewing the access token in background : " + e);
+                synchronized (refreshLock) {
+                    scheduleRefresh(RETRY_AFTER_FAILED_REFRESH_MILLIS);
+                }
+            }
+        }, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package org.databricks;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Reads the columns of a ResultSet with the getter of their JDBC type, chosen once from the ResultSetMetaData, and
+ * gives every value the text the API uses for it:
+ * <ul>
+ * <li>integer types with getLong, in decimal digits</li>
+ * <li>DECIMAL and NUMERIC with getBigDecimal, in plain notation without exponent</li>
+ * <li>BOOLEAN and BIT with getBoolean, as true or false</li>
+ * <li>TIMESTAMP with getTimestamp, as an ISO-8601 instant in UTC, e.g. 2020-09-13T12:26:40.123Z</li>
+ * <li>DATE with getDate, as yyyy-MM-dd</li>
+ * <li>any other type with getString</li>
+ * </ul>
+ * A SQL NULL is read as null, not as text, so it can be told apart from the string "NULL".
+ */
+public class TypedColumnReader {
+
+    private final int[] jdbcTypes;
+
+    private TypedColumnReader(int[] jdbcTypes) {
+        this.jdbcTypes = jdbcTypes;
+    }
+
+    /**
+     * This method will create the reader of the columns of a ResultSet.
+     *
+     * @param md - Metadata of the ResultSet
+     * @return TypedColumnReader
+     */
+    public static TypedColumnReader fromMetaData(ResultSetMetaData md) throws SQLException {
+        int[] jdbcTypes = new int[md.getColumnCount()];
+        for (int i = 0; i < jdbcTypes.length; i++) {
+            jdbcTypes[i] = md.getColumnType(i + 1);
+        }
+        return new TypedColumnReader(jdbcTypes);
+    }
+
+    /**
+     * This method will create a reader that reads every column with getString, for a layout without metadata.
+     *
+     * @param columnCount - Number of columns
+     * @return TypedColumnReader
+     */
+    public static TypedColumnReader untyped(int columnCount) {
+        int[] jdbcTypes = new int[columnCount];
+        Arrays.fill(jdbcTypes, Types.OTHER);
+        return new TypedColumnReader(jdbcTypes);
+    }
+
+    /**
+     * This method will read the current row of the ResultSet into the given array.
+     *
+     * @param resultSet - ResultSet positioned on the row to read
+     * @param values    - Array of at least one value per column
+     */
+    public void readRow(ResultSet resultSet, String[] values) throws SQLException {
+        for (int i = 0; i < jdbcTypes.length; i++) {
+            values[i] = read(resultSet, i + 1, jdbcTypes[i]);
+        }
+    }
+
+    private static String read(ResultSet resultSet, int column, int jdbcType) throws SQLException {
+        switch (jdbcType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT: {
+                long value = resultSet.getLong(column);
+                return resultSet.wasNull() ? null : Long.toString(value);
+            }
+            case Types.DECIMAL:
+            case Types.NUMERIC: {
+                BigDecimal value = resultSet.getBigDecimal(column);
+                return value == null ? null : value.toPlainString();
+            }
+            case Types.BOOLEAN:
+            case Types.BIT: {
+                boolean value = resultSet.getBoolean(column);
+                return resultSet.wasNull() ? null : Boolean.toString(value);
+            }
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE: {
+                Timestamp value = resultSet.getTimestamp(column);
+                return value == null ? null : value.toInstant().toString();
+            }
+            case Types.DATE: {
+                Date value = resultSet.getDate(column);
+                return value == null ? null : value.toLocalDate().toString();
+            }
+            default:
+                return resultSet.getString(column);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.databricks;
+
+import java.util.Arrays;
+
+/**
+ * Primary key index for UUID keys such as Collibra asset ids. A key in the canonical lower case form
+ * (xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx) is packed into its most and least significant 64 bits, 16 bytes per row
+ * instead of a String of about 80 bytes, and is formatted back to the same text by keyAt. The two halves of a key are
+ * stored next to each other so that comparing a key reads one cache line. The packed keys live on the heap or in
+ * direct memory, the open-addressing table of (row index + 1) stays on the heap.
+ * <p>
+ * Lookups parse the key without allocating. A key that is not a canonical UUID cannot be present, so it is answered
+ * with -1 without probing.
+ */
+public class UuidKeyIndex implements PrimaryKeyIndex {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    //Value of every lower case hex digit, INVALID for any other character below 128
+    private static final int INVALID = 0x10;
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) INVALID);
+        for (int i = 0; i < HEX_DIGITS.length; i++) {
+            HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+        }
+    }
+
+    //Most significant bits of row r at 2r, least significant bits at 2r + 1
+    private final PackedLongArray keys;
+    private int[] slots = new int[1024];
+    private int size;
+
+    /**
+     * @param offHeap - true to keep the packed keys in direct memory
+     */
+    public UuidKeyIndex(boolean offHeap) {
+        this.keys = new PackedLongArray(offHeap);
+    }
+
+    /**
+     * @param key - Primary key
+     * @return true when the key is a UUID in canonical lower case form
+     */
+    public static boolean isCanonical(String key) {
+        if (!hasCanonicalShape(key)) {
+            return false;
+        }
+        int invalid = 0;
+        for (int i = 0; i < 36; i++) {
+            if (i != 8 && i != 13 && i != 18 && i != 23) {
+                invalid |= hexValue(key.charAt(i));
+            }
+        }
+        return (invalid & INVALID) == 0;
+    }
+
+    @Override
+    public boolean accepts(String key) {
+        return isCanonical(key);
+    }
+
+    @Override
+    public int indexOf(String key) {
+        if (!hasCanonicalShape(key)) {
+            return -1;
+        }
+        //Digits are checked while they are packed, a single pass over the key
+        long msb = 0;
+        long lsb = 0;
+        int invalid = 0;
+        for (int i = 0; i < 18; i++) {
+            if (i != 8 && i != 13) {
+                int value = hexValue(key.charAt(i));
+                invalid |= value;
+                msb = (msb << 4) | value;
+            }
+        }
+        for (int i = 19; i < 36; i++) {
+            if (i != 23) {
+                int value = hexValue(key.charAt(i));
+                invalid |= value;
+                lsb = (lsb << 4) | value;
+            }
+        }
+        if ((invalid & INVALID) != 0) {
+            return -1;
+        }
+        return indexOf(msb, lsb);
+    }
+
+    private int indexOf(long msb, long lsb) {
+        int mask = slots.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int row = entry - 1;
+            if (keys.get(2 * row) == msb && keys.get(2 * row + 1) == lsb) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public int add(String key) {
+        long msb = mostSignificantBits(key);
+        long lsb = leastSignificantBits(key);
+        int existingRow = indexOf(msb, lsb);
+        if (existingRow >= 0) {
+            return existingRow;
+        }
+        int row = size;
+        keys.set(2 * row, msb);
+        keys.set(2 * row + 1, lsb);
+        size++;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insertSlot(slots, row);
+        }
+        return row;
+    }
+
+    @Override
+    public String keyAt(int row) {
+        char[] text = new char[36];
+        long msb = keys.get(2 * row);
+        long lsb = keys.get(2 * row + 1);
+        int position = 0;
+        for (int digit = 0; digit < 32; digit++) {
+            if (digit == 8 || digit == 12 || digit == 16 || digit == 20) {
+                text[position++] = '-';
+            }
+            long bits = digit < 16 ? msb >>> (60 - 4 * digit) : lsb >>> (60 - 4 * (digit - 16));
+            text[position++] = HEX_DIGITS[(int) (bits & 0xF)];
+        }
+        return new String(text);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getKeyType() {
+        return UUID;
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        return 4L * slots.length + keys.getAllocatedBytes();
+    }
+
+    private static boolean hasCanonicalShape(String key) {
+        return key != null && key.length() == 36 && key.charAt(8) == '-' && key.charAt(13) == '-'
+                && key.charAt(18) == '-' && key.charAt(23) == '-';
+    }
+
+    private static int hexValue(char c) {
+        return c < 128 ? HEX_VALUES[c] : INVALID;
+    }
+
+    //Characters 0-7, 9-12 and 14-17 of the canonical form
+    private static long mostSignificantBits(String key) {
+        return (hexBits(key, 0, 8) << 32) | (hexBits(key, 9, 13) << 16) | hexBits(key, 14, 18);
+    }
+
+    //Characters 19-22 and 24-35 of the canonical form
+    private static long leastSignificantBits(String key) {
+        return (hexBits(key, 19, 23) << 48) | hexBits(key, 24, 36);
+    }
+
+    private static long hexBits(String key, int from, int to) {
+        long bits = 0;
+        for (int i = from; i < to; i++) {
+            bits = (bits << 4) | hexValue(key.charAt(i));
+        }
+        return bits;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] newSlots = new int[newCapacity];
+        for (int row = 0; row < size; row++) {
+            insertSlot(newSlots, row);
+        }
+        slots = newSlots;
+    }
+
+    private void insertSlot(int[] table, int row) {
+        int mask = table.length - 1;
+        int slot = hash(keys.get(2 * row), keys.get(2 * row + 1)) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+
+    private static int hash(long msb, long lsb) {
+        //Murmur3 finaliser, ids that only differ in their last digits still spread over the whole table
+        long h = msb ^ (lsb * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,393 @@
+package org.databricks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoint of a long in_memory validation, so that a run that fails half way through is resumed instead of being
+ * started again from offset 0. Enabled with checkpoint_enabled in the global properties.
+ * <p>
+ * The checkpoint folder of a table holds three files. RowStore.dcvrs is a snapshot of the Databricks row store taken
+ * right after the extract, a resumed run reads it instead of querying Databricks again. Checkpoint.properties is
+ * rewritten every checkpoint_interval_pages pages with the position of the crawl after the last compared page, the
+ * counters and the report part to continue with, right after VisitedRows.dcvrs with the rows matched so far. The
+ * reports of a checkpointed run are written in parts (SuccessReport_<time>_part<n>), the parts are closed at every
+ * checkpoint so that every part listed as done is a complete file. Parts written after the last checkpoint are deleted
+ * when the run is resumed.
+ * <p>
+ * The files carry a signature of the run setup: table SQL, mapping file, primary key, endpoint, pagination mode and
+ * number of records in scope. A checkpoint of another setup is discarded. The folder is emptied once the crawl of
+ * the table is complete.
+ */
+public class ValidationCheckpoint {
+
+    private static final String STATE_FILE = "Checkpoint.properties";
+    private static final String ROW_STORE_FILE = "RowStore.dcvrs";
+    private static final String ROW_STORE_MAGIC = "DCVRS003";
+    private static final String VISITED_ROWS_FILE = "VisitedRows.dcvrs";
+    private static final String VISITED_ROWS_MAGIC = "DCVVR001";
+
+    private final Properties globalProp;
+    private final String validationTableName;
+    private final File folder;
+    private final String runSignature;
+    private final int intervalPages;
+    private final Properties state;
+    private final boolean resuming;
+
+    private ValidationCheckpoint(Properties globalProp, String validationTableName, File folder, String runSignature,
+                                 Properties state, boolean resuming) {
+        this.globalProp = globalProp;
+        this.validationTableName = validationTableName;
+        this.folder = folder;
+        this.runSignature = runSignature;
+        this.intervalPages = Math.max(1, ReusableCommonMethods.getIntProperty(globalProp, "checkpoint_interval_pages", 20));
+        this.state = state;
+        this.resuming = resuming;
+    }
+
+    public static boolean isEnabled(Properties globalProp) {
+        return Boolean.parseBoolean(globalProp.getProperty("checkpoint_enabled", "false").trim());
+    }
+
+    /**
+     * This method will open the checkpoint of the table, picking up the checkpoint left by an earlier run of the same
+     * setup.
+     *
+     * @param globalProp                     - Global properties with checkpoint_enabled, checkpoint_path and
+     *                                         checkpoint_interval_pages
+     * @param tableProp                      - Table properties
+     * @param validationTableName            - Table properties file name
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @return ValidationCheckpoint, or null when checkpoints are not enabled
+     */
+    public static ValidationCheckpoint open(Properties globalProp, Properties tableProp, String validationTableName,
+                                            int expectedTotalRecordsToValidate) {
+        if (!isEnabled(globalProp)) {
+            return null;
+        }
+        return open(globalProp, tableProp, validationTableName, expectedTotalRecordsToValidate,
+                TableQuery.forTable(tableProp));
+    }
+
+    /**
+     * This method will open the checkpoint of the table for the given SQL query. A checkpoint taken with another query,
+     * e.g. after table_name or sql_mode changed, is not resumed.
+     *
+     * @param globalProp                     - Global properties with checkpoint_enabled, checkpoint_path and
+     *                                         checkpoint_interval_pages
+     * @param tableProp                      - Table properties
+     * @param validationTableName            - Table properties file name
+     * @param expectedTotalRecordsToValidate - Number of API records to validate, negative to validate every record
+     * @param sqlQuery                       - SQL query the Databricks rows are read with
+     * @return ValidationCheckpoint, or null when checkpoints are not enabled
+     */
+    public static ValidationCheckpoint open(Properties globalProp, Properties tableProp, String validationTableName,
+                                            int expectedTotalRecordsToValidate, String sqlQuery) {
+        if (!isEnabled(globalProp)) {
+            return null;
+        }
+        File folder = getCheckpointFolder(globalProp, validationTableName);
+        String runSignature = runSignature(tableProp, expectedTotalRecordsToValidate, sqlQuery);
+        File stateFile = new File(folder, STATE_FILE);
+        if (stateFile.isFile()) {
+            Properties state = ReusableCommonMethods.getPropertiesFileObject(stateFile.getPath());
+            if (state != null && runSignature.equals(state.getProperty("run_signature"))) {
+                System.out.println("Resuming [" + validationTableName + "] from the checkpoint of "
+                        + state.getProperty("checkpoint_time") + " : " + state.getProperty("counter.records_validated")
+                        + " records validated");
+                return new ValidationCheckpoint(globalProp, validationTableName, folder, runSignature, state, true);
+            }
+            System.out.println("Checkpoint of [" + validationTableName + "] was taken with another setup, starting again");
+            deleteFiles(folder);
+        }
+        Properties state = new Properties();
+        state.setProperty("run_signature", runSignature);
+        state.setProperty("report_stamp", ReusableCommonMethods.getCurrentDateAndTime());
+        state.setProperty("next_report_part", "1");
+        return new ValidationCheckpoint(globalProp, validationTableName, folder, runSignature, state, false);
+    }
+
+    /**
+     * @return true when the run continues from the checkpoint of an earlier run
+     */
+    public boolean isResuming() {
+        return resuming;
+    }
+
+    /**
+     * @return position to resume the crawl from, as returned by PaginationStrategy.getResumePosition, or null to
+     * start from the first page
+     */
+    public String getResumePosition() {
+        return resuming ? state.getProperty("resume_position") : null;
+    }
+
+    /**
+     * @param name - Counter name, as given to save
+     * @return value of the counter at the last checkpoint, 0 when the run is not resumed
+     */
+    public long getCounter(String name) {
+        String value = state.getProperty("counter." + name);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * @return false when a record failed before the last checkpoint
+     */
+    public boolean getValidationStatus() {
+        return Boolean.parseBoolean(state.getProperty("validation_status", "true"));
+    }
+
+    /**
+     * @return number of the report part the run continues with
+     */
+    public int getReportPart() {
+        return Integer.parseInt(state.getProperty("next_report_part"));
+    }
+
+    /**
+     * @param part - Report part number
+     * @return suffix of the report file names of the part
+     */
+    public String getReportSuffix(int part) {
+        return state.getProperty("report_stamp") + "_part" + part;
+    }
+
+    /**
+     * @param pagesSinceCheckpoint - Pages compared since the last checkpoint
+     * @return true when checkpoint_interval_pages pages were compared since the last checkpoint
+     */
+    public boolean isDue(int pagesSinceCheckpoint) {
+        return pagesSinceCheckpoint >= intervalPages;
+    }
+
+    /**
+     * This method will delete the report parts written after the last checkpoint, they hold records that are
+     * compared again by the resumed run and may be incomplete files.
+     *
+     * @param reportNames - Report names, e.g. FailureReport
+     */
+    public void discardUnfinishedReportParts(String... reportNames) {
+        File[] reportFiles = new File(ReusableCommonMethods.getReportFolder(globalProp, validationTableName)).listFiles();
+        if (reportFiles == null) {
+            return;
+        }
+        int firstUnfinishedPart = getReportPart();
+        for (File reportFile : reportFiles) {
+            for (String reportName : reportNames) {
+                String prefix = reportName + "_" + state.getProperty("report_stamp") + "_part";
+                String name = reportFile.getName();
+                if (!name.startsWith(prefix)) {
+                    continue;
+                }
+                int end = name.indexOf('.', prefix.length());
+                String part = name.substring(prefix.length(), end < 0 ? name.length() : end);
+                if (part.matches("\\d+") && Integer.parseInt(part) >= firstUnfinishedPart && reportFile.delete()) {
+                    System.out.println("Deleted report part written after the last checkpoint : " + reportFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method will record a checkpoint. The reports of the parts before nextReportPart must be closed already.
+     * The state file is replaced atomically, a failure while writing it leaves the previous checkpoint in place.
+     *
+     * @param resumePosition   - Position of the crawl after the last compared page
+     * @param nextReportPart   - Report part the run continues with
+     * @param validationStatus - false when a record failed so far
+     * @param counters         - Counters to restore on resume
+     */
+    public void save(String resumePosition, int nextReportPart, boolean validationStatus, Map<String, Long> counters)
+            throws IOException {
+        state.setProperty("resume_position", resumePosition);
+        state.setProperty("next_report_part", String.valueOf(nextReportPart));
+        state.setProperty("validation_status", String.valueOf(validationStatus));
+        state.setProperty("checkpoint_time", ReusableCommonMethods.getCurrentDateAndTime());
+        for (Map.Entry<String, Long> counter : counters.entrySet()) {
+            state.setProperty("counter." + counter.getKey(), String.valueOf(counter.getValue()));
+        }
+        File stateFile = new File(folder, STATE_FILE);
+        writeAtomically(stateFile, out -> state.store(out, "Checkpoint of " + validationTableName));
+    }
+
+    /**
+     * This method will read the row store snapshot of the checkpoint.
+     *
+     * @return DatabricksRowStore, or null when there is no snapshot of the current setup
+     */
+    public DatabricksRowStore loadRowStore() {
+        File rowStoreFile = new File(folder, ROW_STORE_FILE);
+        if (!rowStoreFile.isFile()) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(rowStoreFile), 1 << 16))) {
+            if (!ROW_STORE_MAGIC.equals(in.readUTF()) || !runSignature.equals(in.readUTF())) {
+                System.out.println("Row store snapshot of [" + validationTableName + "] was taken with another setup, ignored");
+                return null;
+            }
+            DatabricksRowStore store = DatabricksRowStore.readFrom(in);
+            System.out.println("Total Records read from the row store snapshot : " + store.size() + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return store;
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while reading the row store snapshot : " + e);
+            return null;
+        }
+    }
+
+    /**
+     * This method will write a snapshot of the row store to the checkpoint folder. A failure is printed and the run
+     * goes on without the snapshot.
+     *
+     * @param store - Row store read from Databricks
+     */
+    public void saveRowStore(DatabricksRowStore store) {
+        long start = System.currentTimeMillis();
+        File rowStoreFile = new File(folder, ROW_STORE_FILE);
+        try {
+            writeAtomically(rowStoreFile, out -> {
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+                data.writeUTF(ROW_STORE_MAGIC);
+                data.writeUTF(runSignature);
+                store.writeTo(data);
+                data.flush();
+            });
+            System.out.println("Row store snapshot written in " + (System.currentTimeMillis() - start) + " ms : "
+                    + rowStoreFile);
+        } catch (IOException e) {
+            System.out.println("Exception Occurred while writing the row store snapshot : " + e);
+        }
+    }
+
+    /**
+     * This method will write the visited bitset of the row store, before the state of the same checkpoint is saved.
+     *
+     * @param store - Row store marked by the comparison
+     */
+    public void saveVisitedRows(DatabricksRowStore store) throws IOException {
+        writeAtomically(new File(folder, VISITED_ROWS_FILE), out -> {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            data.writeUTF(VISITED_ROWS_MAGIC);
+            data.writeUTF(runSignature);
+            store.writeVisitedTo(data);
+            data.flush();
+        });
+    }
+
+    /**
+     * This method will restore the visited bitset of the last checkpoint into the row store.
+     *
+     * @param store - Row store of the resumed run
+     * @return false when the checkpoint has no visited rows of the current setup
+     */
+    public boolean loadVisitedRows(DatabricksRowStore store) {
+        File visitedRowsFile = new File(folder, VISITED_ROWS_FILE);
+        if (!visitedRowsFile.isFile()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(visitedRowsFile), 1 << 16))) {
+            if (!VISITED_ROWS_MAGIC.equals(in.readUTF()) || !runSignature.equals(in.readUTF())) {
+                return false;
+            }
+            store.readVisitedFrom(in);
+            return true;
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while reading the visited rows of the checkpoint : " + e);
+            return false;
+        }
+    }
+
+    /**
+     * This method will remove the checkpoint once the crawl of the table is complete, the next run starts afresh.
+     */
+    public void complete() {
+        deleteFiles(folder);
+    }
+
+    /**
+     * This method will return the checkpoint folder of the table, Checkpoint in the folder of checkpoint_path or,
+     * when that is not set, in the report folder of the table.
+     *
+     * @param globalProp          - Global properties
+     * @param validationTableName - Table properties file name
+     * @return File
+     */
+    public static File getCheckpointFolder(Properties globalProp, String validationTableName) {
+        String folder = globalProp.getProperty("checkpoint_path", "").trim();
+        if (folder.isEmpty()) {
+            return new File(ReusableCommonMethods.getReportFolder(globalProp, validationTableName), "Checkpoint");
+        }
+        return new File(folder + File.separator + validationTableName.split("\\.")[0], "Checkpoint");
+    }
+
+    private static String runSignature(Properties tableProp, int expectedTotalRecordsToValidate, String sqlQuery) {
+        CRC32 crc = new CRC32();
+        //The resolved query, so a changed table_name or sql_mode is another setup
+        update(crc, sqlQuery == null ? null : TableQuery.trimStatement(sqlQuery));
+        try {
+            crc.update(Files.readAllBytes(new File(ReusableCommonMethods.getMappingFilePath(tableProp)).toPath()));
+        } catch (IOException e) {
+            update(crc, "no mapping file");
+        }
+        update(crc, tableProp.getProperty("primary_key"));
+        update(crc, tableProp.getProperty("primary_key_in_json_response"));
+        update(crc, tableProp.getProperty("asset_table_end_point"));
+        update(crc, tableProp.getProperty("pagination_mode", "offset").trim().toLowerCase());
+        update(crc, SampledPageCrawl.getSamplingMode(tableProp));
+        update(crc, tableProp.getProperty("sample_size", "") + "/" + tableProp.getProperty("sample_page_size", ""));
+        update(crc, String.valueOf(expectedTotalRecordsToValidate));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static void update(CRC32 crc, String value) {
+        crc.update((value == null ? "" : value).getBytes(StandardCharsets.UTF_8));
+        crc.update(0);
+    }
+
+    private interface FileContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private static void writeAtomically(File file, FileContent content) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Checkpoint folder [" + parent + "] could not be created");
+        }
+        File tempFile = new File(parent, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            content.writeTo(out);
+            out.flush();
+            out.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteFiles(File folder) {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    System.out.println("Checkpoint file could not be deleted : " + file);
+                }
+            }
+        }
+        folder.delete();
+    }
+}
@@ -0,0 +1,427 @@
+package org.databricks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Run-time metrics of a validation run: per table stage timers with latency histograms and counters, and the heap
+ * high-water mark of the JVM. Timers and counters can be updated from any thread without locking.
+ * <p>
+ * The stages are db_extract (Databricks query and row store), http_wait (API request until the response headers),
+ * json_parse (reading and decoding a page body), page_fetch (a page from request to decoded records), page_wait (the
+ * comparison waiting for the next page), compare, report_write and checkpoint. The metrics are written as
+ * ValidationMetrics_<time>.json below reportPath every metrics_flush_seconds and when the run ends, and are served on
+ * http://127.0.0.1:<metrics_http_port>/metrics (Prometheus text) and /metrics.json when metrics_http_port is set.
+ */
+public class ValidationMetrics implements AutoCloseable {
+
+    public static final String DB_EXTRACT = "db_extract";
+    public static final String HTTP_WAIT = "http_wait";
+    public static final String JSON_PARSE = "json_parse";
+    public static final String PAGE_FETCH = "page_fetch";
+    public static final String PAGE_WAIT = "page_wait";
+    public static final String COMPARE = "compare";
+    public static final String REPORT_WRITE = "report_write";
+    public static final String CHECKPOINT = "checkpoint";
+
+    public static final String RECORDS_READ_DB = "records_read_db";
+    public static final String RECORDS_VALIDATED = "records_validated";
+    public static final String RECORDS_FAILED = "records_failed";
+    public static final String RECORDS_MISSING_IN_API = "records_missing_in_api";
+    public static final String BYTES_READ = "bytes_read";
+
+    private static final String[] STAGES = {DB_EXTRACT, HTTP_WAIT, JSON_PARSE, PAGE_FETCH, PAGE_WAIT, COMPARE,
+            REPORT_WRITE, CHECKPOINT};
+    private static final long HEAP_SAMPLE_MILLIS = 1000;
+
+    private final long startMillis = System.currentTimeMillis();
+    private final Map<String, TableMetrics> tables = new ConcurrentSkipListMap<>();
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong heapHighWaterBytes = new AtomicLong();
+    private final File metricsFile;
+    private final ScheduledExecutorService scheduler;
+    private final HttpServer httpServer;
+
+    /**
+     * Starts the heap sampling, the periodic metrics file and, with metrics_http_port set, the local endpoint.
+     *
+     * @param globalProp - Global properties with reportPath, metrics_flush_seconds and metrics_http_port
+     */
+    public ValidationMetrics(Properties globalProp) {
+        this.metricsFile = new File(System.getProperty("user.dir") + File.separator + "src" + File.separator + "test"
+                + File.separator + globalProp.getProperty("reportPath") + File.separator + "ValidationMetrics_"
+                + ReusableCommonMethods.getCurrentDateAndTime() + ".json");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "validation-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sampleHeap, 0, HEAP_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+        int flushSeconds = ReusableCommonMethods.getIntProperty(globalProp, "metrics_flush_seconds", 30);
+        if (flushSeconds > 0) {
+            scheduler.scheduleAtFixedRate(this::flush, flushSeconds, flushSeconds, TimeUnit.SECONDS);
+        }
+        this.httpServer = startHttpServer(ReusableCommonMethods.getIntProperty(globalProp, "metrics_http_port", 0));
+    }
+
+    /**
+     * This method will return the metrics of a table, created on first use.
+     *
+     * @param validationTableName - Table properties file name
+     * @return TableMetrics
+     */
+    public TableMetrics forTable(String validationTableName) {
+        return tables.computeIfAbsent(validationTableName, TableMetrics::new);
+    }
+
+    /**
+     * This method will update the heap high-water mark with the heap in use now. Called every second and at every
+     * page of the comparison.
+     */
+    public void sampleHeap() {
+        heapHighWaterBytes.accumulateAndGet(memoryBean.getHeapMemoryUsage().getUsed(), Math::max);
+    }
+
+    public long getHeapHighWaterBytes() {
+        return heapHighWaterBytes.get();
+    }
+
+    public File getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * This method will return the metrics of the run and of every table.
+     *
+     * @return ordered map, ready to be written as JSON
+     */
+    public Map<String, Object> snapshot() {
+        sampleHeap();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("elapsedMillis", System.currentTimeMillis() - startMillis);
+        snapshot.put("heapUsedBytes", memoryBean.getHeapMemoryUsage().getUsed());
+        snapshot.put("heapHighWaterBytes", heapHighWaterBytes.get());
+        snapshot.put("heapMaxBytes", memoryBean.getHeapMemoryUsage().getMax());
+        Map<String, Object> tableSnapshots = new LinkedHashMap<>();
+        for (TableMetrics table : tables.values()) {
+            tableSnapshots.put(table.getValidationTableName(), table.snapshot());
+        }
+        snapshot.put("tables", tableSnapshots);
+        return snapshot;
+    }
+
+    /**
+     * This method will write the snapshot to the metrics file, replacing the previous one in a single move so that a
+     * reader never sees a partial file.
+     */
+    public synchronized void flush() {
+        try {
+            metricsFile.getParentFile().mkdirs();
+            File tmpFile = new File(metricsFile.getPath() + ".tmp");
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(tmpFile, snapshot());
+            Files.move(tmpFile.toPath(), metricsFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            System.out.println("Exception Occurred while writing validation metrics : " + e);
+        }
+    }
+
+    /**
+     * This method will return the metrics in the Prometheus text format, timers as summaries in seconds.
+     *
+     * @return String
+     */
+    public String toPrometheusText() {
+        sampleHeap();
+        StringBuilder text = new StringBuilder();
+        text.append("# TYPE validation_heap_high_water_bytes gauge\n");
+        text.append("validation_heap_high_water_bytes ").append(heapHighWaterBytes.get()).append('\n');
+        text.append("# TYPE validation_stage_seconds summary\n");
+        for (TableMetrics table : tables.values()) {
+            for (Map.Entry<String, Timer> stage : table.timers.entrySet()) {
+                String labels = "table=\"" + table.getValidationTableName() + "\",stage=\"" + stage.getKey() + "\"";
+                Timer timer = stage.getValue();
+                for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+                    text.append("validation_stage_seconds{").append(labels).append(",quantile=\"").append(quantile)
+                            .append("\"} ").append(timer.getPercentileNanos(quantile) / 1e9).append('\n');
+                }
+                text.append("validation_stage_seconds_sum{").append(labels).append("} ")
+                        .append(timer.getTotalNanos() / 1e9).append('\n');
+                text.append("validation_stage_seconds_count{").append(labels).append("} ")
+                        .append(timer.getCount()).append('\n');
+            }
+        }
+        text.append("# TYPE validation_records counter\n");
+        for (TableMetrics table : tables.values()) {
+            for (Map.Entry<String, LongAdder> counter : table.counters.entrySet()) {
+                text.append("validation_records{table=\"").append(table.getValidationTableName())
+                        .append("\",counter=\"").append(counter.getKey()).append("\"} ")
+                        .append(counter.getValue().sum()).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Stops the sampling and the endpoint and writes the final metrics file.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        if (httpServer != null) {
+            httpServer.stop(0);
+        }
+        flush();
+        System.out.println("Validation metrics written : " + metricsFile);
+    }
+
+    private HttpServer startHttpServer(int port) {
+        if (port <= 0) {
+            return null;
+        }
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+            server.createContext("/metrics", exchange -> {
+                boolean json = exchange.getRequestURI().getPath().endsWith(".json");
+                respond(exchange, json ? new ObjectMapper().writeValueAsString(snapshot()) : toPrometheusText(),
+                        json ? "application/json" : "text/plain; version=0.0.4");
+            });
+            server.setExecutor(null);
+            server.start();
+            System.out.println("Validation metrics served on http://127.0.0.1:" + port + "/metrics");
+            return server;
+        } catch (IOException e) {
+            System.out.println("Exception Occurred while starting the metrics endpoint on port " + port + " : " + e);
+            return null;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body, String contentType) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Stage timers and record counters of one table.
+     */
+    public static class TableMetrics {
+
+        private final String validationTableName;
+        private final long startMillis = System.currentTimeMillis();
+        private volatile long endMillis;
+        private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+        TableMetrics(String validationTableName) {
+            this.validationTableName = validationTableName;
+        }
+
+        public String getValidationTableName() {
+            return validationTableName;
+        }
+
+        /**
+         * This method will add one measurement to the timer of a stage.
+         *
+         * @param stage - Stage name, e.g. ValidationMetrics.COMPARE
+         * @param nanos - Duration in nanoseconds
+         */
+        public void record(String stage, long nanos) {
+            getTimer(stage).record(nanos);
+        }
+
+        /**
+         * This method will add to a counter of the table.
+         *
+         * @param counter - Counter name, e.g. ValidationMetrics.BYTES_READ
+         * @param amount  - Amount to add
+         */
+        public void add(String counter, long amount) {
+            counters.computeIfAbsent(counter, name -> new LongAdder()).add(amount);
+        }
+
+        public long getCount(String counter) {
+            LongAdder adder = counters.get(counter);
+            return adder == null ? 0 : adder.sum();
+        }
+
+        public Timer getTimer(String stage) {
+            return timers.computeIfAbsent(stage, name -> new Timer());
+        }
+
+        /**
+         * This method will mark the validation of the table as finished, the end of its records per second.
+         */
+        public void finish() {
+            endMillis = System.currentTimeMillis();
+        }
+
+        /**
+         * @return records validated per second since the table started
+         */
+        public double getRecordsPerSecond() {
+            long elapsed = (endMillis == 0 ? System.currentTimeMillis() : endMillis) - startMillis;
+            return elapsed <= 0 ? 0 : getCount(RECORDS_VALIDATED) * 1000.0 / elapsed;
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("elapsedMillis", (endMillis == 0 ? System.currentTimeMillis() : endMillis) - startMillis);
+            snapshot.put("finished", endMillis != 0);
+            snapshot.put("recordsPerSecond", Math.round(getRecordsPerSecond()));
+            Map<String, Object> counterSnapshot = new LinkedHashMap<>();
+            for (Map.Entry<String, LongAdder> counter : new ConcurrentSkipListMap<>(counters).entrySet()) {
+                counterSnapshot.put(counter.getKey(), counter.getValue().sum());
+            }
+            snapshot.put("counters", counterSnapshot);
+            Map<String, Object> stageSnapshot = new LinkedHashMap<>();
+            for (String stage : STAGES) {
+                Timer timer = timers.get(stage);
+                if (timer != null) {
+                    stageSnapshot.put(stage, timer.snapshot());
+                }
+            }
+            snapshot.put("stages", stageSnapshot);
+            return snapshot;
+        }
+
+        /**
+         * @return one line per stage with its total time, count and latency percentiles
+         */
+        @Override
+        public String toString() {
+            StringBuilder breakdown = new StringBuilder("Timing breakdown of table [" + validationTableName + "], ")
+                    .append(getCount(RECORDS_VALIDATED)).append(" records at ")
+                    .append(Math.round(getRecordsPerSecond())).append(" records/s, ")
+                    .append(getCount(BYTES_READ) / 1024).append(" KB read from the API");
+            for (String stage : STAGES) {
+                Timer timer = timers.get(stage);
+                if (timer != null && timer.getCount() > 0) {
+                    breakdown.append("\n  ").append(String.format("%-13s", stage))
+                            .append(String.format("%10d ms total, %8d x, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                                    timer.getTotalNanos() / 1000000, timer.getCount(),
+                                    timer.getPercentileNanos(0.5) / 1e6, timer.getPercentileNanos(0.99) / 1e6,
+                                    timer.getMaxNanos() / 1e6));
+                }
+            }
+            return breakdown.toString();
+        }
+    }
+
+    /**
+     * Count, total, maximum and histogram of durations. The histogram has four buckets per power of two of
+     * microseconds, so a percentile is exact to within a quarter of its value.
+     */
+    public static class Timer {
+
+        private static final int BUCKETS = 160;
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            count.increment();
+            totalNanos.add(value);
+            maxNanos.accumulateAndGet(value, Math::max);
+            buckets.incrementAndGet(bucketOf(value / 1000));
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param quantile - Quantile between 0 and 1, e.g. 0.99
+         * @return upper bound of the bucket holding the quantile, at most the maximum, in nanoseconds
+         */
+        public long getPercentileNanos(double quantile) {
+            long total = 0;
+            long[] counts = new long[BUCKETS];
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                counts[bucket] = buckets.get(bucket);
+                total += counts[bucket];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts[bucket];
+                if (seen >= Math.max(1, rank)) {
+                    return Math.min(maxNanos.get(), (upperBoundOf(bucket) + 1) * 1000 - 1);
+                }
+            }
+            return maxNanos.get();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            long timerCount = getCount();
+            snapshot.put("count", timerCount);
+            snapshot.put("totalMillis", getTotalNanos() / 1000000);
+            snapshot.put("meanMillis", timerCount == 0 ? 0 : getTotalNanos() / 1e6 / timerCount);
+            snapshot.put("p50Millis", getPercentileNanos(0.5) / 1e6);
+            snapshot.put("p90Millis", getPercentileNanos(0.9) / 1e6);
+            snapshot.put("p99Millis", getPercentileNanos(0.99) / 1e6);
+            snapshot.put("maxMillis", getMaxNanos() / 1e6);
+            return snapshot;
+        }
+
+        //Values below 4 have a bucket each, above that 4 buckets per power of two
+        private static int bucketOf(long micros) {
+            if (micros < 4) {
+                return (int) micros;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            int subBucket = (int) ((micros >>> (exponent - 2)) & 3);
+            return Math.min(BUCKETS - 1, 4 * (exponent - 1) + subBucket);
+        }
+
+        private static long upperBoundOf(int bucket) {
+            if (bucket < 4) {
+                return bucket;
+            }
+            int exponent = bucket / 4 + 1;
+            int subBucket = bucket % 4;
+            return ((5L + subBucket) << (exponent - 2)) - 1;
+        }
+    }
+}
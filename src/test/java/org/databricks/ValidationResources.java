@@ -0,0 +1,74 @@
+package org.databricks;
+
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Resources shared by every table validated in one run: the global properties, the access token manager, the JDBC
+ * connection pool, one keep-alive API client used for every page request, the page fetch executor (see
+ * ExecutorStrategy) and the run-time metrics.
+ */
+public class ValidationResources implements AutoCloseable {
+
+    private final Properties globalProp;
+    private final TokenManager tokenManager;
+    private final JdbcConnectionPool jdbcConnectionPool;
+    private final AssetApiClient apiClient;
+    private final ExecutorService pageFetchExecutor;
+    private final ValidationMetrics metrics;
+
+    /**
+     * @param globalProp  - Global properties
+     * @param accessToken - Access token used for the API requests until it is renewed
+     */
+    public ValidationResources(Properties globalProp, String accessToken) {
+        this(globalProp, new TokenManager(globalProp, accessToken));
+    }
+
+    /**
+     * @param globalProp   - Global properties
+     * @param tokenManager - Token manager handing out the access token of every API request, closed with the resources
+     */
+    public ValidationResources(Properties globalProp, TokenManager tokenManager) {
+        this.globalProp = globalProp;
+        this.tokenManager = tokenManager;
+        this.jdbcConnectionPool = JdbcConnectionPool.fromGlobalProperties(globalProp);
+        int fetchThreads = ReusableCommonMethods.getIntProperty(globalProp, "api_fetch_threads", 4);
+        this.apiClient = new AssetApiClient(globalProp);
+        //One virtual thread per page request with executor_mode=virtual, fetchThreads platform threads otherwise
+        this.pageFetchExecutor = ExecutorStrategy.newExecutor(globalProp, "page-fetch", fetchThreads);
+        this.metrics = new ValidationMetrics(globalProp);
+    }
+
+    public Properties getGlobalProp() {
+        return globalProp;
+    }
+
+    public TokenManager getTokenManager() {
+        return tokenManager;
+    }
+
+    public JdbcConnectionPool getJdbcConnectionPool() {
+        return jdbcConnectionPool;
+    }
+
+    public AssetApiClient getApiClient() {
+        return apiClient;
+    }
+
+    public ExecutorService getPageFetchExecutor() {
+        return pageFetchExecutor;
+    }
+
+    public ValidationMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        pageFetchExecutor.shutdownNow();
+        jdbcConnectionPool.close();
+        tokenManager.close();
+        metrics.close();
+    }
+}
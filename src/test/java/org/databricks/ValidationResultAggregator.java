@@ -0,0 +1,208 @@
+package org.databricks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Results of a comparison whose records are compared on many threads at once: pass and fail counts, the row store
+ * rows of the passed records and the rows an API record was found for. Failures are not kept, they are written to the
+ * failure report as they are recorded, one thread at a time, so every failure is one report row.
+ * <p>
+ * The counts are LongAdders. Passed rows are split over a power of two number of stripes, each with its own lock,
+ * picked by the row, so threads recording different records rarely wait for each other. The locks are ReentrantLock
+ * rather than synchronized, so a virtual thread waiting for one does not hold on to its carrier thread. Visited rows
+ * are a bitset updated with compare-and-set.
+ */
+public class ValidationResultAggregator {
+
+    private static final int SUCCESS_ROWS_INITIAL_CAPACITY = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final ReportSink failureReport;
+    private final ReentrantLock failureReportLock = new ReentrantLock();
+    private final LongAdder passCount = new LongAdder();
+    private final LongAdder failCount = new LongAdder();
+    private final int rowCount;
+    private final AtomicLongArray visited;
+
+    private static class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int[] successRows = new int[SUCCESS_ROWS_INITIAL_CAPACITY];
+        private int successRowCount;
+    }
+
+    /**
+     * Creates an aggregator with four stripes per available processor.
+     *
+     * @param rowCount      - Number of rows of the row store the records are compared with
+     * @param failureReport - Failure report the failures are written to, null to only count them
+     */
+    public ValidationResultAggregator(int rowCount, ReportSink failureReport) {
+        this(rowCount, 4 * Runtime.getRuntime().availableProcessors(), failureReport);
+    }
+
+    /**
+     * @param rowCount      - Number of rows of the row store the records are compared with
+     * @param stripeCount   - Number of stripes, rounded up to a power of two
+     * @param failureReport - Failure report the failures are written to, null to only count them
+     */
+    public ValidationResultAggregator(int rowCount, int stripeCount, ReportSink failureReport) {
+        int stripes = 1;
+        while (stripes < stripeCount) {
+            stripes <<= 1;
+        }
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.stripeMask = this.stripes.length - 1;
+        this.failureReport = failureReport;
+        this.rowCount = rowCount;
+        this.visited = new AtomicLongArray((rowCount + 63) >>> 6);
+    }
+
+    /**
+     * This method will count a record that matched its Databricks row.
+     *
+     * @param dbRow - Row of the record in the row store
+     */
+    public void recordPass(int dbRow) {
+        passCount.increment();
+        Stripe stripe = stripes[spread(dbRow) & stripeMask];
+        stripe.lock.lock();
+        try {
+            if (stripe.successRowCount == stripe.successRows.length) {
+                stripe.successRows = Arrays.copyOf(stripe.successRows, stripe.successRowCount * 2);
+            }
+            stripe.successRows[stripe.successRowCount++] = dbRow;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * This method will count a record that did not match and write its failure description to the failure report.
+     *
+     * @param primaryValue - Primary key of the record
+     * @param message      - Failure description
+     */
+    public void recordFailure(String primaryValue, String message) throws IOException {
+        failCount.increment();
+        if (failureReport == null) {
+            return;
+        }
+        failureReportLock.lock();
+        try {
+            failureReport.writeRow(primaryValue, message);
+        } finally {
+            failureReportLock.unlock();
+        }
+    }
+
+    /**
+     * This method will count the failed records of a page and write their failure descriptions to the failure
+     * report in one go, so the failures of a page stay together and in the order of the page.
+     *
+     * @param failures - Primary key and failure description of every failed record
+     */
+    public void recordFailures(List<String[]> failures) throws IOException {
+        if (failures.isEmpty()) {
+            return;
+        }
+        failCount.add(failures.size());
+        if (failureReport == null) {
+            return;
+        }
+        failureReportLock.lock();
+        try {
+            for (String[] failure : failures) {
+                failureReport.writeRow(failure);
+            }
+        } finally {
+            failureReportLock.unlock();
+        }
+    }
+
+    /**
+     * This method will mark a row of the row store as found in the API.
+     *
+     * @param dbRow - Row index, below the row count of the aggregator
+     */
+    public void markVisited(int dbRow) {
+        int word = dbRow >>> 6;
+        long bit = 1L << dbRow;
+        long bits;
+        while (((bits = visited.get(word)) & bit) == 0 && !visited.compareAndSet(word, bits, bits | bit)) {
+            //Another row of the same word was marked at the same time, read the word again
+        }
+    }
+
+    /**
+     * This method will return the first row at or after fromRow that was not marked visited. Only to be called once
+     * every record is recorded.
+     *
+     * @param fromRow - First row to look at
+     * @return row index, or -1 when every remaining row was visited
+     */
+    public int nextUnvisitedRow(int fromRow) {
+        for (int row = fromRow; row < rowCount; row++) {
+            long bits = visited.get(row >>> 6);
+            if (bits == -1L) {
+                //Whole word visited, continue with the next word
+                row |= 63;
+            } else if ((bits & (1L << row)) == 0) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    public long getPassCount() {
+        return passCount.sum();
+    }
+
+    public long getFailCount() {
+        return failCount.sum();
+    }
+
+    public long getValidatedCount() {
+        return passCount.sum() + failCount.sum();
+    }
+
+    /**
+     * This method will return the row store rows of the passed records in ascending order.
+     *
+     * @return int[]
+     */
+    public int[] getSuccessRows() {
+        int[][] stripeRows = new int[stripes.length][];
+        int count = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i].lock.lock();
+            try {
+                stripeRows[i] = Arrays.copyOf(stripes[i].successRows, stripes[i].successRowCount);
+            } finally {
+                stripes[i].lock.unlock();
+            }
+            count += stripeRows[i].length;
+        }
+        int[] rows = new int[count];
+        int position = 0;
+        for (int[] stripeRow : stripeRows) {
+            System.arraycopy(stripeRow, 0, rows, position, stripeRow.length);
+            position += stripeRow.length;
+        }
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    //Spreads the higher bits of a hash over the stripe index, like HashMap does
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,303 @@
+package org.databricks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Compares the Databricks value of a mapping entry with the value the API returned for it, following the type and
+ * normalization rules of the entry. The rules are written after the column in the mapping file, separated by
+ * semicolons, e.g. price=price_amount;decimal;scale=2 or createdOn=created_on;timestamp;truncate=millis.
+ * <p>
+ * Types: string (default), integer, decimal, boolean, timestamp and date. Numbers are compared by value (1.50 equals
+ * 1.5), booleans accept true/false, t/f, yes/no, y/n and 1/0, timestamps accept epoch milliseconds, ISO-8601 with or
+ * without offset and yyyy-MM-dd HH:mm:ss[.fffffffff], dates accept yyyy-MM-dd with an optional time part and epoch
+ * milliseconds.
+ * <p>
+ * Rules: trim, ignore_case, empty_as_null, scale=N (decimals rounded half up to N places), zone=ID (zone of a
+ * timestamp or epoch date without offset, UTC by default) and truncate=seconds|millis|micros (timestamps).
+ * <p>
+ * A SQL NULL matches a JSON null and a missing field. Values that are equal as text match without being parsed, so
+ * the parsing and its allocations are only paid by values whose text differs. To make that the common case, the
+ * AssetPageDecoder gives a JSON number of a decimal, timestamp or date entry the text TypedColumnReader gives the
+ * same Databricks value, see jsonNumberText.
+ */
+public class ValueComparator {
+
+    public static final String STRING = "string";
+    public static final String INTEGER = "integer";
+    public static final String DECIMAL = "decimal";
+    public static final String BOOLEAN = "boolean";
+    public static final String TIMESTAMP = "timestamp";
+    public static final String DATE = "date";
+
+    //Text the AssetPageDecoder gives a JSON null
+    private static final String JSON_NULL = "null";
+
+    private final String type;
+    private final boolean trim;
+    private final boolean ignoreCase;
+    private final boolean emptyAsNull;
+    private final int scale;
+    private final ZoneId zone;
+    private final ChronoUnit truncateTo;
+
+    private ValueComparator(String type, boolean trim, boolean ignoreCase, boolean emptyAsNull, int scale,
+                            ZoneId zone, ChronoUnit truncateTo) {
+        this.type = type;
+        this.trim = trim;
+        this.ignoreCase = ignoreCase;
+        this.emptyAsNull = emptyAsNull;
+        this.scale = scale;
+        this.zone = zone;
+        this.truncateTo = truncateTo;
+    }
+
+    /**
+     * This method will compile the rules of a mapping entry.
+     *
+     * @param rules - Rules separated by semicolons, null or empty for an exact string comparison
+     * @return ValueComparator
+     */
+    public static ValueComparator compile(String rules) {
+        String type = STRING;
+        boolean trim = false;
+        boolean ignoreCase = false;
+        boolean emptyAsNull = false;
+        int scale = -1;
+        ZoneId zone = ZoneOffset.UTC;
+        ChronoUnit truncateTo = null;
+        if (rules != null) {
+            for (String rule : rules.split(";")) {
+                String name = rule.trim().toLowerCase();
+                String value = null;
+                if (name.contains("=")) {
+                    value = rule.substring(rule.indexOf('=') + 1).trim();
+                    name = name.substring(0, name.indexOf('=')).trim();
+                }
+                switch (name) {
+                    case "":
+                        break;
+                    case STRING:
+                    case INTEGER:
+                    case DECIMAL:
+                    case BOOLEAN:
+                    case TIMESTAMP:
+                    case DATE:
+                        type = name;
+                        break;
+                    case "trim":
+                        trim = true;
+                        break;
+                    case "ignore_case":
+                        ignoreCase = true;
+                        break;
+                    case "empty_as_null":
+                        emptyAsNull = true;
+                        break;
+                    case "scale":
+                        scale = Integer.parseInt(value);
+                        break;
+                    case "zone":
+                        zone = ZoneId.of(value);
+                        break;
+                    case "truncate":
+                        truncateTo = parseTruncation(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown comparison rule [" + rule.trim() + "]");
+                }
+            }
+        }
+        return new ValueComparator(type, trim, ignoreCase, emptyAsNull, scale, zone, truncateTo);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * This method will tell whether a JSON number of the entry is read with jsonNumberText rather than as its text.
+     *
+     * @return true for decimal, timestamp and date entries
+     */
+    public boolean readsJsonNumbers() {
+        return DECIMAL.equals(type) || TIMESTAMP.equals(type) || DATE.equals(type);
+    }
+
+    /**
+     * This method will give a JSON number of the entry the text TypedColumnReader gives the same Databricks value:
+     * epoch milliseconds of a timestamp as an ISO-8601 instant in UTC, epoch milliseconds of a date as yyyy-MM-dd and
+     * a decimal in plain notation, at the scale of the entry when it has one. The number is read from the token
+     * rather than from its text.
+     *
+     * @param parser - Parser positioned on a VALUE_NUMBER_INT or VALUE_NUMBER_FLOAT token
+     * @return text of the value
+     */
+    public String jsonNumberText(JsonParser parser) throws IOException {
+        boolean epochNumber = parser.currentToken() == JsonToken.VALUE_NUMBER_INT
+                && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER;
+        switch (type) {
+            case TIMESTAMP:
+                return epochNumber ? truncate(Instant.ofEpochMilli(parser.getLongValue())).toString() : parser.getText();
+            case DATE:
+                return epochNumber ? Instant.ofEpochMilli(parser.getLongValue()).atZone(zone).toLocalDate().toString()
+                        : parser.getText();
+            case DECIMAL:
+                BigDecimal value = parser.getDecimalValue();
+                return (scale >= 0 ? value.setScale(scale, RoundingMode.HALF_UP) : value).toPlainString();
+            default:
+                return parser.getText();
+        }
+    }
+
+    /**
+     * This method will tell whether the two values are equal under the rules of the entry.
+     *
+     * @param valueFromDB   - Databricks value, null for SQL NULL
+     * @param valueFromJSON - API value, null when the field is missing and "null" for a JSON null
+     * @return true when the values match
+     */
+    public boolean matches(String valueFromDB, String valueFromJSON) {
+        if (valueFromDB != null && valueFromDB.equals(valueFromJSON)) {
+            return true;
+        }
+        String db = normalize(valueFromDB);
+        String json = normalize(JSON_NULL.equals(valueFromJSON) ? null : valueFromJSON);
+        if (db == null || json == null) {
+            return db == null && json == null;
+        }
+        try {
+            switch (type) {
+                case INTEGER:
+                    return integerMatches(db.trim(), json.trim());
+                case DECIMAL:
+                    return decimalMatches(db.trim(), json.trim());
+                case BOOLEAN:
+                    Boolean dbBoolean = parseBoolean(db.trim());
+                    return dbBoolean != null && dbBoolean.equals(parseBoolean(json.trim()));
+                case TIMESTAMP:
+                    return truncate(parseInstant(db.trim())).equals(truncate(parseInstant(json.trim())));
+                case DATE:
+                    return parseDate(db.trim()).equals(parseDate(json.trim()));
+                default:
+                    return ignoreCase ? db.equalsIgnoreCase(json) : db.equals(json);
+            }
+        } catch (NumberFormatException | DateTimeException e) {
+            //A value that is not of the declared type only matches the same text
+            return ignoreCase ? db.equalsIgnoreCase(json) : db.equals(json);
+        }
+    }
+
+    private String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = trim ? value.trim() : value;
+        return emptyAsNull && normalized.isEmpty() ? null : normalized;
+    }
+
+    private boolean integerMatches(String db, String json) {
+        try {
+            return Long.parseLong(db) == Long.parseLong(json);
+        } catch (NumberFormatException e) {
+            //1.0 or 1E3, or out of the long range
+            return decimalMatches(db, json);
+        }
+    }
+
+    private boolean decimalMatches(String db, String json) {
+        BigDecimal dbDecimal = new BigDecimal(db);
+        BigDecimal jsonDecimal = new BigDecimal(json);
+        if (scale >= 0) {
+            dbDecimal = dbDecimal.setScale(scale, RoundingMode.HALF_UP);
+            jsonDecimal = jsonDecimal.setScale(scale, RoundingMode.HALF_UP);
+        }
+        return dbDecimal.compareTo(jsonDecimal) == 0;
+    }
+
+    private static Boolean parseBoolean(String value) {
+        switch (value.toLowerCase()) {
+            case "true":
+            case "t":
+            case "yes":
+            case "y":
+            case "1":
+                return Boolean.TRUE;
+            case "false":
+            case "f":
+            case "no":
+            case "n":
+            case "0":
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    private Instant parseInstant(String value) {
+        if (isEpochNumber(value)) {
+            return Instant.ofEpochMilli(Long.parseLong(value));
+        }
+        String isoValue = value.length() > 10 && value.charAt(10) == ' '
+                ? value.substring(0, 10) + 'T' + value.substring(11) : value;
+        if (isoValue.endsWith("Z") || hasOffset(isoValue)) {
+            return OffsetDateTime.parse(isoValue).toInstant();
+        }
+        return LocalDateTime.parse(isoValue).atZone(zone).toInstant();
+    }
+
+    private LocalDate parseDate(String value) {
+        if (isEpochNumber(value)) {
+            return Instant.ofEpochMilli(Long.parseLong(value)).atZone(zone).toLocalDate();
+        }
+        return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value);
+    }
+
+    private Instant truncate(Instant instant) {
+        return truncateTo == null ? instant : instant.truncatedTo(truncateTo);
+    }
+
+    private static boolean isEpochNumber(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = value.charAt(0) == '-' ? 1 : 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return value.length() > (value.charAt(0) == '-' ? 1 : 0);
+    }
+
+    //An offset such as +02:00 or -0500 after the time part
+    private static boolean hasOffset(String value) {
+        int timeStart = value.indexOf('T');
+        return timeStart > 0 && (value.indexOf('+', timeStart) > 0 || value.indexOf('-', timeStart) > 0);
+    }
+
+    private static ChronoUnit parseTruncation(String unit) {
+        switch (unit == null ? "" : unit.trim().toLowerCase()) {
+            case "seconds":
+                return ChronoUnit.SECONDS;
+            case "millis":
+                return ChronoUnit.MILLIS;
+            case "micros":
+                return ChronoUnit.MICROS;
+            default:
+                throw new IllegalArgumentException("Unknown timestamp truncation [" + unit + "]");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.databricks.benchmark;
+
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.builder.ResponseSpecBuilder;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import io.restassured.specification.ResponseSpecification;
+import org.databricks.AssetApiClient;
+import org.databricks.AssetPageDecoder;
+import org.databricks.FieldMapping;
+import org.databricks.JsonFieldPath;
+import org.databricks.ReusableCommonMethods;
+import org.databricks.TokenManager;
+import org.databricks.harness.StubAssetApiServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches and decodes /assets pages from a local StubAssetApiServer, once through the RestAssured given() chain the
+ * page fetches used before and once through AssetApiClient. The score is pages, that is requests, per second over
+ * four threads, the default api_fetch_threads. The RestAssured side runs without the URI and status logging the
+ * crawl had, so the gap shown is the lower bound of the saving.
+ * <p>
+ * Run with: mvn -P benchmark verify -Dbenchmark.includes=AssetApiClientBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(4)
+@Fork(1)
+public class AssetApiClientBenchmark {
+
+    @Param({"100", "1000"})
+    public int pageLimit;
+
+    private StubAssetApiServer server;
+    private AssetPageDecoder decoder;
+    private TokenManager tokenManager;
+    private RequestSpecification requestSpecification;
+    private ResponseSpecification responseSpecification;
+    private AssetApiClient apiClient;
+    private int pageCount;
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new StubAssetApiServer(20 * pageLimit, 8);
+        pageCount = server.getTotalRecords() / pageLimit;
+        FieldMapping fieldMapping = FieldMapping.load(System.getProperty("user.dir") + File.separator + "src"
+                + File.separator + "test" + File.separator + "resources" + File.separator + "DB_JSON_MAPPING"
+                + File.separator + "asset_table_mapping.properties");
+        decoder = new AssetPageDecoder(JsonFieldPath.compile("id"), fieldMapping);
+        tokenManager = TokenManager.fixed("benchmark-token");
+        requestSpecification = new RequestSpecBuilder().
+                setBaseUri(server.getBaseUri()).
+                addHeader("Accept", "application/json").
+                addHeader("Content-Type", "application/json").
+                setContentType(ContentType.JSON).
+                build();
+        responseSpecification = new ResponseSpecBuilder().build();
+        apiClient = new AssetApiClient(server.getBaseUri(), new Properties());
+    }
+
+    @TearDown
+    public void tearDown() {
+        tokenManager.close();
+        server.close();
+    }
+
+    @Benchmark
+    public AssetPageDecoder.AssetPage restAssuredGiven() throws Exception {
+        return ReusableCommonMethods.fetchAssetPage(requestSpecification, responseSpecification, null,
+                StubAssetApiServer.END_POINT, randomOffset(), pageLimit, tokenManager, decoder);
+    }
+
+    @Benchmark
+    public AssetPageDecoder.AssetPage assetApiClient() throws Exception {
+        return apiClient.fetchPage(StubAssetApiServer.END_POINT, randomOffset(), pageLimit, tokenManager, decoder);
+    }
+
+    private int randomOffset() {
+        return ThreadLocalRandom.current().nextInt(pageCount) * pageLimit;
+    }
+}
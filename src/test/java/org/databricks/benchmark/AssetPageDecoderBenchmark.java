@@ -0,0 +1,61 @@
+package org.databricks.benchmark;
+
+import org.databricks.AssetPageDecoder;
+import org.databricks.FieldMapping;
+import org.databricks.JsonFieldPath;
+import org.databricks.harness.SyntheticAssetData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes pre-rendered /assets pages with the AssetPageDecoder, the page decoding stage of the crawl without the
+ * network. The mapping reads every generated field, so extraFields widens both the page and the decoded records. The
+ * score is pages per second.
+ * <p>
+ * Run with: mvn -P benchmark verify -Dbenchmark.includes=AssetPageDecoderBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AssetPageDecoderBenchmark {
+
+    private static final int PAGES = 16;
+
+    @Param({"1000"})
+    public int pageLimit;
+
+    @Param({"0", "24"})
+    public int extraFields;
+
+    private AssetPageDecoder decoder;
+    private byte[][] pages;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        SyntheticAssetData data = new SyntheticAssetData(PAGES * pageLimit, extraFields, 0);
+        File mappingFile = File.createTempFile("synthetic_asset_mapping", ".properties");
+        try {
+            data.writeMappingFile(mappingFile);
+            decoder = new AssetPageDecoder(JsonFieldPath.compile("id"), FieldMapping.load(mappingFile.getPath()));
+        } finally {
+            Files.deleteIfExists(mappingFile.toPath());
+        }
+        pages = new byte[PAGES][];
+        for (int page = 0; page < PAGES; page++) {
+            pages[page] = data.renderOffsetPage(page * pageLimit, pageLimit);
+        }
+    }
+
+    @Benchmark
+    public AssetPageDecoder.AssetPage decode() throws Exception {
+        return decoder.decode(new ByteArrayInputStream(pages[next++ & (PAGES - 1)]));
+    }
+}
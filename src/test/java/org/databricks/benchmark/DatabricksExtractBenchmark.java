@@ -0,0 +1,68 @@
+package org.databricks.benchmark;
+
+import org.databricks.DatabricksRowStore;
+import org.databricks.PrimaryKeyIndex;
+import org.databricks.ReusableCommonMethods;
+import org.databricks.harness.EmbeddedDatabase;
+import org.databricks.harness.SyntheticAssetData;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a synthetic asset table from an EmbeddedDatabase into a DatabricksRowStore, the Databricks extract stage of
+ * the in_memory engine. The score is the time of one extract; the embedded database answers without network, so the
+ * score is the cost the validation adds on top of the Databricks query.
+ * <p>
+ * Run with: mvn -P benchmark verify -Dbenchmark.includes=DatabricksExtractBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class DatabricksExtractBenchmark {
+
+    @Param({"100000"})
+    public int records;
+
+    @Param({"0", "24"})
+    public int extraFields;
+
+    @Param({"auto", "string"})
+    public String primaryKeyType;
+
+    private EmbeddedDatabase database;
+    private Connection connection;
+    private String sqlQuery;
+
+    @Setup
+    public void setUp() throws Exception {
+        database = new EmbeddedDatabase();
+        sqlQuery = database.load(new SyntheticAssetData(records, extraFields, 0), "assets");
+        connection = DriverManager.getConnection(database.getJdbcUrl(), EmbeddedDatabase.getConnectionProperties());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        database.close();
+    }
+
+    @Benchmark
+    public DatabricksRowStore extract() throws Exception {
+        try (ResultSet resultSet = ReusableCommonMethods.executeQuery(connection, sqlQuery, 10000)) {
+            DatabricksRowStore store = ReusableCommonMethods.getDataFromDB(resultSet, "asset_id",
+                    PrimaryKeyIndex.AUTO.equals(primaryKeyType) ? PrimaryKeyIndex.AUTO : PrimaryKeyIndex.STRING,
+                    false);
+            if (store == null || store.size() != records) {
+                throw new IllegalStateException("Extract read " + (store == null ? 0 : store.size()) + " rows");
+            }
+            return store;
+        }
+    }
+}
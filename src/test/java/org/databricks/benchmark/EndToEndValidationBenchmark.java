@@ -0,0 +1,77 @@
+package org.databricks.benchmark;
+
+import org.databricks.TableValidationResult;
+import org.databricks.ValidationResources;
+import org.databricks.harness.SyntheticAssetData;
+import org.databricks.harness.ValidationFixture;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Validates a synthetic asset table end to end through ValidationFixture: Databricks extract from an embedded
+ * database, concurrent crawl of a local stub /assets endpoint, comparison and csv reports. One record in every
+ * thousand differs, so both reports are written. The score is the time of one complete validation; divide the record
+ * count by it for the records per second of the whole hot path.
+ * <p>
+ * Run with: mvn -P benchmark verify -Dbenchmark.includes=EndToEndValidationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class EndToEndValidationBenchmark {
+
+    @Param({"100000"})
+    public int records;
+
+    @Param({"0", "24"})
+    public int extraFields;
+
+    @Param({"offset", "cursor"})
+    public String paginationMode;
+
+    @Param({"sequential", "concurrent"})
+    public String orchestrationMode;
+
+    private Path workFolder;
+    private ValidationFixture fixture;
+    private ValidationResources resources;
+
+    @Setup
+    public void setUp() throws Exception {
+        workFolder = Files.createTempDirectory("validation-benchmark");
+        fixture = new ValidationFixture(new SyntheticAssetData(records, extraFields, 1000), workFolder.toFile(), 8);
+        fixture.getTableProp().setProperty("pagination_mode", paginationMode);
+        fixture.getTableProp().setProperty("orchestration_mode", orchestrationMode);
+        resources = fixture.newResources();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        resources.close();
+        fixture.close();
+        try (Stream<Path> paths = Files.walk(workFolder)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public TableValidationResult validate() {
+        TableValidationResult result = fixture.runValidation(resources);
+        if (result.getErrorMessage() != null) {
+            throw new IllegalStateException("Validation failed : " + result.getErrorMessage());
+        }
+        return result;
+    }
+}
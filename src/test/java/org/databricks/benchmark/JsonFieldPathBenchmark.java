@@ -0,0 +1,98 @@
+package org.databricks.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.databricks.JsonFieldPath;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the eight fields of the asset mapping from a page of records, once with the String.split based lookup that
+ * getValueFromJSON used before and once with precompiled JsonFieldPath accessors.
+ * <p>
+ * Run with: mvn -P benchmark verify -Dbenchmark.includes=JsonFieldPathBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonFieldPathBenchmark {
+
+    private static final String[] MAPPED_KEYS = {"id", "name", "displayName", "domain.id", "type.id", "type.name",
+            "status.id", "status.name"};
+
+    @Param({"1000"})
+    public int recordsPerPage;
+
+    private JsonNode[] records;
+    private JsonFieldPath[] compiledPaths;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ArrayNode results = objectMapper.createArrayNode();
+        for (int i = 0; i < recordsPerPage; i++) {
+            ObjectNode record = results.addObject();
+            record.put("id", "00000000-0000-0000-0000-" + String.format("%012d", i));
+            record.put("name", "Asset " + i);
+            record.put("displayName", "Asset display " + i);
+            record.putObject("domain").put("id", "domain-" + (i % 50));
+            ObjectNode type = record.putObject("type");
+            type.put("id", "type-" + (i % 20));
+            type.put("name", "Type " + (i % 20));
+            ObjectNode status = record.putObject("status");
+            status.put("id", "status-" + (i % 5));
+            status.put("name", "Status " + (i % 5));
+        }
+        records = new JsonNode[results.size()];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = results.get(i);
+        }
+        compiledPaths = new JsonFieldPath[MAPPED_KEYS.length];
+        for (int i = 0; i < MAPPED_KEYS.length; i++) {
+            compiledPaths[i] = JsonFieldPath.compile(MAPPED_KEYS[i]);
+        }
+    }
+
+    @Benchmark
+    public void splitPerRecord(Blackhole blackhole) {
+        for (JsonNode record : records) {
+            for (String key : MAPPED_KEYS) {
+                blackhole.consume(splitBasedLookup(record, key));
+            }
+        }
+    }
+
+    @Benchmark
+    public void compiledPath(Blackhole blackhole) {
+        for (JsonNode record : records) {
+            for (JsonFieldPath path : compiledPaths) {
+                blackhole.consume(path.readText(record));
+            }
+        }
+    }
+
+    //The lookup getValueFromJSON performed before field paths were compiled
+    private static String splitBasedLookup(JsonNode node, String jsonKey) {
+        if (jsonKey.contains(".")) {
+            String[] arr = jsonKey.split("\\.");
+            switch (arr.length) {
+                case 2:
+                    return node.get(arr[0]).get(arr[1]).asText();
+                case 3:
+                    return node.get(arr[0]).get(arr[1]).get(arr[2]).asText();
+                case 4:
+                    return node.get(arr[0]).get(arr[1]).get(arr[2]).get(arr[3]).asText();
+                default:
+                    return null;
+            }
+        }
+        return node.get(jsonKey).asText();
+    }
+}
@@ -0,0 +1,121 @@
+package org.databricks.benchmark;
+
+import org.databricks.PrimaryKeyIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up primary keys the way the comparison loop does, with a key freshly decoded from the API page, in a string,
+ * uuid and long PrimaryKeyIndex. The keys are random UUIDs (Collibra asset ids) for the string and uuid indexes and
+ * random longs for the long index. Once the index is built the setup prints its estimated footprint together with the
+ * heap and direct memory it actually retains, which gives the memory saved per key type. offHeap only applies to the
+ * uuid and long indexes.
+ * <p>
+ * Run with: mvn -P benchmark verify -Dbenchmark.includes=PrimaryKeyIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class PrimaryKeyIndexBenchmark {
+
+    private static final int LOOKUP_KEYS = 1 << 16;
+
+    @Param({"string", "uuid", "long"})
+    public String keyType;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    //The string index of 10M keys takes about 1 GB of heap, the fork runs with -Xmx4g
+    @Param({"1000000", "10000000"})
+    public int keyCount;
+
+    private PrimaryKeyIndex index;
+    private byte[][] presentKeys;
+    private byte[][] missingKeys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        //The present keys are spread over the whole index and decoded before the index is measured
+        int stride = Math.max(1, keyCount / LOOKUP_KEYS);
+        SplittableRandom presentRandom = new SplittableRandom(42);
+        SplittableRandom missingRandom = new SplittableRandom(4242);
+        presentKeys = new byte[LOOKUP_KEYS][];
+        missingKeys = new byte[LOOKUP_KEYS][];
+        for (int i = 0; i < keyCount; i++) {
+            String key = randomKey(presentRandom);
+            if (i % stride == 0 && i / stride < LOOKUP_KEYS) {
+                presentKeys[i / stride] = key.getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            if (presentKeys[i] == null) {
+                presentKeys[i] = presentKeys[i % Math.max(1, Math.min(keyCount, LOOKUP_KEYS))];
+            }
+            missingKeys[i] = randomKey(missingRandom).getBytes(StandardCharsets.US_ASCII);
+        }
+        long heapBefore = usedHeap();
+        long directBefore = usedDirectMemory();
+        index = PrimaryKeyIndex.create(keyType, offHeap);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < keyCount; i++) {
+            index.add(randomKey(random));
+        }
+        long retainedHeap = usedHeap() - heapBefore;
+        long retainedDirect = usedDirectMemory() - directBefore;
+        System.out.println();
+        System.out.println("Footprint of the " + keyType + (offHeap ? " off heap" : "") + " index with " + keyCount
+                + " keys : estimated " + megabytes(index.getFootprintBytes()) + " MB, retained heap "
+                + megabytes(retainedHeap) + " MB, direct memory " + megabytes(retainedDirect) + " MB, "
+                + (retainedHeap + retainedDirect) / Math.max(1, keyCount) + " bytes per key");
+    }
+
+    //Every lookup decodes a new String as the API page decoder does, so the String hash is not cached
+    @Benchmark
+    public int indexOfPresentKey() {
+        return index.indexOf(new String(presentKeys[next++ & (LOOKUP_KEYS - 1)], StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public int indexOfMissingKey() {
+        return index.indexOf(new String(missingKeys[next++ & (LOOKUP_KEYS - 1)], StandardCharsets.US_ASCII));
+    }
+
+    private String randomKey(SplittableRandom random) {
+        if (PrimaryKeyIndex.LONG.equals(keyType)) {
+            return Long.toString(random.nextLong(1L << 53));
+        }
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long usedDirectMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if ("direct".equals(pool.getName())) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,94 @@
+package org.databricks.benchmark;
+
+import org.databricks.ReportSink;
+import org.databricks.ReusableCommonMethods;
+import org.databricks.harness.SyntheticAssetData;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes a success report of synthetic Databricks rows in each report_format, the report stage of the comparison.
+ * Every invocation opens a report, writes the rows and closes it, so the score is the time of one complete report.
+ * The report files are written below the system temp folder and removed after every invocation.
+ * <p>
+ * Run with: mvn -P benchmark verify -Dbenchmark.includes=ReportSinkBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportSinkBenchmark {
+
+    @Param({"50000"})
+    public int rows;
+
+    @Param({"csv", "xlsx", "columnar"})
+    public String reportFormat;
+
+    private Properties globalProp;
+    private Path reportFolder;
+    private String[] header;
+    private String[][] reportRows;
+    private int invocation;
+
+    @Setup
+    public void setUp() throws IOException {
+        SyntheticAssetData data = new SyntheticAssetData(rows, 0, 0);
+        header = data.getDbColumns();
+        reportRows = new String[rows][];
+        for (int i = 0; i < rows; i++) {
+            reportRows[i] = data.getDbRow(i);
+        }
+        Path workFolder = Files.createTempDirectory("report-benchmark");
+        //reportPath is resolved against src/test of the working directory
+        Path testFolder = new File(System.getProperty("user.dir"), "src" + File.separator + "test").toPath()
+                .toAbsolutePath();
+        globalProp = new Properties();
+        globalProp.setProperty("reportPath", testFolder.relativize(workFolder).toString());
+        globalProp.setProperty("report_format", reportFormat);
+        reportFolder = workFolder;
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteReports() throws IOException {
+        deleteFolder(reportFolder, false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deleteFolder(reportFolder, true);
+    }
+
+    @Benchmark
+    public long writeReport() throws IOException {
+        File folder = new File(ReusableCommonMethods.getReportFolder(globalProp, "BENCHMARK.properties"));
+        Files.createDirectories(folder.toPath());
+        ReportSink report = ReusableCommonMethods.openReport(globalProp, "BENCHMARK.properties", "SuccessReport",
+                header, Integer.toString(invocation++));
+        for (String[] row : reportRows) {
+            report.writeRow(row);
+        }
+        report.close();
+        return report.getRowsWritten();
+    }
+
+    private static void deleteFolder(Path folder, boolean deleteFolder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                if (deleteFolder || !path.equals(folder)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.databricks.harness;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory H2 database standing in for the Databricks SQL warehouse. It accepts the connection properties the
+ * validation sends to Databricks (user token and the configured password), so the JDBC URL can be set as jdbcurl of
+ * the global properties. The database lives until close.
+ */
+public class EmbeddedDatabase implements AutoCloseable {
+
+    public static final String PASSWORD = "embedded";
+
+    private static final AtomicInteger DATABASE_NUMBER = new AtomicInteger();
+
+    private final String jdbcUrl;
+    //Keeps the in-memory database open between the connections of the validation
+    private final Connection keepAlive;
+
+    public EmbeddedDatabase() throws SQLException {
+        this.jdbcUrl = "jdbc:h2:mem:databricks" + DATABASE_NUMBER.incrementAndGet();
+        this.keepAlive = DriverManager.getConnection(jdbcUrl, getConnectionProperties());
+    }
+
+    /**
+     * This method will create a table holding the Databricks side of the synthetic assets.
+     *
+     * @param data      - Synthetic assets
+     * @param tableName - Name of the table
+     * @return query selecting the mapped columns of the table
+     */
+    public String load(SyntheticAssetData data, String tableName) throws SQLException {
+        data.createTable(keepAlive, tableName);
+        return data.getSelectQuery(tableName);
+    }
+
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    /**
+     * @return user and password as JdbcConnectionPool sends them
+     */
+    public static Properties getConnectionProperties() {
+        Properties connectionProperties = new Properties();
+        connectionProperties.put("user", "token");
+        connectionProperties.put("password", PASSWORD);
+        return connectionProperties;
+    }
+
+    /**
+     * This method will set jdbcurl and password of the global properties to this database.
+     *
+     * @param globalProp - Global properties
+     */
+    public void configure(Properties globalProp) {
+        globalProp.setProperty("jdbcurl", jdbcUrl);
+        globalProp.setProperty("password", PASSWORD);
+    }
+
+    @Override
+    public void close() {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("shutdown");
+        } catch (SQLException e) {
+            System.out.println("Exception Occurred while shutting down the embedded database : " + e);
+        } finally {
+            try {
+                keepAlive.close();
+            } catch (SQLException ignored) {
+                //The database is gone already
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.databricks.harness;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.databricks.ReusableCommonMethods;
+import org.databricks.TableValidationResult;
+import org.databricks.ValidationMetrics;
+import org.databricks.ValidationResources;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scaled end-to-end throughput run of the validation, offline: a ValidationFixture with the synthetic assets in an
+ * embedded database and behind the stub /assets endpoint, with page latency, injected errors and token renewals as
+ * configured. Every run validates the whole table through DatabricksCollibraValidation.validateTable and must report
+ * exactly the records the data made to differ, otherwise the runner exits with status 1 and fails the build. The
+ * records per second of every run are printed and written as JSON.
+ * <p>
+ * Settings are system properties, see the load-test profile of the pom: loadtest.records, loadtest.extraFields,
+ * loadtest.mismatchEvery (one record in that many differs, 0 for none), loadtest.pageLatencyMs, loadtest.errorEvery
+ * and loadtest.errorStatus (every nth page request fails), loadtest.tokenLifetimeSeconds (0 uses a fixed token),
+ * loadtest.engine (comparison_engine), loadtest.executorMode (executor_mode), loadtest.serverThreads, loadtest.runs
+ * and loadtest.resultFile.
+ * <p>
+ * Run with: mvn -P load-test verify -Dloadtest.records=1000000
+ */
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        int records = Integer.getInteger("loadtest.records", 200000);
+        int extraFields = Integer.getInteger("loadtest.extraFields", 4);
+        int mismatchEvery = Integer.getInteger("loadtest.mismatchEvery", 1000);
+        int runs = Math.max(1, Integer.getInteger("loadtest.runs", 3));
+        File workFolder = new File(System.getProperty("loadtest.workFolder", "target/loadtest"));
+        File resultFile = new File(System.getProperty("loadtest.resultFile", "target/loadtest-result.json"));
+
+        SyntheticAssetData data = new SyntheticAssetData(records, extraFields, mismatchEvery);
+        List<Map<String, Object>> results = new ArrayList<>();
+        boolean allRunsCorrect = true;
+        try (ValidationFixture fixture = new ValidationFixture(data, workFolder, Integer.getInteger("loadtest.serverThreads", 16))) {
+            fixture.getServer().setPageLatency(Long.getLong("loadtest.pageLatencyMs", 0L));
+            fixture.getServer().setErrorInjection(Integer.getInteger("loadtest.errorEvery", 0),
+                    Integer.getInteger("loadtest.errorStatus", 500));
+            int tokenLifetimeSeconds = Integer.getInteger("loadtest.tokenLifetimeSeconds", 0);
+            if (tokenLifetimeSeconds > 0) {
+                fixture.enableTokenEndpoint(tokenLifetimeSeconds);
+            }
+            fixture.getGlobalProp().setProperty("metrics_flush_seconds", "0");
+            fixture.getGlobalProp().setProperty("executor_mode", System.getProperty("loadtest.executorMode", "platform"));
+            fixture.getTableProp().setProperty("comparison_engine", System.getProperty("loadtest.engine", "in_memory"));
+
+            //The legacy single connection path reads the same table
+            ResultSet count = ReusableCommonMethods.getDBConnection(fixture.getGlobalProp(),
+                    "select count(*) from " + ValidationFixture.TABLE_NAME);
+            if (count == null || !count.next() || count.getLong(1) != records) {
+                System.out.println("Load test database does not hold the " + records + " synthetic rows");
+                System.exit(1);
+            }
+            count.getStatement().getConnection().close();
+
+            System.out.println("Load test of " + records + " records, " + data.getMismatchCount() + " mismatching, engine "
+                    + fixture.getTableProp().getProperty("comparison_engine") + ", " + runs + " runs");
+            for (int run = 1; run <= runs; run++) {
+                long requestsBefore = fixture.getServer().getRequestCount();
+                long tokenRequestsBefore = fixture.getServer().getTokenRequestCount();
+                Map<String, Object> runResult = new LinkedHashMap<>();
+                try (ValidationResources resources = fixture.newResources()) {
+                    long start = System.nanoTime();
+                    TableValidationResult result = fixture.runValidation(resources);
+                    long millis = (System.nanoTime() - start) / 1000000;
+                    ValidationMetrics.TableMetrics tableMetrics = resources.getMetrics().forTable(ValidationFixture.VALIDATION_TABLE_NAME);
+                    long validated = tableMetrics.getCount(ValidationMetrics.RECORDS_VALIDATED);
+                    long failed = tableMetrics.getCount(ValidationMetrics.RECORDS_FAILED);
+                    boolean correct = result.getErrorMessage() == null && validated == records
+                            && failed == data.getMismatchCount() && result.isPassed() == (data.getMismatchCount() == 0);
+                    allRunsCorrect &= correct;
+                    runResult.put("run", run);
+                    runResult.put("millis", millis);
+                    runResult.put("recordsPerSecond", millis == 0 ? 0 : records * 1000L / millis);
+                    runResult.put("recordsValidated", validated);
+                    runResult.put("recordsFailed", failed);
+                    runResult.put("pageRequests", fixture.getServer().getRequestCount() - requestsBefore);
+                    runResult.put("tokenRequests", fixture.getServer().getTokenRequestCount() - tokenRequestsBefore);
+                    runResult.put("heapHighWaterBytes", resources.getMetrics().getHeapHighWaterBytes());
+                    runResult.put("correct", correct);
+                    System.out.println("Load test run " + run + " : " + result + ", " + runResult.get("recordsPerSecond")
+                            + " records/s, validated [" + validated + "], failed [" + failed + "], expected failed ["
+                            + data.getMismatchCount() + "]" + (correct ? "" : " - UNEXPECTED RESULT"));
+                }
+                results.add(runResult);
+            }
+        }
+        resultFile.getAbsoluteFile().getParentFile().mkdirs();
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(resultFile, results);
+        System.out.println("Load test results written : " + resultFile);
+        System.exit(allRunsCorrect ? 0 : 1);
+    }
+}
@@ -0,0 +1,318 @@
+package org.databricks.harness;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the Collibra /assets endpoint, serving offset/limit pages of the synthetic assets of a
+ * SyntheticAssetData, shaped like the records of the asset mapping. Page bodies are rendered once and cached, so the
+ * server costs little next to the client under test, and gzip is used when the request accepts it.
+ * <p>
+ * A request with a cursor parameter is served with cursor paging: the empty cursor gives the first page, every page
+ * but the last carries the nextCursor of the page after it and, as in Collibra, no total. A deep offset penalty can
+ * be set to mimic a catalog whose offset pages get slower the further they are from the start.
+ * <p>
+ * TOKEN_END_POINT answers token requests with a new access_token and expires_in. With setRequireToken pages are only
+ * served for a token it issued that has not expired, others are rejected with 401. A fixed latency per page and
+ * errors on every nth page request can be set for load tests; the errors are counted by request, so a run is
+ * repeatable.
+ */
+public class StubAssetApiServer implements AutoCloseable {
+
+    public static final String END_POINT = "/assets";
+    public static final String TOKEN_END_POINT = "/token";
+
+    static {
+        //The JDK server writes headers and body separately, without TCP_NODELAY every reused connection waits for a
+        //delayed ACK between the two. Read once when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SyntheticAssetData data;
+    private final int totalRecords;
+    private final Map<String, byte[]> pageCache = new ConcurrentHashMap<>();
+    private final AtomicLong requestCount = new AtomicLong();
+    private volatile int throttleEveryNthRequest;
+    private volatile int retryAfterSeconds;
+    private volatile long offsetPenaltyNanosPerRecord;
+    private volatile long pageLatencyMillis;
+    private volatile int errorEveryNthRequest;
+    private volatile int errorStatusCode;
+    private volatile boolean requireToken;
+    private volatile int tokenLifetimeSeconds = 3600;
+    //Expiry time of every issued token
+    private final Map<String, Long> issuedTokens = new ConcurrentHashMap<>();
+    private final AtomicLong tokenRequestCount = new AtomicLong();
+
+    /**
+     * Starts the server on a free port of the loopback interface, serving assets with the eight mapped fields.
+     *
+     * @param totalRecords  - Number of assets the endpoint holds
+     * @param serverThreads - Number of threads answering requests
+     */
+    public StubAssetApiServer(int totalRecords, int serverThreads) throws IOException {
+        this(new SyntheticAssetData(totalRecords, 0, 0), serverThreads);
+    }
+
+    /**
+     * Starts the server on a free port of the loopback interface.
+     *
+     * @param data          - Assets the endpoint holds
+     * @param serverThreads - Number of threads answering requests
+     */
+    public StubAssetApiServer(SyntheticAssetData data, int serverThreads) throws IOException {
+        this.data = data;
+        this.totalRecords = data.getRecordCount();
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        this.executor = Executors.newFixedThreadPool(Math.max(1, serverThreads), runnable -> {
+            Thread thread = new Thread(runnable, "stub-api");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(END_POINT, this::handle);
+        server.createContext(TOKEN_END_POINT, this::handleTokenRequest);
+        server.start();
+    }
+
+    /**
+     * @return base URI of the server, the endpoint is END_POINT below it
+     */
+    public String getBaseUri() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int getTotalRecords() {
+        return totalRecords;
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getTokenRequestCount() {
+        return tokenRequestCount.get();
+    }
+
+    /**
+     * @return URL of the token endpoint, for token_url of the global properties
+     */
+    public String getTokenUrl() {
+        return getBaseUri() + TOKEN_END_POINT;
+    }
+
+    /**
+     * This method will make every page request need a token issued by TOKEN_END_POINT that has not expired yet.
+     *
+     * @param requireToken         - true to reject other tokens with 401
+     * @param tokenLifetimeSeconds - expires_in of the issued tokens
+     */
+    public void setRequireToken(boolean requireToken, int tokenLifetimeSeconds) {
+        this.tokenLifetimeSeconds = tokenLifetimeSeconds;
+        this.requireToken = requireToken;
+    }
+
+    /**
+     * This method will delay every page by a fixed time, to mimic the latency of the real API.
+     *
+     * @param latencyMillis - Delay of every page in milliseconds, 0 for none
+     */
+    public void setPageLatency(long latencyMillis) {
+        this.pageLatencyMillis = latencyMillis;
+    }
+
+    /**
+     * This method will make every nth request fail with the given status code, e.g. 500 or 502, to exercise the
+     * retries of the crawl. Counted separately from setThrottling, a request hit by both is throttled.
+     *
+     * @param everyNthRequest - Request interval, 0 switches the errors off
+     * @param statusCode      - Status code of the failed requests
+     */
+    public void setErrorInjection(int everyNthRequest, int statusCode) {
+        this.errorStatusCode = statusCode;
+        this.errorEveryNthRequest = everyNthRequest;
+    }
+
+    /**
+     * This method will make every nth request fail with 429 Too Many Requests, to exercise the retries of the crawl.
+     *
+     * @param everyNthRequest   - Request interval, 0 switches throttling off
+     * @param retryAfterSeconds - Retry-After sent with the 429, negative to send none
+     */
+    public void setThrottling(int everyNthRequest, int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.throttleEveryNthRequest = everyNthRequest;
+    }
+
+    /**
+     * This method will delay every offset page by the given time per record skipped to reach its offset.
+     *
+     * @param nanosPerSkippedRecord - Delay per skipped record in nanoseconds, 0 for none
+     */
+    public void setDeepOffsetPenalty(long nanosPerSkippedRecord) {
+        this.offsetPenaltyNanosPerRecord = nanosPerSkippedRecord;
+    }
+
+    /**
+     * This method will return the id of the given record, the value the mapping reads as primary key.
+     *
+     * @param recordIndex - Zero based record index
+     * @return String
+     */
+    public static String assetId(int recordIndex) {
+        return SyntheticAssetData.assetId(recordIndex);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long request = requestCount.incrementAndGet();
+        try {
+            int throttleEvery = throttleEveryNthRequest;
+            if (throttleEvery > 0 && request % throttleEvery == 0) {
+                if (retryAfterSeconds >= 0) {
+                    exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+                }
+                exchange.sendResponseHeaders(429, -1);
+                return;
+            }
+            int errorEvery = errorEveryNthRequest;
+            if (errorEvery > 0 && request % errorEvery == 0) {
+                exchange.sendResponseHeaders(errorStatusCode, -1);
+                return;
+            }
+            if (requireToken && !isValidToken(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            boolean cursorPaging = params.containsKey("cursor");
+            int offset = cursorPaging ? decodeCursor(params.get("cursor")) : Integer.parseInt(params.getOrDefault("offset", "0"));
+            int limit = Integer.parseInt(params.getOrDefault("limit", "1000"));
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            long penaltyNanos = cursorPaging ? 0 : offsetPenaltyNanosPerRecord * offset;
+            if (penaltyNanos > 0) {
+                Thread.sleep(penaltyNanos / 1000000, (int) (penaltyNanos % 1000000));
+            }
+            long latencyMillis = pageLatencyMillis;
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            byte[] body = pageCache.computeIfAbsent(offset + ":" + limit + ":" + gzip + ":" + cursorPaging,
+                    key -> renderPage(offset, limit, gzip, cursorPaging));
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (RuntimeException e) {
+            exchange.sendResponseHeaders(500, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean isValidToken(String authorization) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        Long expiresAtMillis = issuedTokens.get(authorization.substring("Bearer ".length()).trim());
+        return expiresAtMillis != null && System.currentTimeMillis() < expiresAtMillis;
+    }
+
+    private void handleTokenRequest(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getRequestBody().readAllBytes();
+            int lifetimeSeconds = tokenLifetimeSeconds;
+            String token = "stub-token-" + tokenRequestCount.incrementAndGet();
+            issuedTokens.put(token, System.currentTimeMillis() + lifetimeSeconds * 1000L);
+            byte[] body = ("{\"access_token\":\"" + token + "\",\"token_type\":\"Bearer\",\"expires_in\":"
+                    + lifetimeSeconds + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] renderPage(int offset, int limit, boolean gzip, boolean cursorPaging) {
+        byte[] plain = cursorPaging
+                ? data.renderCursorPage(offset, limit, offset + limit < totalRecords ? encodeCursor(offset + limit) : null)
+                : data.renderOffsetPage(offset, limit);
+        if (!gzip) {
+            return plain;
+        }
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream(plain.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(zipped)) {
+            out.write(plain);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return zipped.toByteArray();
+    }
+
+    //Cursors are opaque to the client, here they are the base64 of the offset they resume from
+    private static String encodeCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("offset:" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        return Integer.parseInt(decoded.substring("offset:".length()));
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(pair.substring(0, equals),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
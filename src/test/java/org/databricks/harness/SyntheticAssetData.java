@@ -0,0 +1,252 @@
+package org.databricks.harness;
+
+import org.databricks.DatabricksRowStore;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Generator of a synthetic asset catalog, seen from both sides of the validation: the records of the /assets pages
+ * and the rows of the Databricks table. Both are derived from the record index, so any size can be produced without
+ * keeping the data in memory.
+ * <p>
+ * Record i has id "00000000-0000-0000-0000-" followed by i as twelve digits, name "Asset i", displayName
+ * "Asset display i", domain.id "domain-(i % 50)", type "type-(i % 20)" / "Type (i % 20)" and status
+ * "status-(i % 5)" / "Status (i % 5)", mapped to the columns of the asset mapping. Extra fields attribute1 to
+ * attributeN (column ATTRIBUTE_1 to ATTRIBUTE_N) hold "Value k of asset i" and widen the records for benchmarks.
+ * With a mismatch interval, every nth record gets another display name on the Databricks side.
+ */
+public class SyntheticAssetData {
+
+    private static final String[] BASE_JSON_KEYS = {"id", "name", "displayName", "domain.id", "type.id", "type.name",
+            "status.id", "status.name"};
+    private static final String[] BASE_DB_COLUMNS = {"ASSET_ID", "ASSET_FULL_NAME", "ASSET_DISPLAY_NAME", "DOMAIN_ID",
+            "ASSET_TYPE_ID", "ASSET_TYPE_NAME", "STATUS_ID", "STATUS_NAME"};
+
+    private final int recordCount;
+    private final int extraFieldCount;
+    private final int mismatchEvery;
+
+    /**
+     * @param recordCount     - Number of assets
+     * @param extraFieldCount - Number of attribute fields added to the eight fields of the asset mapping
+     * @param mismatchEvery   - Every nth record differs between the two sides, 0 for none
+     */
+    public SyntheticAssetData(int recordCount, int extraFieldCount, int mismatchEvery) {
+        this.recordCount = recordCount;
+        this.extraFieldCount = extraFieldCount;
+        this.mismatchEvery = mismatchEvery;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return number of mapped fields of a record, the primary key included
+     */
+    public int getFieldCount() {
+        return BASE_DB_COLUMNS.length + extraFieldCount;
+    }
+
+    /**
+     * @return number of records whose Databricks row differs from the API record
+     */
+    public int getMismatchCount() {
+        return mismatchEvery <= 0 ? 0 : (recordCount + mismatchEvery - 1) / mismatchEvery;
+    }
+
+    /**
+     * This method will return the id of the given record, the value the mapping reads as primary key.
+     *
+     * @param recordIndex - Zero based record index
+     * @return String
+     */
+    public static String assetId(int recordIndex) {
+        return "00000000-0000-0000-0000-" + String.format("%012d", recordIndex);
+    }
+
+    /**
+     * @return upper-cased Databricks column names, in mapping order
+     */
+    public String[] getDbColumns() {
+        String[] columns = new String[getFieldCount()];
+        System.arraycopy(BASE_DB_COLUMNS, 0, columns, 0, BASE_DB_COLUMNS.length);
+        for (int k = 1; k <= extraFieldCount; k++) {
+            columns[BASE_DB_COLUMNS.length + k - 1] = "ATTRIBUTE_" + k;
+        }
+        return columns;
+    }
+
+    /**
+     * This method will return the Databricks row of a record, values in getDbColumns order.
+     *
+     * @param i - Zero based record index
+     * @return String[]
+     */
+    public String[] getDbRow(int i) {
+        String[] row = new String[getFieldCount()];
+        row[0] = assetId(i);
+        row[1] = "Asset " + i;
+        row[2] = mismatchEvery > 0 && i % mismatchEvery == 0 ? "Renamed asset " + i : "Asset display " + i;
+        row[3] = "domain-" + (i % 50);
+        row[4] = "type-" + (i % 20);
+        row[5] = "Type " + (i % 20);
+        row[6] = "status-" + (i % 5);
+        row[7] = "Status " + (i % 5);
+        for (int k = 1; k <= extraFieldCount; k++) {
+            row[BASE_DB_COLUMNS.length + k - 1] = "Value " + k + " of asset " + i;
+        }
+        return row;
+    }
+
+    /**
+     * This method will append the JSON object of a record to a page body.
+     *
+     * @param json - Page body
+     * @param i    - Zero based record index
+     */
+    public void appendJsonRecord(StringBuilder json, int i) {
+        json.append("{\"id\":\"").append(assetId(i))
+                .append("\",\"name\":\"Asset ").append(i)
+                .append("\",\"displayName\":\"Asset display ").append(i)
+                .append("\",\"domain\":{\"id\":\"domain-").append(i % 50)
+                .append("\"},\"type\":{\"id\":\"type-").append(i % 20).append("\",\"name\":\"Type ").append(i % 20)
+                .append("\"},\"status\":{\"id\":\"status-").append(i % 5).append("\",\"name\":\"Status ").append(i % 5)
+                .append("\"}");
+        for (int k = 1; k <= extraFieldCount; k++) {
+            json.append(",\"attribute").append(k).append("\":\"Value ").append(k).append(" of asset ").append(i)
+                    .append('"');
+        }
+        json.append(",\"createdOn\":").append(1600000000000L + i).append('}');
+    }
+
+    /**
+     * This method will render an offset page of the /assets endpoint.
+     *
+     * @param offset - Offset of the first record
+     * @param limit  - Maximum number of records
+     * @return UTF-8 JSON body
+     */
+    public byte[] renderOffsetPage(int offset, int limit) {
+        StringBuilder json = new StringBuilder(256 * Math.max(0, Math.min(limit, recordCount)));
+        json.append("{\"total\":").append(recordCount).append(",\"offset\":").append(offset)
+                .append(",\"limit\":").append(limit).append(",\"results\":[");
+        appendJsonRecords(json, offset, Math.min(recordCount, offset + limit));
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method will render a cursor page of the /assets endpoint, without total as Collibra does.
+     *
+     * @param offset     - Offset of the first record
+     * @param limit      - Maximum number of records
+     * @param nextCursor - Cursor of the page after it, null on the last page
+     * @return UTF-8 JSON body
+     */
+    public byte[] renderCursorPage(int offset, int limit, String nextCursor) {
+        StringBuilder json = new StringBuilder(256 * Math.max(0, Math.min(limit, recordCount)));
+        json.append("{\"limit\":").append(limit);
+        if (nextCursor != null) {
+            json.append(",\"nextCursor\":\"").append(nextCursor).append('"');
+        }
+        json.append(",\"results\":[");
+        appendJsonRecords(json, offset, Math.min(recordCount, offset + limit));
+        json.append("]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void appendJsonRecords(StringBuilder json, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            appendJsonRecord(json, i);
+        }
+    }
+
+    /**
+     * This method will write the DB to JSON mapping file of the records, one jsonKey=column line per field.
+     *
+     * @param mappingFile - File to write
+     */
+    public void writeMappingFile(File mappingFile) throws IOException {
+        String[] columns = getDbColumns();
+        try (Writer writer = new FileWriter(mappingFile, StandardCharsets.UTF_8)) {
+            writer.write("#Synthetic asset mapping, " + getFieldCount() + " fields\n");
+            for (int field = 0; field < columns.length; field++) {
+                String jsonKey = field < BASE_JSON_KEYS.length ? BASE_JSON_KEYS[field]
+                        : "attribute" + (field - BASE_JSON_KEYS.length + 1);
+                writer.write(jsonKey + "=" + columns[field].toLowerCase() + "\n");
+            }
+        }
+    }
+
+    /**
+     * This method will create the Databricks side of the records as a table and insert every row in batches.
+     *
+     * @param connection - Connection of the database to load
+     * @param tableName  - Name of the table to create
+     */
+    public void createTable(Connection connection, String tableName) throws SQLException {
+        String[] columns = getDbColumns();
+        StringBuilder create = new StringBuilder("create table ").append(tableName).append(" (");
+        StringBuilder insert = new StringBuilder("insert into ").append(tableName).append(" values (");
+        for (int column = 0; column < columns.length; column++) {
+            create.append(column == 0 ? "" : ", ").append(columns[column].toLowerCase()).append(" varchar(255)");
+            insert.append(column == 0 ? "?" : ", ?");
+        }
+        create.append(", primary key (asset_id))");
+        insert.append(")");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(create.toString());
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(insert.toString())) {
+            for (int i = 0; i < recordCount; i++) {
+                String[] row = getDbRow(i);
+                for (int column = 0; column < row.length; column++) {
+                    statement.setString(column + 1, row[column]);
+                }
+                statement.addBatch();
+                if ((i + 1) % 10000 == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * @param tableName - Table created by createTable
+     * @return query selecting the mapped columns of the table
+     */
+    public String getSelectQuery(String tableName) {
+        return "select " + String.join(", ", getDbColumns()).toLowerCase() + " from " + tableName;
+    }
+
+    /**
+     * This method will build the row store the Databricks extract of the records yields.
+     *
+     * @return DatabricksRowStore
+     */
+    public DatabricksRowStore toRowStore() {
+        DatabricksRowStore store = new DatabricksRowStore(getDbColumns(), "asset_id");
+        for (int i = 0; i < recordCount; i++) {
+            store.appendRow(getDbRow(i));
+        }
+        return store;
+    }
+}
@@ -0,0 +1,156 @@
+package org.databricks.harness;
+
+import org.databricks.DatabricksCollibraValidation;
+import org.databricks.ReusableCommonMethods;
+import org.databricks.TableValidationResult;
+import org.databricks.TokenManager;
+import org.databricks.ValidationResources;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * A complete validation environment for synthetic assets: the Databricks side in an EmbeddedDatabase, the /assets
+ * endpoint in a StubAssetApiServer and the mapping file in a work folder. The global properties are those of
+ * GLOBAL_PROPERTIES.properties pointed at the fixture, the reports are written as csv below the work folder.
+ * <p>
+ * The resources use a fixed access token, or with enableTokenEndpoint tokens requested from the token endpoint of the
+ * stub server, which then rejects pages sent without a valid token.
+ */
+public class ValidationFixture implements AutoCloseable {
+
+    public static final String TABLE_NAME = "assets";
+    public static final String VALIDATION_TABLE_NAME = "SYNTHETIC_ASSET.properties";
+
+    private final SyntheticAssetData data;
+    private final EmbeddedDatabase database;
+    private final StubAssetApiServer server;
+    private final Properties globalProp;
+    private final Properties tableProp;
+    private final String sqlQuery;
+    private boolean tokenEndpoint;
+
+    /**
+     * @param data          - Synthetic assets loaded on both sides
+     * @param workFolder    - Folder of the mapping file and of the reports, created when missing
+     * @param serverThreads - Number of threads of the stub API server
+     */
+    public ValidationFixture(SyntheticAssetData data, File workFolder, int serverThreads) throws Exception {
+        this.data = data;
+        this.database = new EmbeddedDatabase();
+        StubAssetApiServer startedServer = null;
+        try {
+            sqlQuery = database.load(data, TABLE_NAME);
+            startedServer = new StubAssetApiServer(data, serverThreads);
+            Files.createDirectories(workFolder.toPath());
+            File mappingFile = new File(workFolder, "synthetic_asset_mapping.properties");
+            data.writeMappingFile(mappingFile);
+
+            globalProp = ReusableCommonMethods.readGlobalProperty();
+            if (globalProp == null) {
+                throw new IOException("Global properties could not be read");
+            }
+            globalProp.setProperty("base_uri", startedServer.getBaseUri());
+            globalProp.setProperty("base_path", "");
+            globalProp.setProperty("proxy", "");
+            database.configure(globalProp);
+            globalProp.setProperty("report_format", "csv");
+            globalProp.setProperty("checkpoint_enabled", "false");
+            //reportPath is resolved against src/test of the working directory
+            File testFolder = new File(System.getProperty("user.dir"), "src" + File.separator + "test");
+            globalProp.setProperty("reportPath", testFolder.toPath().toAbsolutePath()
+                    .relativize(new File(workFolder, "report").toPath().toAbsolutePath()).toString());
+
+            tableProp = new Properties();
+            tableProp.setProperty("asset_table_end_point", StubAssetApiServer.END_POINT);
+            tableProp.setProperty("asset_table_db_json_mapping_file_name", mappingFile.getAbsolutePath());
+            tableProp.setProperty("primary_key", "asset_id");
+            tableProp.setProperty("primary_key_in_json_response", "id");
+            tableProp.setProperty("comparison_engine", "in_memory");
+            tableProp.setProperty("validation_mode", "full");
+            tableProp.setProperty("pagination_mode", "offset");
+            tableProp.setProperty("primary_key_type", "auto");
+        } catch (Exception e) {
+            if (startedServer != null) {
+                startedServer.close();
+            }
+            database.close();
+            throw e;
+        }
+        this.server = startedServer;
+    }
+
+    public SyntheticAssetData getData() {
+        return data;
+    }
+
+    public EmbeddedDatabase getDatabase() {
+        return database;
+    }
+
+    public StubAssetApiServer getServer() {
+        return server;
+    }
+
+    /**
+     * @return global properties of the fixture, changes apply to the resources created afterwards
+     */
+    public Properties getGlobalProp() {
+        return globalProp;
+    }
+
+    /**
+     * @return table properties of the fixture, changes apply to the next validation
+     */
+    public Properties getTableProp() {
+        return tableProp;
+    }
+
+    public String getSqlQuery() {
+        return sqlQuery;
+    }
+
+    /**
+     * This method will point token_url of the global properties at the stub server and make the server require the
+     * tokens it issued, so the token requests and renewals of the run are exercised too.
+     *
+     * @param tokenLifetimeSeconds - expires_in of the issued tokens
+     */
+    public void enableTokenEndpoint(int tokenLifetimeSeconds) {
+        globalProp.setProperty("token_url", server.getTokenUrl());
+        globalProp.setProperty("grant_type", "client_credentials");
+        globalProp.setProperty("client_id", "fixture-client");
+        globalProp.setProperty("client_secret", "fixture-secret");
+        server.setRequireToken(true, tokenLifetimeSeconds);
+        tokenEndpoint = true;
+    }
+
+    /**
+     * This method will create the resources of a validation run against the fixture, with a fixed access token or,
+     * after enableTokenEndpoint, with tokens of the stub token endpoint.
+     *
+     * @return ValidationResources
+     */
+    public ValidationResources newResources() {
+        return new ValidationResources(globalProp, tokenEndpoint ? new TokenManager(globalProp)
+                : TokenManager.fixed("fixture-token"));
+    }
+
+    /**
+     * This method will validate every synthetic asset with the given resources.
+     *
+     * @param resources - Resources created by newResources
+     * @return TableValidationResult
+     */
+    public TableValidationResult runValidation(ValidationResources resources) {
+        return DatabricksCollibraValidation.validateTable(resources, VALIDATION_TABLE_NAME, tableProp, sqlQuery, -1);
+    }
+
+    @Override
+    public void close() {
+        server.close();
+        database.close();
+    }
+}